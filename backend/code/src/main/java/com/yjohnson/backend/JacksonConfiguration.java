@@ -0,0 +1,18 @@
+package com.yjohnson.backend;
+
+import com.yjohnson.backend.json.SparseFieldset;
+import org.springframework.boot.autoconfigure.jackson.Jackson2ObjectMapperBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configures the {@code ObjectMapper} of the application to write every field of the classes that support sparse fieldsets, unless a response
+ * asks for fewer.
+ */
+@Configuration
+public class JacksonConfiguration {
+	@Bean
+	public Jackson2ObjectMapperBuilderCustomizer sparseFieldsetFilters() {
+		return builder -> builder.filters(SparseFieldset.DEFAULT_FILTERS);
+	}
+}
@@ -0,0 +1,50 @@
+package com.yjohnson.backend.cache;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON that was serialized once from a {@link ReferenceDataCache} snapshot, together with a strong entity tag that identifies that snapshot.
+ */
+public final class CachedJson {
+	private final byte[] body;
+	private final String eTag;
+
+	CachedJson(byte[] body, String eTag) {
+		this.body = body;
+		this.eTag = eTag;
+	}
+
+	/**
+	 * @return the serialized JSON; shared by every reader, so it must not be modified.
+	 */
+	public byte[] getBody() {
+		return body;
+	}
+
+	/**
+	 * @return the quoted entity tag of the snapshot the JSON was serialized from.
+	 */
+	public String getETag() {
+		return eTag;
+	}
+
+	/**
+	 * Wraps the JSON in a response that clients may reuse for {@code maxAgeSeconds} and then revalidate with {@code If-None-Match}. Spring MVC
+	 * answers a GET whose {@code If-None-Match} contains the tag with 304 Not Modified and no body.
+	 *
+	 * @param maxAgeSeconds how long clients may use the response without asking again
+	 *
+	 * @return a 200 response with the JSON, its {@code ETag} and {@code Cache-Control}.
+	 */
+	public ResponseEntity<byte[]> toResponse(long maxAgeSeconds) {
+		return ResponseEntity.ok()
+		                     .contentType(MediaType.APPLICATION_JSON)
+		                     .eTag(eTag)
+		                     .cacheControl(CacheControl.maxAge(maxAgeSeconds, TimeUnit.SECONDS).mustRevalidate())
+		                     .body(body);
+	}
+}
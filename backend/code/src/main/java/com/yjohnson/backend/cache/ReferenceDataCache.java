@@ -0,0 +1,162 @@
+package com.yjohnson.backend.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.UncheckedIOException;
+import java.security.SecureRandom;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * In-process cache of a small, read-mostly table such as the groups or the interests. The whole table is read once into an immutable snapshot
+ * that serves the full list, lookups by ID and by name, and the JSON of the list and of named subsets of it, serialized once per snapshot.
+ * <p>
+ * Every {@link #invalidate()} bumps the version and drops the snapshot; the next read loads a new one. Writers must call it after they commit a
+ * change to the table. A snapshot that was loaded while an invalidation happened is still returned to its reader, but never stored. The JSON is
+ * returned as {@link CachedJson}, tagged with the version of the snapshot it was serialized from, so that clients can revalidate it.
+ * <p>
+ * The cached entities are shared by every reader and detached from any persistence context: they must not be modified, and lazy relations on them
+ * cannot be read. The cache only sees writes made through this instance, so every server must invalidate its own copy.
+ *
+ * @param <E> the type of the cached entities
+ */
+public class ReferenceDataCache<E> {
+	private final ObjectMapper objectMapper;
+	private final Supplier<? extends Iterable<E>> loader;
+	private final Function<E, Long> idOf;
+	private final Function<E, String> nameOf;
+	/* Random per instance, so that versions from before a restart never match */
+	private final String instance = Long.toHexString(new SecureRandom().nextLong());
+	private final AtomicLong version = new AtomicLong();
+	private volatile Snapshot<E> snapshot;
+
+	/**
+	 * @param objectMapper serializes the cached JSON
+	 * @param loader       reads the whole table
+	 * @param idOf         the ID of an entity
+	 * @param nameOf       the unique name of an entity
+	 */
+	public ReferenceDataCache(ObjectMapper objectMapper, Supplier<? extends Iterable<E>> loader, Function<E, Long> idOf, Function<E, String> nameOf) {
+		this.objectMapper = objectMapper;
+		this.loader = loader;
+		this.idOf = idOf;
+		this.nameOf = nameOf;
+	}
+
+	/**
+	 * @return the version of the table, which changes on every invalidation.
+	 */
+	public long getVersion() {
+		return version.get();
+	}
+
+	public List<E> getAll() {
+		return snapshot().all;
+	}
+
+	public Optional<E> getById(Long id) {
+		return Optional.ofNullable(snapshot().byId.get(id));
+	}
+
+	/**
+	 * Looks an entity up by name. Names are compared ignoring case, as the default MySQL collation does.
+	 *
+	 * @param name the name of the entity
+	 *
+	 * @return the entity with that name, if any.
+	 */
+	public Optional<E> getByName(String name) {
+		return Optional.ofNullable(snapshot().byName.get(name));
+	}
+
+	/**
+	 * @return the JSON array of every entity, in table order.
+	 */
+	public CachedJson getJson() {
+		Snapshot<E> current = snapshot();
+		return current.json.computeIfAbsent("", view -> serialize(current, current.all));
+	}
+
+	/**
+	 * Returns the JSON array of the entities that match a filter. The result is cached under the given view name until the next invalidation, so
+	 * every view name must always be used with the same filter.
+	 *
+	 * @param view   the name under which to cache the result; must not be empty
+	 * @param filter selects the entities of the view
+	 *
+	 * @return the JSON array of the matching entities, in table order.
+	 */
+	public CachedJson getJson(String view, Predicate<E> filter) {
+		if (view.isEmpty()) throw new IllegalArgumentException("view must not be empty");
+		Snapshot<E> current = snapshot();
+		return current.json.computeIfAbsent(view, v -> {
+			List<E> subset = new ArrayList<>();
+			for (E entity : current.all) {
+				if (filter.test(entity)) subset.add(entity);
+			}
+			return serialize(current, subset);
+		});
+	}
+
+	/**
+	 * Drops the cached snapshot after the table changed.
+	 */
+	public void invalidate() {
+		synchronized (this) {
+			version.incrementAndGet();
+			snapshot = null;
+		}
+	}
+
+	private Snapshot<E> snapshot() {
+		Snapshot<E> current = snapshot;
+		if (current != null) return current;
+		long before = version.get();
+		Snapshot<E> loaded = load(before);
+		synchronized (this) {
+			if (snapshot == null && version.get() == before) snapshot = loaded;
+		}
+		return loaded;
+	}
+
+	private Snapshot<E> load(long loadedVersion) {
+		List<E> all = new ArrayList<>();
+		Map<Long, E> byId = new HashMap<>();
+		Map<String, E> byName = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+		for (E entity : loader.get()) {
+			all.add(entity);
+			byId.put(idOf.apply(entity), entity);
+			byName.put(nameOf.apply(entity), entity);
+		}
+		return new Snapshot<>(loadedVersion, Collections.unmodifiableList(all), byId, byName);
+	}
+
+	private CachedJson serialize(Snapshot<E> snapshot, List<E> entities) {
+		try {
+			return new CachedJson(objectMapper.writeValueAsBytes(entities), '"' + instance + '-' + Long.toHexString(snapshot.version) + '"');
+		} catch (JsonProcessingException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static final class Snapshot<E> {
+		private final long version;
+		private final List<E> all;
+		private final Map<Long, E> byId;
+		private final Map<String, E> byName;
+		/* View name -> serialized entities; the empty name is the whole table */
+		private final Map<String, CachedJson> json = new ConcurrentHashMap<>();
+
+		Snapshot(long version, List<E> all, Map<Long, E> byId, Map<String, E> byName) {
+			this.version = version;
+			this.all = all;
+			this.byId = byId;
+			this.byName = byName;
+		}
+	}
+}
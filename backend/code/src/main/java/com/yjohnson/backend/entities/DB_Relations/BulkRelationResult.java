@@ -0,0 +1,64 @@
+package com.yjohnson.backend.entities.DB_Relations;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * The outcome of one item of a bulk relation request: the ID of the group or interest that was requested, whether a relation to it was added,
+ * and the added relation.
+ *
+ * @param <R> the type of the relation
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BulkRelationResult<R> {
+	private final Long id;
+	private final Status status;
+	private final R relation;
+
+	private BulkRelationResult(Long id, Status status, R relation) {
+		this.id = id;
+		this.status = status;
+		this.relation = relation;
+	}
+
+	public static <R> BulkRelationResult<R> created(Long id, R relation) {
+		return new BulkRelationResult<>(id, Status.CREATED, relation);
+	}
+
+	public static <R> BulkRelationResult<R> conflict(Long id) {
+		return new BulkRelationResult<>(id, Status.CONFLICT, null);
+	}
+
+	public static <R> BulkRelationResult<R> notFound(Long id) {
+		return new BulkRelationResult<>(id, Status.NOT_FOUND, null);
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	public Status getStatus() {
+		return status;
+	}
+
+	/**
+	 * @return the added relation, or {@code null} if none was added.
+	 */
+	public R getRelation() {
+		return relation;
+	}
+
+	public enum Status {
+		/**
+		 * The relation was added.
+		 */
+		CREATED,
+		/**
+		 * The user already had the relation, or it was requested twice.
+		 */
+		CONFLICT,
+		/**
+		 * There is no group or interest with the requested ID.
+		 */
+		NOT_FOUND
+	}
+}
@@ -4,6 +4,7 @@ import com.yjohnson.backend.entities.Group.GroupEntity;
 import com.yjohnson.backend.entities.User.User;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -12,5 +13,8 @@ import java.util.Optional;
 @Repository
 public interface UserGroupRepository extends CrudRepository<R_UserGroup, Long> {
 	List<R_UserGroup> findAllByUser(User user);
+
+	@Query("SELECT r FROM R_UserGroup r JOIN FETCH r.user JOIN FETCH r.group WHERE r.user.id = :userId")
+	List<R_UserGroup> findAllWithGroupByUserId(@Param("userId") Long userId);
 	Optional<R_UserGroup> findByUserAndGroup(User user, GroupEntity group);
 }
@@ -2,7 +2,9 @@ package com.yjohnson.backend.entities.DB_Relations;
 
 import com.yjohnson.backend.entities.Interest.InterestEntity;
 import com.yjohnson.backend.entities.User.User;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -11,5 +13,8 @@ import java.util.Optional;
 @Repository
 public interface UserInterestRepository extends CrudRepository<R_UserInterest, Long> {
 	List<R_UserInterest> findAllByUser(User user);
+
+	@Query("SELECT r FROM R_UserInterest r JOIN FETCH r.user JOIN FETCH r.interest WHERE r.user.id = :userId")
+	List<R_UserInterest> findAllWithInterestByUserId(@Param("userId") Long userId);
 	Optional<R_UserInterest> findByUserAndInterest(User user, InterestEntity interest);
 }
@@ -1,11 +1,11 @@
 package com.yjohnson.backend.entities;
 
+import com.yjohnson.backend.entities.Match.MatchDeltaService;
 import com.yjohnson.backend.entities.User.User;
 import com.yjohnson.backend.entities.User.UserRepository;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -18,9 +18,11 @@ import java.util.Optional;
 @RequestMapping()
 public class GeneralController {
 	private final UserRepository userRepository;
+	private final MatchDeltaService matchDeltaService;
 
-	public GeneralController(UserRepository userRepository) {
+	public GeneralController(UserRepository userRepository, MatchDeltaService matchDeltaService) {
 		this.userRepository = userRepository;
+		this.matchDeltaService = matchDeltaService;
 	}
 
 	/**
@@ -66,27 +68,16 @@ public class GeneralController {
 			if (optionalUser.isPresent()) {
 				User user = optionalUser.get();
 				if (user.validate()) {
-					user.setFirstName(StringUtils.trimWhitespace(StringUtils.capitalize(user.getFirstName().toLowerCase())));
-					if (user.getMiddleName() != null) {
-						user.setMiddleName(StringUtils.trimWhitespace(StringUtils.capitalize(user.getMiddleName().toLowerCase())));
-					}
-					user.setLastName(StringUtils.trimWhitespace(StringUtils.capitalize(user.getLastName().toLowerCase())));
-					user.setUsername(StringUtils.trimAllWhitespace(user.getUsername().toLowerCase()));
-					user.setEmail(StringUtils.trimAllWhitespace(user.getEmail().toLowerCase()));
-					if (user.getPhoneNumber() != null) user.setPhoneNumber(String.format(
-							"%10s",
-							StringUtils.deleteAny(
-									user.getPhoneNumber(),
-									"-()/_-+ "
-							)
-					));
+					user.normalize();
 
 					if (userRepository.findByEmail(user.getEmail()).isPresent()) {               // 1
 						return new ResponseEntity<>(user.getEmail(), HttpStatus.CONFLICT);
 					} else if (userRepository.findByUsername(user.getUsername()).isPresent()) {  // 2
 						return new ResponseEntity<>(user.getUsername(), HttpStatus.CONFLICT);
 					}
-					return new ResponseEntity<>(userRepository.save(user), HttpStatus.CREATED);
+					User saved = userRepository.save(user);
+					matchDeltaService.onUserChanged(saved);
+					return new ResponseEntity<>(saved, HttpStatus.CREATED);
 				}
 			}
 			return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
@@ -0,0 +1,41 @@
+package com.yjohnson.backend.entities.Group;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import java.time.LocalDateTime;
+
+/**
+ * Records which version of a bundled catalog file was last synced into the database, so that unchanged files are not synced again on every
+ * startup.
+ */
+@Entity
+@Table(name = "catalog_sync")
+public class CatalogSyncEntity {
+	/* The classpath location of the catalog file */
+	@Id
+	private String catalog;
+	private String checksum;
+	private LocalDateTime syncedAt;
+
+	protected CatalogSyncEntity() {
+	}
+
+	public CatalogSyncEntity(String catalog, String checksum, LocalDateTime syncedAt) {
+		this.catalog = catalog;
+		this.checksum = checksum;
+		this.syncedAt = syncedAt;
+	}
+
+	public String getCatalog() {
+		return catalog;
+	}
+
+	public String getChecksum() {
+		return checksum;
+	}
+
+	public LocalDateTime getSyncedAt() {
+		return syncedAt;
+	}
+}
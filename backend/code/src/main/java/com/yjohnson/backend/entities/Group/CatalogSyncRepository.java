@@ -0,0 +1,8 @@
+package com.yjohnson.backend.entities.Group;
+
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface CatalogSyncRepository extends CrudRepository<CatalogSyncEntity, String> {
+}
@@ -0,0 +1,109 @@
+package com.yjohnson.backend.entities.Group;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Syncs the groups listed in the bundled catalog files (one group name per line) into the database. A sync is skipped when the file is
+ * unchanged since the last one, which is recorded with its checksum in a {@link CatalogSyncEntity}. Otherwise the file is compared against the
+ * names of all stored groups, read with one query, and only the missing groups are inserted, together with the new checksum, in one
+ * transaction.
+ */
+@Component
+public class GroupCatalog {
+	private final Logger logger = LoggerFactory.getLogger(GroupCatalog.class);
+	private final GroupRepository groupRepository;
+	private final CatalogSyncRepository catalogSyncRepository;
+	private final TransactionTemplate transactionTemplate;
+
+	public GroupCatalog(GroupRepository groupRepository, CatalogSyncRepository catalogSyncRepository, TransactionTemplate transactionTemplate) {
+		this.groupRepository = groupRepository;
+		this.catalogSyncRepository = catalogSyncRepository;
+		this.transactionTemplate = transactionTemplate;
+	}
+
+	/**
+	 * Adds the groups of a catalog file that are not stored yet. Stored groups are never changed or removed, and names are compared without case,
+	 * as the database does.
+	 *
+	 * @param catalog           the classpath location of the catalog file
+	 * @param groupType         the type of the listed groups
+	 * @param descriptionFormat the description of a new group, with {@code %s} standing for its name
+	 *
+	 * @return the number of groups that were added, zero if the file was unchanged.
+	 *
+	 * @throws IOException if the file cannot be read
+	 */
+	public int sync(String catalog, GroupType groupType, String descriptionFormat) throws IOException {
+		long start = System.nanoTime();
+		byte[] content;
+		try (InputStream in = new ClassPathResource(catalog).getInputStream()) {
+			content = StreamUtils.copyToByteArray(in);
+		}
+		/* The type and format decide what is inserted, so changing either has to sync again as well */
+		String checksum = checksum(groupType.name(), descriptionFormat, content);
+		Optional<CatalogSyncEntity> last = catalogSyncRepository.findById(catalog);
+		if (last.isPresent() && last.get().getChecksum().equals(checksum)) {
+			logger.info("{} is unchanged since {}, skipped its sync in {} ms", catalog, last.get().getSyncedAt(), millisSince(start));
+			return 0;
+		}
+
+		Set<String> names = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+		names.addAll(groupRepository.findAllNames());
+		List<GroupEntity> missing = new ArrayList<>();
+		for (String line : new String(content, StandardCharsets.UTF_8).split("\\r?\\n")) {
+			String name = line.trim();
+			if (!name.isEmpty() && names.add(name)) {
+				missing.add(new GroupEntity(groupType, name, String.format(descriptionFormat, name)));
+			}
+		}
+		try {
+			transactionTemplate.execute(status -> {
+				groupRepository.saveAll(missing);
+				return catalogSyncRepository.save(new CatalogSyncEntity(catalog, checksum, LocalDateTime.now()));
+			});
+		} catch (DataIntegrityViolationException e) {
+			/* Another instance synced the same file concurrently; its sync covers this one */
+			logger.warn("Sync of {} failed, it is retried on the next startup: {}", catalog, e.getMessage());
+			return 0;
+		}
+		logger.info("Synced {}: added {} groups in {} ms", catalog, missing.size(), millisSince(start));
+		return missing.size();
+	}
+
+	private static String checksum(String groupType, String descriptionFormat, byte[] content) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			digest.update(groupType.getBytes(StandardCharsets.UTF_8));
+			digest.update((byte) 0);
+			digest.update(descriptionFormat.getBytes(StandardCharsets.UTF_8));
+			digest.update((byte) 0);
+			byte[] hash = digest.digest(content);
+			StringBuilder hex = new StringBuilder(hash.length * 2);
+			for (byte b : hash) {
+				hex.append(String.format("%02x", b));
+			}
+			return hex.toString();
+		} catch (NoSuchAlgorithmException e) {
+			/* Every Java platform is required to support SHA-256 */
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static long millisSince(long start) {
+		return (System.nanoTime() - start) / 1_000_000;
+	}
+}
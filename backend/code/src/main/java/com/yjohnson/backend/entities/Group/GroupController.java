@@ -1,10 +1,12 @@
 package com.yjohnson.backend.entities.Group;
 
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -17,9 +19,11 @@ import java.util.Optional;
 public class GroupController {
 
 	private final GroupService groupService;
+	private final long catalogMaxAge;
 
-	public GroupController(GroupRepository groupRepository, GroupService groupService) {
+	public GroupController(GroupService groupService, @Value("${cybuds.catalog.max-age-seconds:60}") long catalogMaxAge) {
 		this.groupService = groupService;
+		this.catalogMaxAge = catalogMaxAge;
 	}
 
 
@@ -147,23 +151,41 @@ public class GroupController {
 	/**
 	 * Retrieves all the {@code GroupEntity} objects in the database.
 	 *
-	 * @return all the groups in the database
+	 * @return all the groups in the database, tagged with the version of the catalog; 304 Not Modified if {@code If-None-Match} holds that tag
 	 */
 	@Operation(summary = "Gets all groups")
+	@ApiResponses(value = {
+			@ApiResponse(responseCode = "200", description = "Got the groups", content = {
+					@Content(mediaType = "application/json", array = @ArraySchema(schema = @Schema(implementation = GroupEntity.class)))
+			}),
+			@ApiResponse(responseCode = "304", description = "The groups did not change since the tag in If-None-Match")
+	})
 	@GetMapping
-	public Iterable<GroupEntity> retrieveAll() {
-		return groupService.getAllGroups();
+	public ResponseEntity<byte[]> retrieveAll() {
+		return groupService.getAllGroupsJson().toResponse(catalogMaxAge);
 	}
 
 	@Operation(summary = "Gets all majors")
+	@ApiResponses(value = {
+			@ApiResponse(responseCode = "200", description = "Got the majors", content = {
+					@Content(mediaType = "application/json", array = @ArraySchema(schema = @Schema(implementation = GroupEntity.class)))
+			}),
+			@ApiResponse(responseCode = "304", description = "The majors did not change since the tag in If-None-Match")
+	})
 	@GetMapping("/majors")
-	public Iterable<GroupEntity> retrieveMajors() {
-		return groupService.getGroupsByType(GroupType.STUDENT_MAJOR);
+	public ResponseEntity<byte[]> retrieveMajors() {
+		return groupService.getGroupsByTypeJson(GroupType.STUDENT_MAJOR).toResponse(catalogMaxAge);
 	}
 
 	@Operation(summary = "Gets all colleges")
+	@ApiResponses(value = {
+			@ApiResponse(responseCode = "200", description = "Got the colleges", content = {
+					@Content(mediaType = "application/json", array = @ArraySchema(schema = @Schema(implementation = GroupEntity.class)))
+			}),
+			@ApiResponse(responseCode = "304", description = "The colleges did not change since the tag in If-None-Match")
+	})
 	@GetMapping("/colleges")
-	public Iterable<GroupEntity> retrieveColleges() {
-		return groupService.getGroupsByType(GroupType.COLLEGE);
+	public ResponseEntity<byte[]> retrieveColleges() {
+		return groupService.getGroupsByTypeJson(GroupType.COLLEGE).toResponse(catalogMaxAge);
 	}
 }
\ No newline at end of file
@@ -1,12 +1,17 @@
 package com.yjohnson.backend.entities.Group;
 
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface GroupRepository extends CrudRepository<GroupEntity, Long> {
 	Optional<GroupEntity> findByName(String name);
 	Iterable<GroupEntity> findAllByGroupType(GroupType groupType);
+
+	@Query("SELECT g.name FROM GroupEntity g")
+	List<String> findAllNames();
 }
\ No newline at end of file
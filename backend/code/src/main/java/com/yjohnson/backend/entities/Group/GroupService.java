@@ -1,9 +1,10 @@
 package com.yjohnson.backend.entities.Group;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yjohnson.backend.cache.CachedJson;
+import com.yjohnson.backend.cache.ReferenceDataCache;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.io.ClassPathResource;
 import org.springframework.core.io.Resource;
-import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 import org.yaml.snakeyaml.constructor.SafeConstructor;
@@ -11,64 +12,43 @@ import org.yaml.snakeyaml.constructor.SafeConstructor;
 import javax.annotation.PostConstruct;
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.List;
 import java.util.Optional;
-import java.util.Scanner;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 @Service
 public class GroupService {
 	public static final String STATIC_MAJORS_TXT = "/static/txt/majors.txt";
 	public static final String STATIC_COLLEGES_TXT = "/static/txt/colleges.txt";
-	private static boolean loaded = false;
 	private final GroupRepository groupRepository;
+	private final GroupCatalog groupCatalog;
+	private final ReferenceDataCache<GroupEntity> cache;
 	@Value("classpath:static/txt/*")
 	private Resource[] resources;
 	private List<String> filenames;
 
-	public GroupService(GroupRepository groupRepository) {
+	public GroupService(GroupRepository groupRepository, ObjectMapper objectMapper, GroupCatalog groupCatalog) {
 		this.groupRepository = groupRepository;
-
+		this.groupCatalog = groupCatalog;
+		this.cache = new ReferenceDataCache<>(objectMapper, groupRepository::findAll, GroupEntity::getId, GroupEntity::getName);
 	}
 
+	/**
+	 * Adds the majors and colleges of the bundled catalog files that are missing from the database. Unchanged files are skipped, see
+	 * {@link GroupCatalog}.
+	 *
+	 * @throws IOException if a catalog file cannot be read
+	 */
 	@PostConstruct
 	void init() throws IOException {
-		InputStream f = new ClassPathResource("static/txt/majors.txt").getInputStream();
-		preloadGroups(groupRepository, "%s is a major at ISU.", GroupType.STUDENT_MAJOR, f);
-
-		f = new ClassPathResource("static/txt/colleges.txt").getInputStream();
-
-		preloadGroups(groupRepository, "%s is a college at ISU.", GroupType.COLLEGE, f);
-	}
-
-	private static void preloadGroups(GroupRepository groupRepository, String format, GroupType groupType, InputStream file) {
-		if (!loaded) {
-
-			try (Scanner scanner = new Scanner(file).useDelimiter("\\r?\\n")) {
-				while (scanner.hasNext()){
-					String name = scanner.next();
-					if (!groupRepository.findByName(name).isPresent()) {
-						try {
-							groupRepository.save(new GroupEntity(
-									groupType,
-									name,
-									String.format(format, name)
-							));
-						} catch (DataIntegrityViolationException ignored) {
-							System.err.println("Save failed for " + name);
-						}
-					}
-				}
-			} finally {
-				loaded = true;
-			}
-		}
-
+		groupCatalog.sync(STATIC_MAJORS_TXT, GroupType.STUDENT_MAJOR, "%s is a major at ISU.");
+		groupCatalog.sync(STATIC_COLLEGES_TXT, GroupType.COLLEGE, "%s is a college at ISU.");
+		cache.invalidate();
 	}
 
 	protected Optional<GroupEntity> getGroupByID(Long id) {
@@ -76,11 +56,20 @@ public class GroupService {
 	}
 
 	protected Iterable<GroupEntity> getAllGroups() {
-		return groupRepository.findAll();
+		return cache.getAll();
+	}
+
+	/**
+	 * @return the JSON array of all groups, served from the reference-data cache.
+	 */
+	protected CachedJson getAllGroupsJson() {
+		return cache.getJson();
 	}
 
 	protected GroupEntity saveUpdatedGroup(GroupEntity valuesToUpdate, GroupEntity group) {
-		return groupRepository.save(group.updateContents(valuesToUpdate));
+		GroupEntity saved = groupRepository.save(group.updateContents(valuesToUpdate));
+		cache.invalidate();
+		return saved;
 	}
 
 	protected Optional<GroupEntity> deleteGroupById(Long id) throws CloneNotSupportedException {
@@ -88,6 +77,7 @@ public class GroupService {
 		if (optionalGroup.isPresent()) {
 			GroupEntity deleted = optionalGroup.get().clone();
 			groupRepository.delete(optionalGroup.get());                         //2
+			cache.invalidate();
 			return Optional.of(deleted);
 		}
 		return Optional.empty();
@@ -98,10 +88,10 @@ public class GroupService {
 		try {
 			// Treat it as a Long first (id)
 			Long id = Long.parseLong(identifier);
-			optionalGroup = groupRepository.findById(id);     // 1
+			optionalGroup = cache.getById(id);
 		} catch (NumberFormatException e) {
 			// If it is not a long, treat it as a String (name)
-			optionalGroup = groupRepository.findByName(identifier);   // 1
+			optionalGroup = cache.getByName(identifier);
 		}
 		return optionalGroup;
 	}
@@ -112,11 +102,22 @@ public class GroupService {
 		if (groupRepository.findByName(newGroupEntity.getName()).isPresent()) {              //1
 			return Optional.empty();
 		} else {
-			return Optional.of(groupRepository.save(newGroupEntity));
+			GroupEntity saved = groupRepository.save(newGroupEntity);
+			cache.invalidate();
+			return Optional.of(saved);
 		}
 	}
 
 	protected Iterable<GroupEntity> getGroupsByType(GroupType type) {
-		return groupRepository.findAllByGroupType(type);
+		return cache.getAll().stream().filter(group -> group.groupType == type).collect(Collectors.toList());
+	}
+
+	/**
+	 * @param type the type of the groups to return
+	 *
+	 * @return the JSON array of all groups of the given type, served from the reference-data cache.
+	 */
+	protected CachedJson getGroupsByTypeJson(GroupType type) {
+		return cache.getJson(type.name(), group -> group.groupType == type);
 	}
 }
\ No newline at end of file
@@ -1,10 +1,12 @@
 package com.yjohnson.backend.entities.Interest;
 
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -16,9 +18,11 @@ import java.util.Optional;
 @RequestMapping(path = "/interests")
 public class InterestController {
 	private final InterestService interestService;
+	private final long catalogMaxAge;
 
-	public InterestController(InterestService interestService) {
+	public InterestController(InterestService interestService, @Value("${cybuds.catalog.max-age-seconds:60}") long catalogMaxAge) {
 		this.interestService = interestService;
+		this.catalogMaxAge = catalogMaxAge;
 	}
 
 	/**
@@ -145,11 +149,17 @@ public class InterestController {
 	/**
 	 * Retrieves all the {@code InterestEntity} objects in the database.
 	 *
-	 * @return all the interests in the database
+	 * @return all the interests in the database, tagged with the version of the catalog; 304 Not Modified if {@code If-None-Match} holds that tag
 	 */
 	@Operation(summary = "Gets all interests")
+	@ApiResponses(value = {
+			@ApiResponse(responseCode = "200", description = "Got the interests", content = {
+					@Content(mediaType = "application/json", array = @ArraySchema(schema = @Schema(implementation = InterestEntity.class)))
+			}),
+			@ApiResponse(responseCode = "304", description = "The interests did not change since the tag in If-None-Match")
+	})
 	@GetMapping
-	public Iterable<InterestEntity> retrieveAll() {
-		return interestService.getAllInterests();
+	public ResponseEntity<byte[]> retrieveAll() {
+		return interestService.getAllInterestsJson().toResponse(catalogMaxAge);
 	}
 }
\ No newline at end of file
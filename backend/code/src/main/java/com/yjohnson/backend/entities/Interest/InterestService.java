@@ -1,5 +1,8 @@
 package com.yjohnson.backend.entities.Interest;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yjohnson.backend.cache.CachedJson;
+import com.yjohnson.backend.cache.ReferenceDataCache;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 
@@ -8,9 +11,11 @@ import java.util.Optional;
 @Service
 public class InterestService {
 	private final InterestRepository interestRepository;
+	private final ReferenceDataCache<InterestEntity> cache;
 
-	public InterestService(InterestRepository interestRepository) {
+	public InterestService(InterestRepository interestRepository, ObjectMapper objectMapper) {
 		this.interestRepository = interestRepository;
+		this.cache = new ReferenceDataCache<>(objectMapper, interestRepository::findAll, InterestEntity::getId, InterestEntity::getName);
 	}
 
 	protected Optional<InterestEntity> getInterestByID(Long id) {
@@ -18,11 +23,20 @@ public class InterestService {
 	}
 
 	protected Iterable<InterestEntity> getAllInterests() {
-		return interestRepository.findAll();
+		return cache.getAll();
+	}
+
+	/**
+	 * @return the JSON array of all interests, served from the reference-data cache.
+	 */
+	protected CachedJson getAllInterestsJson() {
+		return cache.getJson();
 	}
 
 	protected InterestEntity saveUpdatedInterest(InterestEntity valuesToUpdate, InterestEntity interest) {
-		return interestRepository.save(interest.updateContents(valuesToUpdate));
+		InterestEntity saved = interestRepository.save(interest.updateContents(valuesToUpdate));
+		cache.invalidate();
+		return saved;
 	}
 
 	protected Optional<InterestEntity> deleteInterestById(Long id) throws CloneNotSupportedException {
@@ -30,6 +44,7 @@ public class InterestService {
 		if (optionalInterest.isPresent()) {
 			InterestEntity deleted = optionalInterest.get().clone();
 			interestRepository.delete(optionalInterest.get());                         //2
+			cache.invalidate();
 			return Optional.of(deleted);
 		}
 		return Optional.empty();
@@ -40,10 +55,10 @@ public class InterestService {
 		try {
 			// Treat it as a Long first (id)
 			Long id = Long.parseLong(identifier);
-			optionalInterest = interestRepository.findById(id);     // 1
+			optionalInterest = cache.getById(id);
 		} catch (NumberFormatException e) {
 			// If it is not a long, treat it as a String (name)
-			optionalInterest = interestRepository.findByName(identifier);   // 1
+			optionalInterest = cache.getByName(identifier);
 		}
 		return optionalInterest;
 	}
@@ -54,7 +69,9 @@ public class InterestService {
 		if (interestRepository.findByName(newInterestEntity.getName()).isPresent()) {              //1
 			return Optional.empty();
 		} else {
-			return Optional.of(interestRepository.save(newInterestEntity));
+			InterestEntity saved = interestRepository.save(newInterestEntity);
+			cache.invalidate();
+			return Optional.of(saved);
 		}
 	}
 }
\ No newline at end of file
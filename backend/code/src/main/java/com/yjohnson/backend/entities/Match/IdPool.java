@@ -0,0 +1,78 @@
+package com.yjohnson.backend.entities.Match;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * A set of user IDs stored in a dense array, so that a uniformly random member can be picked in constant time. Removing an ID moves the last ID
+ * into its place, which keeps insertion and removal constant-time as well. All methods are synchronized on the pool.
+ */
+final class IdPool {
+	static final IdPool EMPTY = new IdPool();
+
+	private final Map<Long, Integer> positions = new HashMap<>();
+	private long[] ids = new long[4];
+	private int size;
+
+	synchronized boolean add(long id) {
+		if (positions.putIfAbsent(id, size) != null) return false;
+		if (size == ids.length) {
+			long[] grown = new long[size * 2];
+			System.arraycopy(ids, 0, grown, 0, size);
+			ids = grown;
+		}
+		ids[size++] = id;
+		return true;
+	}
+
+	synchronized boolean remove(long id) {
+		Integer position = positions.remove(id);
+		if (position == null) return false;
+		long last = ids[--size];
+		if (position != size) {
+			ids[position] = last;
+			positions.put(last, position);
+		}
+		return true;
+	}
+
+	synchronized int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the ID stored at the given position. Positions change as IDs are removed, so this is only meant for sampling.
+	 *
+	 * @param index the position to read
+	 *
+	 * @return the ID at that position, or {@code null} if the pool has shrunk below it.
+	 */
+	synchronized Long get(int index) {
+		return index < size ? ids[index] : null;
+	}
+
+	/**
+	 * Picks a uniformly random member other than the given one.
+	 *
+	 * @param random  the source of randomness
+	 * @param exclude the ID that must not be picked
+	 *
+	 * @return a random member, or {@code null} if there is none besides {@code exclude}.
+	 */
+	synchronized Long sample(Random random, long exclude) {
+		Integer excluded = positions.get(exclude);
+		int candidates = excluded == null ? size : size - 1;
+		if (candidates <= 0) return null;
+		int index = random.nextInt(candidates);
+		if (excluded != null && index >= excluded) ++index;
+		return ids[index];
+	}
+
+	synchronized void addTo(Collection<Long> into) {
+		for (int i = 0; i < size; ++i) {
+			into.add(ids[i]);
+		}
+	}
+}
@@ -0,0 +1,49 @@
+package com.yjohnson.backend.entities.Match;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/match/cache")
+public class MatchCacheController {
+	private final MatchResultCache matchResultCache;
+
+	public MatchCacheController(MatchResultCache matchResultCache) {
+		this.matchResultCache = matchResultCache;
+	}
+
+	/**
+	 * Returns the size and the hit, miss, eviction, expiration and invalidation counters of the match result cache.
+	 *
+	 * @return the current cache statistics.
+	 */
+	@Operation(summary = "Returns the statistics of the match result cache.")
+	@ApiResponses(value = {
+			@ApiResponse(responseCode = "200", description = "Returned the statistics", content = {
+					@Content(mediaType = "application/json", schema = @Schema(implementation = MatchResultCache.Stats.class))
+			}),
+	})
+	@GetMapping()
+	public ResponseEntity<MatchResultCache.Stats> getStats() {
+		return new ResponseEntity<>(matchResultCache.getStats(), HttpStatus.OK);
+	}
+
+	@Operation(summary = "Empties the match result cache.")
+	@ApiResponses(value = {
+			@ApiResponse(responseCode = "204", description = "Emptied the cache"),
+	})
+	@DeleteMapping()
+	public ResponseEntity<?> clear() {
+		matchResultCache.clear();
+		return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+	}
+}
@@ -3,35 +3,64 @@ package com.yjohnson.backend.entities.Match;
 import com.yjohnson.backend.entities.Group.GroupType;
 import com.yjohnson.backend.entities.User.User;
 import com.yjohnson.backend.entities.User.UserService;
+import com.yjohnson.backend.json.SparseFieldset;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
 
 @RestController
 @RequestMapping("/users/{id}/match")
 public class MatchController {
+	static final int MAX_PAGE_SIZE = 500;
+
 	private final UserService userService;
 	private final MatchService matchService;
+	private final MatchStreamer matchStreamer;
 
-	public MatchController(UserService userService, MatchService matchService) {
+	public MatchController(UserService userService, MatchService matchService, MatchStreamer matchStreamer) {
 		this.userService = userService;
 		this.matchService = matchService;
+		this.matchStreamer = matchStreamer;
 	}
 
 	/**
-	 * Returns an ordered list of all user IDs in descending order of match score.
+	 * Returns an ordered list of all user IDs in descending order of match score. Only users that share at least one interest, group or the
+	 * classification with the current user are scored.
+	 * <p>
+	 * When a {@code limit} is given, only the best {@code limit} matches are ranked and returned, without storing or deleting any match. Matches
+	 * that were stored before are read as they are, since their scores are kept up to date; {@code refresh} forces them to be recomputed.
+	 * {@code parallel} overrides whether candidates are scored in parallel.
+	 * <p>
+	 * With {@code approximate}, only the candidates found by the {@link MinHashIndex} are scored, which trades recall for latency on large
+	 * populations. Approximate matches are returned without being stored.
+	 * <p>
+	 * With {@code fields}, only the given fields of every match are returned, e.g. {@code score,matched_user.firstName}. Users are named field by
+	 * field. Without a {@code limit}, only those columns are read from the database.
 	 *
-	 * @param id the user ID of the current user
+	 * @param id          the user ID of the current user
+	 * @param limit       the maximum number of matches to return
+	 * @param refresh     whether to recompute stored matches
+	 * @param parallel    whether to score candidates in parallel
+	 * @param approximate whether to only score the candidates found by locality-sensitive hashing
+	 * @param fields      the comma-separated fields to return; all fields by default
 	 *
 	 * @return an ordered descending list of the users that match the most with the current user.
 	 */
@@ -40,16 +69,46 @@ public class MatchController {
 			@ApiResponse(responseCode = "200", description = "Matched the user", content = {
 					@Content(mediaType = "application/json", schema = @Schema(implementation = User.class))
 			}),
-			@ApiResponse(responseCode = "400", description = "Missing parameter"),
+			@ApiResponse(responseCode = "400", description = "Missing or invalid parameter"),
 			@ApiResponse(responseCode = "404", description = "Not found"),
 	})
 	@GetMapping()
-	public ResponseEntity<?> matchUser(@PathVariable Optional<Long> id) {
+	public ResponseEntity<?> matchUser(@PathVariable Optional<Long> id, @RequestParam Optional<Integer> limit,
+	                                   @RequestParam(defaultValue = "false") boolean refresh, @RequestParam Optional<Boolean> parallel,
+	                                   @RequestParam(defaultValue = "false") boolean approximate, @RequestParam Optional<String> fields) {
 		if (id.isPresent()) {
+			if (limit.isPresent() && limit.get() <= 0) return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+			Optional<SparseFieldset> fieldset;
+			try {
+				fieldset = SparseFieldset.parse(fields, MatchEntity.FIELDS.keySet(), MatchEntity.NESTED_FIELDS);
+			} catch (IllegalArgumentException e) {
+				return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+			}
 			Optional<User> optionalCurrentUser = userService.getUserByID(id.get());
 			if (optionalCurrentUser.isPresent()) {
+				boolean inParallel = parallel.orElse(matchService.isParallelByDefault());
+				if (approximate) {
+					return new ResponseEntity<>(
+							filter(matchService.matchUserApproximate(optionalCurrentUser.get(), limit.orElse(Integer.MAX_VALUE), inParallel), fieldset),
+							HttpStatus.OK
+					);
+				}
+				if (limit.isPresent()) {
+					return new ResponseEntity<>(
+							filter(matchService.matchUserTopK(optionalCurrentUser.get(), limit.get(), inParallel), fieldset),
+							HttpStatus.OK
+					);
+				}
+				if (fieldset.isPresent()) {
+					return new ResponseEntity<>(
+							matchService.matchUserFields(optionalCurrentUser.get(), fieldset.get(), refresh, inParallel),
+							HttpStatus.OK
+					);
+				}
 				return new ResponseEntity<>(
-						matchService.matchUser(optionalCurrentUser.get(), userService.getAllUsersFromDB()),
+						refresh
+								? matchService.refreshMatches(optionalCurrentUser.get(), inParallel)
+								: matchService.matchUser(optionalCurrentUser.get(), inParallel),
 						HttpStatus.OK
 				);
 			}
@@ -58,11 +117,94 @@ public class MatchController {
 		return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
 	}
 
+	/**
+	 * Returns the matches of the current user one page at a time, in descending order of match score. Pages are keyed on the score and ID of the
+	 * last match returned, so every page costs the same no matter how deep it is.
+	 *
+	 * @param id     the user ID of the current user
+	 * @param limit  the maximum number of matches per page, at most {@value #MAX_PAGE_SIZE}
+	 * @param cursor the {@code next_cursor} of the previous page; omitted for the first page
+	 * @param fields the comma-separated fields of the matches to select and return; all fields by default
+	 *
+	 * @return a page of matches and the cursor of the next page, which is null on the last page.
+	 */
+	@Operation(summary = "Returns one page of a user's matches.")
+	@ApiResponses(value = {
+			@ApiResponse(responseCode = "200", description = "Returned the page", content = {
+					@Content(mediaType = "application/json", schema = @Schema(implementation = MatchPage.class))
+			}),
+			@ApiResponse(responseCode = "400", description = "Missing or invalid parameter"),
+			@ApiResponse(responseCode = "404", description = "Not found"),
+	})
+	@GetMapping("/page")
+	public ResponseEntity<?> matchUserPage(@PathVariable Optional<Long> id, @RequestParam(defaultValue = "50") int limit,
+	                                       @RequestParam Optional<String> cursor, @RequestParam Optional<String> fields) {
+		if (id.isPresent()) {
+			if (limit <= 0 || limit > MAX_PAGE_SIZE) return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+			MatchCursor after = null;
+			Optional<SparseFieldset> fieldset;
+			try {
+				if (cursor.isPresent()) after = MatchCursor.decode(cursor.get());
+				fieldset = SparseFieldset.parse(fields, MatchEntity.FIELDS.keySet(), MatchEntity.NESTED_FIELDS);
+			} catch (IllegalArgumentException e) {
+				return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+			}
+			Optional<User> optionalCurrentUser = userService.getUserByID(id.get());
+			if (optionalCurrentUser.isPresent()) {
+				if (fieldset.isPresent()) {
+					return new ResponseEntity<>(matchService.matchUserPageFields(optionalCurrentUser.get(), after, limit, fieldset.get()), HttpStatus.OK);
+				}
+				return new ResponseEntity<>(matchService.matchUserPage(optionalCurrentUser.get(), after, limit), HttpStatus.OK);
+			}
+			return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+		}
+		return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+	}
+
+	/**
+	 * Streams the matches of the current user in descending order of match score, writing them as they are read instead of in a single response.
+	 * Matches are framed as newline-delimited JSON, or as server-sent events when {@code format} is {@code SSE} or the client accepts
+	 * {@code text/event-stream}. A user without stored matches is ranked in memory and the scores are stored after the last match is written.
+	 *
+	 * @param id     the user ID of the current user
+	 * @param format the framing of the matches, {@code NDJSON} or {@code SSE}
+	 * @param accept the media types accepted by the client
+	 *
+	 * @return a streamed response of the users that match the most with the current user.
+	 */
+	@Operation(summary = "Streams a user's matches as NDJSON or server-sent events.")
+	@ApiResponses(value = {
+			@ApiResponse(responseCode = "200", description = "Streaming the matches", content = {
+					@Content(mediaType = "application/x-ndjson", schema = @Schema(implementation = MatchEntity.class)),
+					@Content(mediaType = "text/event-stream", schema = @Schema(implementation = MatchEntity.class))
+			}),
+			@ApiResponse(responseCode = "400", description = "Missing or invalid parameter"),
+			@ApiResponse(responseCode = "404", description = "Not found"),
+	})
+	@GetMapping("/stream")
+	public ResponseEntity<StreamingResponseBody> streamMatches(@PathVariable Optional<Long> id, @RequestParam Optional<MatchStreamer.Format> format,
+	                                       @RequestHeader(value = HttpHeaders.ACCEPT, defaultValue = "") String accept) {
+		if (id.isPresent()) {
+			Optional<User> optionalCurrentUser = userService.getUserByID(id.get());
+			if (optionalCurrentUser.isPresent()) {
+				MatchStreamer.Format resolved = format.orElse(
+						accept.contains(MediaType.TEXT_EVENT_STREAM_VALUE) ? MatchStreamer.Format.SSE : MatchStreamer.Format.NDJSON);
+				HttpHeaders headers = new HttpHeaders();
+				headers.setContentType(MediaType.parseMediaType(resolved.getMediaType()));
+				headers.setCacheControl(CacheControl.noCache());
+				return new ResponseEntity<>(matchStreamer.stream(optionalCurrentUser.get(), resolved), headers, HttpStatus.OK);
+			}
+			return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+		}
+		return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+	}
+
 	/**
 	 * Returns an ordered list of all user IDs that conform to the chosen constraint in descending order of match score.
 	 *
 	 * @param id     the user ID of the current user
 	 * @param choice the constraint to match against
+	 * @param fields the comma-separated fields of the matches to return; all fields by default
 	 *
 	 * @return an ordered descending list of the users that match the most with the current user.
 	 */
@@ -71,16 +213,23 @@ public class MatchController {
 			@ApiResponse(responseCode = "200", description = "Matched the user", content = {
 					@Content(mediaType = "application/json", schema = @Schema(implementation = User.class))
 			}),
-			@ApiResponse(responseCode = "400", description = "Missing parameter"),
+			@ApiResponse(responseCode = "400", description = "Missing parameter or unknown field"),
 			@ApiResponse(responseCode = "404", description = "Not found"),
 	})
 	@GetMapping("/{choice}")
-	public ResponseEntity<?> matchUserByChoice(@PathVariable Optional<Long> id, @PathVariable GroupType choice) {
+	public ResponseEntity<?> matchUserByChoice(@PathVariable Optional<Long> id, @PathVariable GroupType choice,
+	                                           @RequestParam Optional<String> fields) {
 		if (id.isPresent()) {
+			Optional<SparseFieldset> fieldset;
+			try {
+				fieldset = SparseFieldset.parse(fields, MatchEntity.FIELDS.keySet(), MatchEntity.NESTED_FIELDS);
+			} catch (IllegalArgumentException e) {
+				return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+			}
 			Optional<User> optionalCurrentUser = userService.getUserByID(id.get());
 			if (optionalCurrentUser.isPresent()) {
 				return new ResponseEntity<>(
-						matchService.matchUserByChoice(choice, optionalCurrentUser.get(), userService.getAllUsersFromDB()),
+						filter(matchService.matchUserByChoice(choice, optionalCurrentUser.get()), fieldset),
 						HttpStatus.OK
 				);
 			}
@@ -95,17 +244,23 @@ public class MatchController {
 					@Content(mediaType = "application/json", schema = @Schema(implementation = User.class))
 			}),
 			@ApiResponse(responseCode = "204", description = "No match found"),
-			@ApiResponse(responseCode = "400", description = "Missing parameter"),
+			@ApiResponse(responseCode = "400", description = "Missing parameter or unknown field"),
 			@ApiResponse(responseCode = "404", description = "Not found"),
 	})
 	@GetMapping("/random")
-	public ResponseEntity<?> randomMatch(@PathVariable Optional<Long> id) {
+	public ResponseEntity<?> randomMatch(@PathVariable Optional<Long> id, @RequestParam Optional<String> fields) {
 		if (id.isPresent()) {
+			Optional<SparseFieldset> fieldset;
+			try {
+				fieldset = SparseFieldset.parse(fields, User.FIELDS, Collections.emptyMap());
+			} catch (IllegalArgumentException e) {
+				return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+			}
 			Optional<User> optionalCurrentUser = userService.getUserByID(id.get());
-			Iterable<User> allUsers = userService.getAllUsersFromDB();
 			if (optionalCurrentUser.isPresent()) {
-				return matchService.matchUserRandomly(optionalCurrentUser.get(), allUsers)
-				                   .map(selected -> new ResponseEntity<>(selected, HttpStatus.OK))
+				return matchService.matchUserRandomly(optionalCurrentUser.get())
+				                   .map(selected -> new ResponseEntity<Object>(fieldset.isPresent() ? fieldset.get().apply(selected) : selected,
+				                                                               HttpStatus.OK))
 				                   .orElseGet(() -> new ResponseEntity<>(HttpStatus.NO_CONTENT));
 			}
 			return new ResponseEntity<>(HttpStatus.NOT_FOUND);
@@ -118,22 +273,34 @@ public class MatchController {
 			@ApiResponse(responseCode = "200", description = "Matched the user", content = {
 					@Content(mediaType = "application/json", schema = @Schema(implementation = User.class))
 			}),
-			@ApiResponse(responseCode = "400", description = "Missing parameter"),
+			@ApiResponse(responseCode = "204", description = "No match found"),
+			@ApiResponse(responseCode = "400", description = "Missing parameter or unknown field"),
 			@ApiResponse(responseCode = "404", description = "Not found"),
 	})
 	@GetMapping("/random/{choice}")
-	public ResponseEntity<?> matchUserRandomlyByChoice(@PathVariable Optional<Long> id, @PathVariable GroupType choice) {
+	public ResponseEntity<?> matchUserRandomlyByChoice(@PathVariable Optional<Long> id, @PathVariable GroupType choice,
+	                                                   @RequestParam Optional<String> fields) {
 		if (id.isPresent()) {
+			Optional<SparseFieldset> fieldset;
+			try {
+				fieldset = SparseFieldset.parse(fields, User.FIELDS, Collections.emptyMap());
+			} catch (IllegalArgumentException e) {
+				return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+			}
 			Optional<User> optionalCurrentUser = userService.getUserByID(id.get());
 			if (optionalCurrentUser.isPresent()) {
-				return new ResponseEntity<>(
-						matchService.matchUserRandomlyByChoice(choice, optionalCurrentUser.get(), userService.getAllUsersFromDB()),
-						HttpStatus.OK
-				);
+				return matchService.matchUserRandomlyByChoice(choice, optionalCurrentUser.get())
+				                   .map(selected -> new ResponseEntity<Object>(fieldset.isPresent() ? fieldset.get().apply(selected) : selected,
+				                                                               HttpStatus.OK))
+				                   .orElseGet(() -> new ResponseEntity<>(HttpStatus.NO_CONTENT));
 			}
 			return new ResponseEntity<>(HttpStatus.NOT_FOUND);
 		}
 		return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
 	}
 
+	private static Object filter(List<MatchEntity> matches, Optional<SparseFieldset> fieldset) {
+		return fieldset.isPresent() ? fieldset.get().apply(matches) : matches;
+	}
+
 }
\ No newline at end of file
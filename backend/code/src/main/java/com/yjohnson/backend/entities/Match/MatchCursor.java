@@ -0,0 +1,56 @@
+package com.yjohnson.backend.entities.Match;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Base64;
+
+/**
+ * Position of a match in the ranking of a matcher's matches, i.e. the {@code (score, matchee_id)} key of the last match of a page. Clients only
+ * ever see it as an opaque, URL-safe token; the next page starts right after it.
+ */
+public final class MatchCursor {
+	private static final int LENGTH = Integer.BYTES + Long.BYTES;
+
+	private final int score;
+	private final long matcheeId;
+
+	public MatchCursor(int score, long matcheeId) {
+		this.score = score;
+		this.matcheeId = matcheeId;
+	}
+
+	public static MatchCursor after(MatchEntity match) {
+		return new MatchCursor(match.getScore(), match.getMatchee().getId());
+	}
+
+	/**
+	 * Decodes a token created by {@link #encode()}.
+	 *
+	 * @param token the token to decode
+	 *
+	 * @return the decoded cursor.
+	 *
+	 * @throws IllegalArgumentException if the token was not created by {@link #encode()}.
+	 */
+	public static MatchCursor decode(String token) {
+		try {
+			ByteBuffer buffer = ByteBuffer.wrap(Base64.getUrlDecoder().decode(token));
+			if (buffer.remaining() != LENGTH) throw new IllegalArgumentException("Invalid cursor");
+			return new MatchCursor(buffer.getInt(), buffer.getLong());
+		} catch (BufferUnderflowException e) {
+			throw new IllegalArgumentException("Invalid cursor", e);
+		}
+	}
+
+	public String encode() {
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(ByteBuffer.allocate(LENGTH).putInt(score).putLong(matcheeId).array());
+	}
+
+	public int getScore() {
+		return score;
+	}
+
+	public long getMatcheeId() {
+		return matcheeId;
+	}
+}
@@ -0,0 +1,121 @@
+package com.yjohnson.backend.entities.Match;
+
+import com.yjohnson.backend.entities.User.User;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Keeps stored match scores fresh as users change. When a user's interests, groups or classification change, only the users that share one of
+ * the added or removed features can have a different score against it; those pairs are rescored from the {@link UserFeatureIndex} and written
+ * back in both directions, so no full {@code matchUser} recomputation is needed.
+ * <p>
+ * Only match lists that have been stored already are maintained: the changed user's own list if it has one, and the lists of affected users that
+ * have matched before. Pairs that start overlapping are added to those lists.
+ * <p>
+ * This relies on every stored list being complete, i.e. holding a row for every user that overlaps its matcher, as written by
+ * {@link MatchService#refreshMatches(User, boolean)}. Top-K, approximate and lazily ranked matches are never stored, so no stored list is
+ * capped, and adding a pair keeps a list complete instead of pushing it past a bound.
+ */
+@Service
+public class MatchDeltaService {
+	private final MatchRepository matchRepository;
+	private final UserFeatureIndex featureIndex;
+	private final MinHashIndex minHashIndex;
+	private final MatchResultCache matchResultCache;
+
+	public MatchDeltaService(MatchRepository matchRepository, UserFeatureIndex featureIndex, MinHashIndex minHashIndex,
+	                         MatchResultCache matchResultCache) {
+		this.matchRepository = matchRepository;
+		this.featureIndex = featureIndex;
+		this.minHashIndex = minHashIndex;
+		this.matchResultCache = matchResultCache;
+	}
+
+	/**
+	 * Reindexes the given user and rescores the stored matches affected by the change. Must be called after a user's classification, interests or
+	 * groups have changed, or after a user was registered.
+	 *
+	 * @param user the user that changed
+	 */
+	public void onUserChanged(User user) {
+		UserFeatureIndex.UserFeatures before = featureIndex.update(user);
+		UserFeatureIndex.UserFeatures after = featureIndex.featuresOf(user);
+		minHashIndex.put(user.getId(), after);
+		Set<Long> affected = featureIndex.usersAffectedBy(user.getId(), before, after);
+		matchResultCache.invalidate(user.getId(), affected);
+		if (affected.isEmpty()) return;
+
+		/* The score is symmetric, so the same values serve both directions */
+		List<ScoredCandidate> scores = new ArrayList<>(affected.size());
+		for (Long id : affected) {
+			scores.add(new ScoredCandidate(id, featureIndex.score(user, id)));
+		}
+
+		Map<Long, Long> own = matchRepository.findMatchIdsByMatcher(user.getId());
+		if (!own.isEmpty()) matchRepository.upsertScores(user.getId(), scores, own);
+
+		Set<Long> matchers = matchRepository.findMatchersAmong(affected);
+		if (matchers.isEmpty()) return;
+		List<ScoredCandidate> reverse = new ArrayList<>(matchers.size());
+		for (ScoredCandidate c : scores) {
+			if (matchers.contains(c.getUserId())) reverse.add(c);
+		}
+		matchRepository.upsertScoresAgainst(user.getId(), reverse, matchRepository.findMatchIdsByMatchee(user.getId()));
+	}
+
+	/**
+	 * Indexes newly created users and adds them to the stored match lists that they now belong in, with the same result as calling
+	 * {@link #onUserChanged(User)} for each of them. The users must be new: they have no stored matches of their own and appear in no stored list
+	 * yet. A new user affects every user of its classification, so instead of collecting those per user, the few users with stored lists are read
+	 * once and scored against each new user, and the result cache is cleared once for the whole batch.
+	 *
+	 * @param users the users that were created
+	 */
+	public void onUsersAdded(Collection<User> users) {
+		for (User user : users) {
+			featureIndex.update(user);
+			minHashIndex.put(user.getId(), featureIndex.featuresOf(user));
+		}
+		matchResultCache.clear();
+
+		Set<Long> matchers = matchRepository.findAllMatchers();
+		if (matchers.isEmpty()) return;
+		for (User user : users) {
+			/* A positive score means the user shares a feature with the matcher, i.e. the matcher is affected by it */
+			List<ScoredCandidate> reverse = new ArrayList<>();
+			for (Long id : matchers) {
+				int score = featureIndex.score(user, id);
+				if (score > 0 && !id.equals(user.getId())) reverse.add(new ScoredCandidate(id, score));
+			}
+			matchRepository.upsertScoresAgainst(user.getId(), reverse, Collections.emptyMap());
+		}
+	}
+
+	/**
+	 * Makes both indexes fill in every user from the database before they are next read, and drops every cached result. Must be called when users
+	 * were saved but could not be indexed, e.g. because {@link #onUsersAdded(Collection)} failed. Stored match lists that missed such users get
+	 * them on their next refresh.
+	 */
+	public void markIndexesStale() {
+		featureIndex.markStale();
+		minHashIndex.markStale();
+		matchResultCache.clear();
+	}
+
+	/**
+	 * Removes a deleted user from the indexes and drops the cached results that list it.
+	 *
+	 * @param userId the ID of the deleted user
+	 */
+	public void onUserRemoved(Long userId) {
+		matchResultCache.invalidate(userId, Collections.emptySet());
+		featureIndex.remove(userId);
+		minHashIndex.remove(userId);
+	}
+}
@@ -1,24 +1,58 @@
 package com.yjohnson.backend.entities.Match;
 
+import com.fasterxml.jackson.annotation.JsonFilter;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.yjohnson.backend.entities.DB_Relations.R_UserInterest;
 import com.yjohnson.backend.entities.Group.GroupEntity;
 import com.yjohnson.backend.entities.User.User;
+import com.yjohnson.backend.entities.User.UserSummary;
+import com.yjohnson.backend.json.SparseFieldset;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
 
 import javax.persistence.*;
 import java.io.Serializable;
 import java.time.LocalDateTime;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.*;
 
 @Table(
 		name = "match_entity",
 		uniqueConstraints = {
 				@UniqueConstraint(columnNames = {"matcher_id", "matchee_id"})
+		},
+		indexes = {
+				/* Ranks a matcher's matches; holds every column of the table so pages never touch the clustered index */
+				@Index(name = "idx_match_ranking", columnList = "matcher_id, score DESC, matchee_id, confirmed, lastUpdated")
 		}
 )
 @Entity(name = "MatchEntity")
+@JsonFilter(SparseFieldset.FILTER)
 public class MatchEntity implements Serializable {
+	/**
+	 * The fields a client may ask for by name in a {@code fields} parameter, mapped to their JPQL attributes.
+	 */
+	public static final Map<String, String> FIELDS;
+	/**
+	 * The users of a match, whose fields may be asked for as a path such as {@code matched_user.firstName}.
+	 */
+	public static final Map<String, Set<String>> NESTED_FIELDS;
+	static final String ID_SEQUENCE = "match_entity_seq";
+
+	static {
+		Map<String, String> fields = new HashMap<>();
+		fields.put("id", "id");
+		fields.put("score", "score");
+		fields.put("confirmed", "confirmed");
+		fields.put("last_updated", "lastUpdated");
+		fields.put("matching_user", "matcher");
+		fields.put("matched_user", "matchee");
+		FIELDS = Collections.unmodifiableMap(fields);
+		Map<String, Set<String>> nested = new HashMap<>();
+		nested.put("matching_user", UserSummary.FIELDS);
+		nested.put("matched_user", UserSummary.FIELDS);
+		NESTED_FIELDS = Collections.unmodifiableMap(nested);
+	}
+
 	@ManyToOne
 	@JsonProperty("matching_user")
 	private User matcher;
@@ -32,8 +66,15 @@ public class MatchEntity implements Serializable {
 
 	private boolean confirmed;
 
+	/* Upserts write a match per candidate, so IDs are taken from the table in blocks instead of one round trip each */
 	@Id
-	@GeneratedValue(strategy = GenerationType.AUTO)
+	@GeneratedValue(generator = ID_SEQUENCE)
+	@GenericGenerator(name = ID_SEQUENCE, strategy = "enhanced-sequence", parameters = {
+			@Parameter(name = "sequence_name", value = ID_SEQUENCE),
+			@Parameter(name = "force_table_use", value = "true"),
+			@Parameter(name = "increment_size", value = "1000"),
+			@Parameter(name = "optimizer", value = "pooled-lo")
+	})
 	private Long id;
 
 	public MatchEntity(User matcher, User matchee, int score, boolean confirmed) {
@@ -100,6 +141,14 @@ public class MatchEntity implements Serializable {
 	public MatchEntity() {
 	}
 
+	/* A detached copy with the same values; the users are shared, changes to the copy's own fields never reach this match */
+	MatchEntity copy() {
+		MatchEntity copy = new MatchEntity(matcher, matchee, score, confirmed);
+		copy.lastUpdated = lastUpdated;
+		copy.id = id;
+		return copy;
+	}
+
 	public int getScore() {
 		return score;
 	}
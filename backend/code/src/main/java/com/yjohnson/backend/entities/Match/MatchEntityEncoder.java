@@ -1,28 +1,39 @@
 package com.yjohnson.backend.entities.Match;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 
 import javax.websocket.EncodeException;
 import javax.websocket.Encoder;
 import javax.websocket.EndpointConfig;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes a match to the match WebSocket as a {@link MatchMessage}.
+ * <p>
+ * Every session shares one {@link ObjectWriter}, which is configured once and is immutable and thread-safe, so its serializers are built for
+ * the first message only. The JSON is written straight to the container's message writer, with Jackson's recycled buffers, instead of being
+ * built up into a string first.
+ */
+public class MatchEntityEncoder implements Encoder.TextStream<MatchEntity> {
+	static final ObjectWriter WRITER = new ObjectMapper()
+			.registerModule(new JavaTimeModule())
+			.configure(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, false)
+			.writerFor(MatchMessage.class)
+			/* The container closes the writer, which ends the message */
+			.without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
 
-public class MatchEntityEncoder implements Encoder.Text<MatchEntity> {
 	@Override
-	public String encode(MatchEntity matchEntity) throws EncodeException {
-		ObjectMapper om = new ObjectMapper()
-				.registerModule(new JavaTimeModule())
-				.configure(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, false)
-				.enable(DeserializationFeature.ACCEPT_SINGLE_VALUE_AS_ARRAY);
-
+	public void encode(MatchEntity matchEntity, Writer writer) throws EncodeException, IOException {
 		try {
-			return om.writeValueAsString(matchEntity);
+			WRITER.writeValue(writer, MatchMessage.of(matchEntity));
 		} catch (JsonProcessingException e) {
-			System.err.println(e);
-			throw new EncodeException(matchEntity, "Could not encode.");
+			throw new EncodeException(matchEntity, "Could not encode.", e);
 		}
 	}
 
@@ -35,4 +46,4 @@ public class MatchEntityEncoder implements Encoder.Text<MatchEntity> {
 	public void destroy() {
 
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,33 @@
+package com.yjohnson.backend.entities.Match;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+
+/**
+ * Keeps the sequence that match IDs are reserved from ahead of the stored matches. Matches used to take their IDs from the sequence shared by
+ * every entity, so on a database that has matches from that time the sequence of their own starts at IDs that are taken, and an upsert would
+ * overwrite the match that holds the ID.
+ */
+@Component
+class MatchIdSequence {
+	private static final String SKIP_TAKEN_IDS = "UPDATE " + MatchEntity.ID_SEQUENCE + " SET next_val = " +
+			"(SELECT COALESCE(MAX(id), 0) + 1 FROM match_entity) WHERE next_val <= (SELECT COALESCE(MAX(id), 0) FROM match_entity)";
+
+	private final JdbcTemplate jdbcTemplate;
+
+	/* The entity manager factory creates the sequence table, so it has to be up first */
+	MatchIdSequence(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory) {
+		this.jdbcTemplate = jdbcTemplate;
+	}
+
+	/**
+	 * Moves the sequence past the highest stored match ID, before any ID is reserved.
+	 */
+	@PostConstruct
+	void skipTakenIds() {
+		jdbcTemplate.update(SKIP_TAKEN_IDS);
+	}
+}
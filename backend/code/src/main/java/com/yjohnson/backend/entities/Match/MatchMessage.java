@@ -0,0 +1,61 @@
+package com.yjohnson.backend.entities.Match;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.yjohnson.backend.entities.User.UserSummary;
+
+import java.time.LocalDateTime;
+
+/**
+ * A match as it is sent over the match WebSocket. It has the same keys as the JSON of a {@link MatchEntity}, but both users are reduced to
+ * their public columns, so a message carries no credentials or contact details and does not walk the users' groups and interests.
+ */
+@JsonPropertyOrder({"id", "score", "confirmed", "last_updated", "matching_user", "matched_user"})
+public class MatchMessage {
+	private final Long id;
+	private final int score;
+	private final boolean confirmed;
+	@JsonProperty("last_updated")
+	private final LocalDateTime lastUpdated;
+	@JsonProperty("matching_user")
+	private final UserSummary matcher;
+	@JsonProperty("matched_user")
+	private final UserSummary matchee;
+
+	private MatchMessage(MatchEntity match) {
+		this.id = match.getId();
+		this.score = match.getScore();
+		this.confirmed = match.isConfirmed();
+		this.lastUpdated = match.getLastUpdated();
+		this.matcher = match.getMatcher() == null ? null : UserSummary.of(match.getMatcher());
+		this.matchee = match.getMatchee() == null ? null : UserSummary.of(match.getMatchee());
+	}
+
+	public static MatchMessage of(MatchEntity match) {
+		return new MatchMessage(match);
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	public int getScore() {
+		return score;
+	}
+
+	public boolean isConfirmed() {
+		return confirmed;
+	}
+
+	public LocalDateTime getLastUpdated() {
+		return lastUpdated;
+	}
+
+	public UserSummary getMatcher() {
+		return matcher;
+	}
+
+	public UserSummary getMatchee() {
+		return matchee;
+	}
+}
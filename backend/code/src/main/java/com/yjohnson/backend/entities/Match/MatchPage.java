@@ -0,0 +1,32 @@
+package com.yjohnson.backend.entities.Match;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+/**
+ * One page of a matcher's matches, in descending order of score.
+ *
+ * @param <M> the type of a match: a {@code MatchEntity}, or a map of the fields that were asked for
+ */
+public class MatchPage<M> {
+	private final List<M> matches;
+	@JsonProperty("next_cursor")
+	private final String nextCursor;
+
+	public MatchPage(List<M> matches, String nextCursor) {
+		this.matches = matches;
+		this.nextCursor = nextCursor;
+	}
+
+	public List<M> getMatches() {
+		return matches;
+	}
+
+	/**
+	 * @return the token to request the next page with, or {@code null} if this is the last page.
+	 */
+	public String getNextCursor() {
+		return nextCursor;
+	}
+}
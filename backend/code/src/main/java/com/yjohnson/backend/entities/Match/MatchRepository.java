@@ -1,19 +1,38 @@
 package com.yjohnson.backend.entities.Match;
 
 import com.yjohnson.backend.entities.User.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
-import java.util.Set;
 
 @Repository
-public interface MatchRepository extends CrudRepository<MatchEntity, Long> {
+public interface MatchRepository extends CrudRepository<MatchEntity, Long>, MatchRepositoryCustom {
 
 	List<MatchEntity> findByMatcherAndMatchee(User matcher, User matchee);
 
-	@Query(value = "SELECT DISTINCT * FROM match_entity m, users u WHERE m.matcher_id = u.id OR m.matchee_id = u.id ORDER BY m.score DESC ",
-			nativeQuery = true)
-	Set<MatchEntity> findAllWhereUserPresentDescScore(User matcher);
+	boolean existsByMatcher(User matcher);
+
+	@Query("SELECT m FROM MatchEntity m WHERE m.matcher = :matcher ORDER BY m.score DESC, m.matchee.id ASC")
+	List<MatchEntity> findAllByMatcherRanked(@Param("matcher") User matcher);
+
+	@Query("SELECT m FROM MatchEntity m WHERE m.matcher = :matcher AND m.matchee.id IN :matchees ORDER BY m.score DESC, m.matchee.id ASC")
+	List<MatchEntity> findAllByMatcherAndMatcheeIdsRanked(@Param("matcher") User matcher, @Param("matchees") Collection<Long> matcheeIds);
+
+	@Query("SELECT m FROM MatchEntity m WHERE m.matcher = :matcher ORDER BY m.score DESC, m.matchee.id ASC")
+	List<MatchEntity> findFirstRanked(@Param("matcher") User matcher, Pageable page);
+
+	/**
+	 * Returns the matches of a matcher that rank after the given cursor. Together with {@link #findFirstRanked(User, Pageable)} this walks the
+	 * {@code (matcher_id, score, matchee_id)} index in order, so every page is a bounded range scan regardless of how deep it is.
+	 */
+	@Query("SELECT m FROM MatchEntity m WHERE m.matcher = :matcher " +
+			"AND (m.score < :score OR (m.score = :score AND m.matchee.id > :matchee)) " +
+			"ORDER BY m.score DESC, m.matchee.id ASC")
+	List<MatchEntity> findRankedAfter(@Param("matcher") User matcher, @Param("score") int score, @Param("matchee") long matcheeId,
+	                                  Pageable page);
 }
\ No newline at end of file
@@ -0,0 +1,94 @@
+package com.yjohnson.backend.entities.Match;
+
+import com.yjohnson.backend.json.SparseFieldset;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Bulk operations on {@code match_entity} that bypass the persistence context. They operate on IDs only, so no {@code User} or {@code MatchEntity}
+ * has to be loaded to refresh a user's scores.
+ */
+public interface MatchRepositoryCustom {
+	/**
+	 * Loads the IDs of every stored match of a user in a single query.
+	 *
+	 * @param matcherId the ID of the matching user
+	 *
+	 * @return a map from the ID of each matched user to the ID of its {@code MatchEntity}.
+	 */
+	Map<Long, Long> findMatchIdsByMatcher(Long matcherId);
+
+	/**
+	 * Loads the IDs of every stored match in which a user is the matched one, in a single query.
+	 *
+	 * @param matcheeId the ID of the matched user
+	 *
+	 * @return a map from the ID of each matching user to the ID of its {@code MatchEntity}.
+	 */
+	Map<Long, Long> findMatchIdsByMatchee(Long matcheeId);
+
+	/**
+	 * Returns which of the given users have stored matches of their own.
+	 *
+	 * @param userIds the IDs of the users to check
+	 *
+	 * @return the subset of the given IDs that appear as a matcher.
+	 */
+	Set<Long> findMatchersAmong(Collection<Long> userIds);
+
+	/**
+	 * Returns every user that has stored matches of its own.
+	 *
+	 * @return the IDs of all users that appear as a matcher.
+	 */
+	Set<Long> findAllMatchers();
+
+	/**
+	 * Inserts or updates the scores of a user's matches with a single batched {@code INSERT ... ON DUPLICATE KEY UPDATE} on the
+	 * {@code (matcher_id, matchee_id)} unique constraint. Existing rows keep their ID and confirmation; only the score and {@code last_updated} are
+	 * overwritten. Pairs with a user that no longer exists are skipped, since candidates come from an index that does not see deletes made
+	 * outside this application.
+	 *
+	 * @param matcherId the ID of the matching user
+	 * @param scores    the matched users and their scores
+	 * @param existing  the stored matches of the user, as returned by {@link #findMatchIdsByMatcher(Long)}; pairs missing from it are assigned a
+	 *                  new ID
+	 */
+	void upsertScores(Long matcherId, Collection<ScoredCandidate> scores, Map<Long, Long> existing);
+
+	/**
+	 * The mirror of {@link #upsertScores(Long, Collection, Map)}: inserts or updates the scores of several users' matches against the same matched
+	 * user with a single batched statement.
+	 *
+	 * @param matcheeId the ID of the matched user
+	 * @param scores    the matching users and their scores
+	 * @param existing  the stored matches against the user, as returned by {@link #findMatchIdsByMatchee(Long)}; pairs missing from it are
+	 *                  assigned a new ID
+	 */
+	void upsertScoresAgainst(Long matcheeId, Collection<ScoredCandidate> scores, Map<Long, Long> existing);
+
+	/**
+	 * Returns the stored matches of a matcher ranked like {@link MatchRepository#findAllByMatcherRanked(com.yjohnson.backend.entities.User.User)},
+	 * selecting only the given fields instead of loading every match and both of its users. The users are only joined if some of their fields are
+	 * asked for.
+	 *
+	 * @param matcherId the ID of the matching user
+	 * @param fields    the fields to select, checked against {@link MatchEntity#FIELDS} and {@link MatchEntity#NESTED_FIELDS}
+	 * @param after     the last match already read, or {@code null} to start at the best match
+	 * @param limit     the maximum number of matches to return
+	 *
+	 * @return a map from field name to value per match, with the fields of a user in a nested map. The {@code score} and
+	 * {@code matched_user.id} are always included, as they make up the {@link MatchCursor} of a match.
+	 */
+	List<Map<String, Object>> findRankedFields(Long matcherId, SparseFieldset fields, MatchCursor after, int limit);
+
+	/**
+	 * Deletes the matches with the given IDs in a single statement.
+	 *
+	 * @param ids the IDs of the {@code MatchEntity} rows to delete
+	 */
+	void deleteMatchesById(Collection<Long> ids);
+}
@@ -0,0 +1,149 @@
+package com.yjohnson.backend.entities.Match;
+
+import com.yjohnson.backend.json.SparseFieldset;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.IdentifierGenerator;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.TypedQuery;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+
+class MatchRepositoryImpl implements MatchRepositoryCustom {
+	private static final String SELECT_MATCH_IDS = "SELECT matchee_id, id FROM match_entity WHERE matcher_id = ?";
+	private static final String SELECT_MATCH_IDS_BY_MATCHEE = "SELECT matcher_id, id FROM match_entity WHERE matchee_id = ?";
+	private static final String SELECT_ALL_MATCHERS = "SELECT DISTINCT matcher_id FROM match_entity";
+	private static final String SELECT_MATCHERS = "SELECT DISTINCT matcher_id FROM match_entity WHERE matcher_id IN (:ids)";
+	/* Selected from users, so a pair with a user that was deleted since it was indexed writes no row instead of violating a foreign key */
+	private static final String UPSERT_SCORE = "INSERT INTO match_entity (id, matcher_id, matchee_id, score, confirmed, last_updated) " +
+			"SELECT ?, m.id, e.id, ?, FALSE, ? FROM users m, users e WHERE m.id = ? AND e.id = ? " +
+			"ON DUPLICATE KEY UPDATE score = VALUES(score), last_updated = VALUES(last_updated)";
+	private static final String DELETE_BY_IDS = "DELETE FROM match_entity WHERE id IN (:ids)";
+
+	private final JdbcTemplate jdbcTemplate;
+	private final NamedParameterJdbcTemplate namedJdbcTemplate;
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	MatchRepositoryImpl(JdbcTemplate jdbcTemplate, NamedParameterJdbcTemplate namedJdbcTemplate) {
+		this.jdbcTemplate = jdbcTemplate;
+		this.namedJdbcTemplate = namedJdbcTemplate;
+	}
+
+	@Override
+	public Map<Long, Long> findMatchIdsByMatcher(Long matcherId) {
+		Map<Long, Long> ids = new HashMap<>();
+		jdbcTemplate.query(SELECT_MATCH_IDS, rs -> {
+			ids.put(rs.getLong(1), rs.getLong(2));
+		}, matcherId);
+		return ids;
+	}
+
+	@Override
+	public Map<Long, Long> findMatchIdsByMatchee(Long matcheeId) {
+		Map<Long, Long> ids = new HashMap<>();
+		jdbcTemplate.query(SELECT_MATCH_IDS_BY_MATCHEE, rs -> {
+			ids.put(rs.getLong(1), rs.getLong(2));
+		}, matcheeId);
+		return ids;
+	}
+
+	@Override
+	public Set<Long> findMatchersAmong(Collection<Long> userIds) {
+		if (userIds.isEmpty()) return Collections.emptySet();
+		return new HashSet<>(namedJdbcTemplate.queryForList(SELECT_MATCHERS, Collections.singletonMap("ids", userIds), Long.class));
+	}
+
+	@Override
+	public Set<Long> findAllMatchers() {
+		return new HashSet<>(jdbcTemplate.queryForList(SELECT_ALL_MATCHERS, Long.class));
+	}
+
+	@Override
+	@Transactional
+	public void upsertScores(Long matcherId, Collection<ScoredCandidate> scores, Map<Long, Long> existing) {
+		if (scores.isEmpty()) return;
+		Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+		List<Object[]> rows = new ArrayList<>(scores.size());
+		for (ScoredCandidate c : scores) {
+			Long id = existing.get(c.getUserId());
+			rows.add(new Object[]{id != null ? id : nextId(), c.getScore(), now, matcherId, c.getUserId()});
+		}
+		jdbcTemplate.batchUpdate(UPSERT_SCORE, rows);
+	}
+
+	@Override
+	@Transactional
+	public void upsertScoresAgainst(Long matcheeId, Collection<ScoredCandidate> scores, Map<Long, Long> existing) {
+		if (scores.isEmpty()) return;
+		Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+		List<Object[]> rows = new ArrayList<>(scores.size());
+		for (ScoredCandidate c : scores) {
+			Long id = existing.get(c.getUserId());
+			rows.add(new Object[]{id != null ? id : nextId(), c.getScore(), now, c.getUserId(), matcheeId});
+		}
+		jdbcTemplate.batchUpdate(UPSERT_SCORE, rows);
+	}
+
+	@Override
+	@Transactional
+	public void deleteMatchesById(Collection<Long> ids) {
+		if (ids.isEmpty()) return;
+		namedJdbcTemplate.update(DELETE_BY_IDS, Collections.singletonMap("ids", ids));
+	}
+
+	@Override
+	public List<Map<String, Object>> findRankedFields(Long matcherId, SparseFieldset fields, MatchCursor after, int limit) {
+		fields.check(MatchEntity.FIELDS.keySet(), MatchEntity.NESTED_FIELDS);
+		/* Field path -> JPQL path; the validated names are the only input that ends up in the query */
+		Map<String, String> columns = new LinkedHashMap<>();
+		columns.put("score", "m.score");
+		columns.put("matched_user.id", "m.matchee.id");
+		for (String name : fields.getNames()) {
+			SparseFieldset nested = fields.get(name);
+			if (nested == null) {
+				columns.put(name, "m." + MatchEntity.FIELDS.get(name));
+			} else {
+				for (String field : nested.getNames()) {
+					columns.put(name + "." + field, "m." + MatchEntity.FIELDS.get(name) + "." + field);
+				}
+			}
+		}
+		String jpql = "SELECT " + String.join(", ", columns.values()) + " FROM MatchEntity m WHERE m.matcher.id = :matcher " +
+				(after == null ? "" : "AND (m.score < :score OR (m.score = :score AND m.matchee.id > :matchee)) ") +
+				"ORDER BY m.score DESC, m.matchee.id ASC";
+
+		TypedQuery<Object[]> query = entityManager.createQuery(jpql, Object[].class).setParameter("matcher", matcherId).setMaxResults(limit);
+		if (after != null) query.setParameter("score", after.getScore()).setParameter("matchee", after.getMatcheeId());
+		List<Object[]> rows = query.getResultList();
+		List<Map<String, Object>> matches = new ArrayList<>(rows.size());
+		for (Object[] row : rows) {
+			Map<String, Object> match = new LinkedHashMap<>();
+			int i = 0;
+			for (String path : columns.keySet()) {
+				int dot = path.indexOf('.');
+				if (dot < 0) {
+					match.put(path, row[i++]);
+				} else {
+					@SuppressWarnings("unchecked")
+					Map<String, Object> user = (Map<String, Object>) match.computeIfAbsent(path.substring(0, dot), name -> new LinkedHashMap<>());
+					user.put(path.substring(dot + 1), row[i++]);
+				}
+			}
+			matches.add(match);
+		}
+		return matches;
+	}
+
+	/* Draws from the generator Hibernate uses for MatchEntity, so JPA inserts never collide with these rows; it reserves IDs in blocks */
+	private Long nextId() {
+		SharedSessionContractImplementor session = entityManager.unwrap(SharedSessionContractImplementor.class);
+		IdentifierGenerator generator = session.getFactory().getMetamodel().entityPersister(MatchEntity.class).getIdentifierGenerator();
+		return (Long) generator.generate(session, null);
+	}
+}
@@ -0,0 +1,244 @@
+package com.yjohnson.backend.entities.Match;
+
+import com.yjohnson.backend.entities.Group.GroupType;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Bounded cache of match results keyed on {@code (userId, GroupType)}. Entries are evicted in least-recently-used order once there are more than
+ * {@code cybuds.match.cache.max-entries} of them, and expire {@code cybuds.match.cache.ttl-seconds} after they were stored.
+ * <p>
+ * Every entry remembers which users it contains, so {@link #invalidate(Long, Collection)} drops exactly the entries that a change to one user can
+ * make stale: that user's own results, the results that list that user, and the results of the users whose score against that user changed.
+ * <p>
+ * Entries hold copies of the matches, and every hit hands out new copies, so a caller that changes a match it was given, e.g. a WebSocket
+ * session confirming it, never changes what other callers see.
+ */
+@Component
+public class MatchResultCache {
+	private final int maxEntries;
+	private final long ttlNanos;
+	private final LinkedHashMap<Key, Entry> entries;
+	/* Matchee ID -> keys of the entries that list that matchee */
+	private final Map<Long, Set<Key>> listedIn = new HashMap<>();
+	/* Bumped on every invalidation, so results computed concurrently with one are not stored */
+	private final AtomicLong generation = new AtomicLong();
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong evictions = new AtomicLong();
+	private final AtomicLong expirations = new AtomicLong();
+	private final AtomicLong invalidations = new AtomicLong();
+
+	public MatchResultCache(@Value("${cybuds.match.cache.max-entries:10000}") int maxEntries,
+	                        @Value("${cybuds.match.cache.ttl-seconds:300}") long ttlSeconds) {
+		if (maxEntries <= 0 || ttlSeconds <= 0) throw new IllegalArgumentException("max-entries and ttl-seconds must be positive");
+		this.maxEntries = maxEntries;
+		this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+		this.entries = new LinkedHashMap<>(16, 0.75f, true);
+	}
+
+	/**
+	 * Returns the cached result for a user and choice, computing and storing it if it is missing or expired.
+	 *
+	 * @param userId the ID of the matching user
+	 * @param choice the constraint that was matched against
+	 * @param loader computes the result on a miss
+	 *
+	 * @return the cached or freshly computed result, as matches the caller may change.
+	 */
+	public List<MatchEntity> get(Long userId, GroupType choice, Supplier<List<MatchEntity>> loader) {
+		Key key = new Key(userId, choice);
+		long now = System.nanoTime();
+		synchronized (this) {
+			Entry entry = entries.get(key);
+			if (entry != null) {
+				if (now - entry.storedAt < ttlNanos) {
+					hits.incrementAndGet();
+					return copies(entry.matches);
+				}
+				expirations.incrementAndGet();
+				remove(key);
+			}
+		}
+		misses.incrementAndGet();
+
+		long before = generation.get();
+		List<MatchEntity> matches = Collections.unmodifiableList(new ArrayList<>(loader.get()));
+		synchronized (this) {
+			if (generation.get() == before) store(key, new Entry(copies(matches), System.nanoTime()));
+		}
+		return matches;
+	}
+
+	private static List<MatchEntity> copies(List<MatchEntity> matches) {
+		List<MatchEntity> copies = new ArrayList<>(matches.size());
+		for (MatchEntity match : matches) {
+			copies.add(match.copy());
+		}
+		return Collections.unmodifiableList(copies);
+	}
+
+	/**
+	 * Drops every entry that may be stale after a user changed.
+	 *
+	 * @param userId   the ID of the user that changed or was deleted
+	 * @param affected the IDs of the users whose score against that user changed
+	 */
+	public synchronized void invalidate(Long userId, Collection<Long> affected) {
+		generation.incrementAndGet();
+		for (Key key : new ArrayList<>(listedIn.getOrDefault(userId, Collections.emptySet()))) {
+			drop(key);
+		}
+		for (GroupType choice : GroupType.values()) {
+			drop(new Key(userId, choice));
+			for (Long id : affected) {
+				drop(new Key(id, choice));
+			}
+		}
+	}
+
+	public synchronized void clear() {
+		generation.incrementAndGet();
+		invalidations.addAndGet(entries.size());
+		entries.clear();
+		listedIn.clear();
+	}
+
+	public synchronized Stats getStats() {
+		return new Stats(entries.size(), maxEntries, hits.get(), misses.get(), evictions.get(), expirations.get(), invalidations.get());
+	}
+
+	private void store(Key key, Entry entry) {
+		remove(key);
+		entries.put(key, entry);
+		for (MatchEntity match : entry.matches) {
+			listedIn.computeIfAbsent(match.getMatchee().getId(), id -> new HashSet<>()).add(key);
+		}
+		Iterator<Map.Entry<Key, Entry>> eldest = entries.entrySet().iterator();
+		while (entries.size() > maxEntries) {
+			Map.Entry<Key, Entry> e = eldest.next();
+			eldest.remove();
+			unlist(e.getKey(), e.getValue());
+			evictions.incrementAndGet();
+		}
+	}
+
+	private void drop(Key key) {
+		if (remove(key)) invalidations.incrementAndGet();
+	}
+
+	private boolean remove(Key key) {
+		Entry entry = entries.remove(key);
+		if (entry == null) return false;
+		unlist(key, entry);
+		return true;
+	}
+
+	private void unlist(Key key, Entry entry) {
+		for (MatchEntity match : entry.matches) {
+			Set<Key> keys = listedIn.get(match.getMatchee().getId());
+			if (keys != null && keys.remove(key) && keys.isEmpty()) listedIn.remove(match.getMatchee().getId());
+		}
+	}
+
+	private static final class Key {
+		private final Long userId;
+		private final GroupType choice;
+
+		Key(Long userId, GroupType choice) {
+			this.userId = userId;
+			this.choice = choice;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) return true;
+			if (!(o instanceof Key)) return false;
+			Key key = (Key) o;
+			return userId.equals(key.userId) && choice == key.choice;
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(userId, choice);
+		}
+	}
+
+	private static final class Entry {
+		private final List<MatchEntity> matches;
+		private final long storedAt;
+
+		Entry(List<MatchEntity> matches, long storedAt) {
+			this.matches = matches;
+			this.storedAt = storedAt;
+		}
+	}
+
+	/**
+	 * Snapshot of the cache counters, all counted since startup.
+	 */
+	public static final class Stats {
+		private final int size;
+		private final int maxEntries;
+		private final long hits;
+		private final long misses;
+		private final long evictions;
+		private final long expirations;
+		private final long invalidations;
+
+		Stats(int size, int maxEntries, long hits, long misses, long evictions, long expirations, long invalidations) {
+			this.size = size;
+			this.maxEntries = maxEntries;
+			this.hits = hits;
+			this.misses = misses;
+			this.evictions = evictions;
+			this.expirations = expirations;
+			this.invalidations = invalidations;
+		}
+
+		public int getSize() {
+			return size;
+		}
+
+		public int getMaxEntries() {
+			return maxEntries;
+		}
+
+		public long getHits() {
+			return hits;
+		}
+
+		public long getMisses() {
+			return misses;
+		}
+
+		/**
+		 * @return the number of entries dropped to stay within {@code maxEntries}.
+		 */
+		public long getEvictions() {
+			return evictions;
+		}
+
+		public long getExpirations() {
+			return expirations;
+		}
+
+		/**
+		 * @return the number of entries dropped because a user they depend on changed.
+		 */
+		public long getInvalidations() {
+			return invalidations;
+		}
+
+		public double getHitRate() {
+			long total = hits + misses;
+			return total == 0 ? 0 : (double) hits / total;
+		}
+	}
+}
@@ -0,0 +1,222 @@
+package com.yjohnson.backend.entities.Match;
+
+import com.yjohnson.backend.entities.Match.UserFeatureIndex.UserFeatures;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.LongFunction;
+
+/**
+ * Scores a user against a set of candidate user IDs, either on the calling thread or split across a dedicated {@link ForkJoinPool}.
+ * <p>
+ * In parallel mode the candidates are split in halves until a range holds at most {@code cybuds.match.parallel-threshold} candidates. Every
+ * worker scores its range into its own list or {@link TopK}, and the partial results are merged when the tasks join, so no worker ever touches
+ * shared mutable state. Ranges are concatenated in candidate order and top-K merges rank ties by user ID, so both modes return exactly the same
+ * result.
+ * <p>
+ * Parallel mode is off unless {@code cybuds.match.parallel} is set; callers can also choose the mode per call. The pool has
+ * {@code cybuds.match.parallelism} workers, defaulting to the number of available processors.
+ */
+@Component
+public class MatchScorer {
+	private final LongFunction<UserFeatures> features;
+	private final ForkJoinPool pool;
+	private final boolean parallelByDefault;
+	private final int threshold;
+
+	@Autowired
+	public MatchScorer(UserFeatureIndex featureIndex,
+	                   @Value("${cybuds.match.parallel:false}") boolean parallelByDefault,
+	                   @Value("${cybuds.match.parallelism:0}") int parallelism,
+	                   @Value("${cybuds.match.parallel-threshold:1024}") int threshold) {
+		this(featureIndex::indexed, parallelism, parallelByDefault, threshold);
+	}
+
+	MatchScorer(LongFunction<UserFeatures> features, int parallelism, boolean parallelByDefault, int threshold) {
+		if (threshold <= 0) throw new IllegalArgumentException("threshold must be positive");
+		this.features = features;
+		this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+		this.parallelByDefault = parallelByDefault;
+		this.threshold = threshold;
+	}
+
+	public boolean isParallelByDefault() {
+		return parallelByDefault;
+	}
+
+	public int getParallelism() {
+		return pool.getParallelism();
+	}
+
+	/**
+	 * Scores the matcher against every candidate.
+	 *
+	 * @param matcher    the features of the user that is matching
+	 * @param candidates the IDs of the users to score; IDs that are not indexed score zero
+	 * @param parallel   whether to split the work across the pool
+	 *
+	 * @return one scored candidate per candidate ID, in the iteration order of {@code candidates}.
+	 */
+	public List<ScoredCandidate> scoreAll(UserFeatures matcher, Collection<Long> candidates, boolean parallel) {
+		long[] ids = toArray(candidates);
+		if (!parallel || ids.length <= threshold) return scoreRange(matcher, ids, 0, ids.length);
+		return pool.invoke(new ScoreAllTask(matcher, ids, 0, ids.length));
+	}
+
+	/**
+	 * Scores the matcher against every candidate and keeps only the best {@code k}.
+	 *
+	 * @param matcher    the features of the user that is matching
+	 * @param candidates the IDs of the users to score; IDs that are not indexed score zero
+	 * @param k          the maximum number of candidates to keep
+	 * @param parallel   whether to split the work across the pool
+	 *
+	 * @return at most {@code k} candidates, from the best match to the worst.
+	 */
+	public List<ScoredCandidate> topK(UserFeatures matcher, Collection<Long> candidates, int k, boolean parallel) {
+		long[] ids = toArray(candidates);
+		if (!parallel || ids.length <= threshold) return topKRange(matcher, ids, 0, ids.length, k).toSortedList();
+		return pool.invoke(new TopKTask(matcher, ids, 0, ids.length, k)).toSortedList();
+	}
+
+	/**
+	 * Like {@link #topK(UserFeatures, Collection, int, boolean)}, but only ranks the candidates that rank strictly after {@code after}. Calling it
+	 * again with the last candidate returned walks the whole ranking one chunk at a time, in {@code O(k)} memory per chunk.
+	 *
+	 * @param matcher    the features of the user that is matching
+	 * @param candidates the IDs of the users to score; IDs that are not indexed score zero
+	 * @param after      the candidate to continue after, or {@code null} to start at the best match
+	 * @param k          the maximum number of candidates to keep
+	 *
+	 * @return at most {@code k} candidates that rank after {@code after}, from the best match to the worst.
+	 */
+	public List<ScoredCandidate> topKAfter(UserFeatures matcher, Collection<Long> candidates, ScoredCandidate after, int k) {
+		TopK top = new TopK(k);
+		for (long id : candidates) {
+			int score = score(matcher, id);
+			if (after == null || score < after.getScore() || (score == after.getScore() && id > after.getUserId())) top.offer(id, score);
+		}
+		return top.toSortedList();
+	}
+
+	/**
+	 * The mirror image of {@link #topKAfter(UserFeatures, Collection, ScoredCandidate, int)}: keeps the {@code k} candidates that rank right
+	 * before {@code before}, i.e. the worst {@code k} of those that rank better.
+	 *
+	 * @param matcher    the features of the user that is matching
+	 * @param candidates the IDs of the users to score; IDs that are not indexed score zero
+	 * @param before     the candidate to continue before
+	 * @param k          the maximum number of candidates to keep
+	 *
+	 * @return at most {@code k} candidates that rank before {@code before}, from the best match to the worst.
+	 */
+	public List<ScoredCandidate> bottomKBefore(UserFeatures matcher, Collection<Long> candidates, ScoredCandidate before, int k) {
+		/* The root is the best candidate kept, which is the first to give way */
+		PriorityQueue<ScoredCandidate> heap = new PriorityQueue<>(Math.min(k, 1024) + 1, ScoredCandidate.RANKING);
+		for (long id : candidates) {
+			int score = score(matcher, id);
+			if (score > before.getScore() || (score == before.getScore() && id < before.getUserId())) {
+				heap.add(new ScoredCandidate(id, score));
+				if (heap.size() > k) heap.poll();
+			}
+		}
+		List<ScoredCandidate> list = new ArrayList<>(heap);
+		list.sort(ScoredCandidate.RANKING);
+		return list;
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		pool.shutdown();
+	}
+
+	private int score(UserFeatures matcher, long id) {
+		UserFeatures matchee = features.apply(id);
+		return matchee == null ? 0 : matcher.score(matchee);
+	}
+
+	private List<ScoredCandidate> scoreRange(UserFeatures matcher, long[] ids, int from, int to) {
+		List<ScoredCandidate> scores = new ArrayList<>(to - from);
+		for (int i = from; i < to; ++i) {
+			scores.add(new ScoredCandidate(ids[i], score(matcher, ids[i])));
+		}
+		return scores;
+	}
+
+	private TopK topKRange(UserFeatures matcher, long[] ids, int from, int to, int k) {
+		TopK top = new TopK(k);
+		for (int i = from; i < to; ++i) {
+			top.offer(ids[i], score(matcher, ids[i]));
+		}
+		return top;
+	}
+
+	private static long[] toArray(Collection<Long> candidates) {
+		long[] ids = new long[candidates.size()];
+		int i = 0;
+		for (Long id : candidates) {
+			ids[i++] = id;
+		}
+		return ids;
+	}
+
+	private final class ScoreAllTask extends RecursiveTask<List<ScoredCandidate>> {
+		private final UserFeatures matcher;
+		private final long[] ids;
+		private final int from;
+		private final int to;
+
+		ScoreAllTask(UserFeatures matcher, long[] ids, int from, int to) {
+			this.matcher = matcher;
+			this.ids = ids;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected List<ScoredCandidate> compute() {
+			if (to - from <= threshold) return scoreRange(matcher, ids, from, to);
+			int mid = (from + to) >>> 1;
+			ScoreAllTask left = new ScoreAllTask(matcher, ids, from, mid);
+			left.fork();
+			List<ScoredCandidate> right = new ScoreAllTask(matcher, ids, mid, to).compute();
+			List<ScoredCandidate> merged = left.join();
+			merged.addAll(right);
+			return merged;
+		}
+	}
+
+	private final class TopKTask extends RecursiveTask<TopK> {
+		private final UserFeatures matcher;
+		private final long[] ids;
+		private final int from;
+		private final int to;
+		private final int k;
+
+		TopKTask(UserFeatures matcher, long[] ids, int from, int to, int k) {
+			this.matcher = matcher;
+			this.ids = ids;
+			this.from = from;
+			this.to = to;
+			this.k = k;
+		}
+
+		@Override
+		protected TopK compute() {
+			if (to - from <= threshold) return topKRange(matcher, ids, from, to, k);
+			int mid = (from + to) >>> 1;
+			TopKTask left = new TopKTask(matcher, ids, from, mid, k);
+			left.fork();
+			TopK right = new TopKTask(matcher, ids, mid, to, k).compute();
+			return left.join().merge(right);
+		}
+	}
+}
@@ -1,8 +1,11 @@
 package com.yjohnson.backend.entities.Match;
 
-import com.yjohnson.backend.entities.Group.GroupEntity;
 import com.yjohnson.backend.entities.Group.GroupType;
 import com.yjohnson.backend.entities.User.User;
+import com.yjohnson.backend.entities.User.UserRepository;
+import com.yjohnson.backend.json.SparseFieldset;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
@@ -10,69 +13,318 @@ import java.util.*;
 @Service
 public class MatchService {
 	private final MatchRepository matchRepository;
+	private final UserRepository userRepository;
+	private final UserFeatureIndex featureIndex;
+	private final MatchScorer matchScorer;
+	private final MinHashIndex minHashIndex;
+	private final MatchResultCache matchResultCache;
 
-	public MatchService(MatchRepository matchRepository) {
+	public MatchService(MatchRepository matchRepository, UserRepository userRepository, UserFeatureIndex featureIndex, MatchScorer matchScorer,
+	                    MinHashIndex minHashIndex, MatchResultCache matchResultCache) {
 		this.matchRepository = matchRepository;
+		this.userRepository = userRepository;
+		this.featureIndex = featureIndex;
+		this.matchScorer = matchScorer;
+		this.minHashIndex = minHashIndex;
+		this.matchResultCache = matchResultCache;
 	}
 
-	public Iterable<MatchEntity> matchUser(User currentUser, Iterable<User> allUsers) {
-		Set<MatchEntity> set = new TreeSet<>(Comparator.comparingInt(MatchEntity::getScore).reversed());
-		allUsers.forEach(user -> {
-			if (!currentUser.equals(user)) {
-				List<MatchEntity> list = matchRepository.findByMatcherAndMatchee(currentUser, user);
-				if (!list.isEmpty()) {
-					for (MatchEntity m : list) {
-						m.refreshScore();
-					}
-					matchRepository.saveAll(list);
-				} else {
-					matchRepository.save(new MatchEntity(
-							currentUser,
-							user
-					));
-				}
-			}
-		});
-		return matchRepository.findAllWhereUserPresentDescScore(currentUser);
-	}
-
-	public Iterable<MatchEntity> matchUserByChoice(GroupType choice, User currentUser, Iterable<User> allUsers) {
-		return matchRepository.saveAll(populateMatchSet(currentUser, choice, allUsers));
-	}
-
-	private TreeSet<MatchEntity> populateMatchSet(User currentUser, GroupType choice, Iterable<User> allUsers) {
-		TreeSet<MatchEntity> set = new TreeSet<>(Comparator.comparingInt(MatchEntity::getScore).reversed());
-		allUsers.forEach(user -> {
-			if (!currentUser.equals(user)) {
-
-				switch (choice) {
-					case STUDENT_CLASS:
-						if (currentUser.getClassification() == user.getClassification()) {
-							set.add(new MatchEntity(currentUser, user));
-						}
-						break;
-					case COLLEGE:
-					case STUDENT_MAJOR:
-						/* Combines majors and colleges into one list and finds the intersection between them */
-						Set<GroupEntity> groups = new HashSet<>();
-						Set<GroupEntity> against = new HashSet<>();
-
-						groups.addAll(currentUser.getColleges());
-						groups.addAll(currentUser.getMajors());
-
-						against.addAll(user.getColleges());
-						against.addAll(user.getMajors());
-
-						groups.retainAll(against);
-						if (groups.size() > 0) set.add(new MatchEntity(currentUser, user));
-						break;
-					default:
-						break;
-				}
+	public boolean isParallelByDefault() {
+		return matchScorer.isParallelByDefault();
+	}
+
+	/**
+	 * @param currentUser the user to check
+	 *
+	 * @return whether the matches of the user have been stored, so reads need not score them first.
+	 */
+	boolean hasStoredMatches(User currentUser) {
+		return matchRepository.existsByMatcher(currentUser);
+	}
+
+	/**
+	 * Returns the stored matches of the current user. Stored scores are kept fresh by {@link MatchDeltaService}, so once a user has been matched
+	 * this is a plain indexed read; users without stored matches are scored first, see {@link #refreshMatches(User, boolean)}.
+	 *
+	 * @param currentUser the user to match
+	 *
+	 * @return every match of the current user, in descending order of score.
+	 */
+	public Iterable<MatchEntity> matchUser(User currentUser) {
+		return matchUser(currentUser, matchScorer.isParallelByDefault());
+	}
+
+	public Iterable<MatchEntity> matchUser(User currentUser, boolean parallel) {
+		if (matchRepository.existsByMatcher(currentUser)) return matchRepository.findAllByMatcherRanked(currentUser);
+		return refreshMatches(currentUser, parallel);
+	}
+
+	/**
+	 * Returns one page of the stored matches of the current user, ranked like {@link #matchUser(User)}. Users without stored matches are scored
+	 * first.
+	 *
+	 * @param currentUser the user to match
+	 * @param after       the last match of the previous page, or {@code null} for the first page
+	 * @param limit       the maximum number of matches on the page
+	 *
+	 * @return the page, with a cursor to the next one if there are more matches.
+	 */
+	public MatchPage<MatchEntity> matchUserPage(User currentUser, MatchCursor after, int limit) {
+		/* One extra row tells whether there is a next page */
+		List<MatchEntity> matches = rankedPage(currentUser, after, limit + 1);
+		if (matches.size() <= limit) return new MatchPage<>(matches, null);
+		matches = matches.subList(0, limit);
+		return new MatchPage<>(matches, MatchCursor.after(matches.get(limit - 1)).encode());
+	}
+
+	/**
+	 * Like {@link #matchUserPage(User, MatchCursor, int)}, but selects only the given fields of the matches.
+	 *
+	 * @param currentUser the user to match
+	 * @param after       the last match of the previous page, or {@code null} for the first page
+	 * @param limit       the maximum number of matches on the page
+	 * @param fields      the fields to select
+	 *
+	 * @return the page, with a cursor to the next one if there are more matches.
+	 *
+	 * @throws IllegalArgumentException if a field is not a field of a match
+	 */
+	public MatchPage<Map<String, Object>> matchUserPageFields(User currentUser, MatchCursor after, int limit, SparseFieldset fields) {
+		if (after == null && !matchRepository.existsByMatcher(currentUser)) storeScores(currentUser, matchScorer.isParallelByDefault());
+		List<Map<String, Object>> matches = matchRepository.findRankedFields(currentUser.getId(), fields, after, limit + 1);
+		String next = null;
+		if (matches.size() > limit) {
+			matches = matches.subList(0, limit);
+			Map<String, Object> last = matches.get(limit - 1);
+			next = new MatchCursor((Integer) last.get("score"), (Long) ((Map<?, ?>) last.get("matched_user")).get("id")).encode();
+		}
+		return new MatchPage<>(withoutCursorFields(matches, fields), next);
+	}
+
+	/**
+	 * Like {@link #matchUser(User, boolean)}, but selects only the given fields of the matches.
+	 *
+	 * @param currentUser the user to match
+	 * @param fields      the fields to select
+	 * @param refresh     whether to recompute stored matches
+	 * @param parallel    whether to score candidates in parallel, if they are scored
+	 *
+	 * @return every match of the current user, in descending order of score.
+	 *
+	 * @throws IllegalArgumentException if a field is not a field of a match
+	 */
+	public List<Map<String, Object>> matchUserFields(User currentUser, SparseFieldset fields, boolean refresh, boolean parallel) {
+		if (refresh || !matchRepository.existsByMatcher(currentUser)) storeScores(currentUser, parallel);
+		return withoutCursorFields(matchRepository.findRankedFields(currentUser.getId(), fields, null, Integer.MAX_VALUE), fields);
+	}
+
+	/* Drops the fields that are always selected for the cursor but were not asked for */
+	private static List<Map<String, Object>> withoutCursorFields(List<Map<String, Object>> matches, SparseFieldset fields) {
+		boolean score = fields.getNames().contains("score");
+		SparseFieldset matchedUser = fields.get("matched_user");
+		boolean matcheeId = matchedUser != null && matchedUser.getNames().contains("id");
+		for (Map<String, Object> match : matches) {
+			if (!score) match.remove("score");
+			if (!matcheeId) {
+				Map<?, ?> user = (Map<?, ?>) match.get("matched_user");
+				user.remove("id");
+				if (user.isEmpty()) match.remove("matched_user");
 			}
-		});
-		return set;
+		}
+		return matches;
+	}
+
+	/**
+	 * Returns the stored matches of the current user that rank right after the given cursor. Users without stored matches are scored first.
+	 *
+	 * @param currentUser the user to match
+	 * @param after       the last match already read, or {@code null} to start at the best match
+	 * @param limit       the maximum number of matches to return
+	 *
+	 * @return at most {@code limit} matches, in descending order of score.
+	 */
+	public List<MatchEntity> rankedPage(User currentUser, MatchCursor after, int limit) {
+		Pageable page = PageRequest.of(0, limit);
+		if (after == null) {
+			if (!matchRepository.existsByMatcher(currentUser)) refreshMatches(currentUser, matchScorer.isParallelByDefault());
+			return matchRepository.findFirstRanked(currentUser, page);
+		}
+		return matchRepository.findRankedAfter(currentUser, after.getScore(), after.getMatcheeId(), page);
+	}
+
+	/**
+	 * Ranks the candidates of the current user in memory and returns the matches right after the given position. Nothing is stored: every call
+	 * scores the candidates once more but only keeps {@code limit} of them, so a ranking can be walked lazily a chunk at a time, and the first
+	 * chunk costs a single pass over the candidates.
+	 *
+	 * @param currentUser the user to match
+	 * @param after       the last match already read, or {@code null} to start at the best match
+	 * @param limit       the maximum number of matches to return
+	 *
+	 * @return at most {@code limit} matches, in descending order of score.
+	 */
+	public List<MatchEntity> rankCandidatesAfter(User currentUser, MatchCursor after, int limit) {
+		List<ScoredCandidate> ranked = matchScorer.topKAfter(featureIndex.featuresOf(currentUser), featureIndex.candidates(currentUser),
+				after == null ? null : new ScoredCandidate(after.getMatcheeId(), after.getScore()), limit);
+		return toMatches(currentUser, ranked);
+	}
+
+	/**
+	 * Like {@link #rankCandidatesAfter(User, MatchCursor, int)}, but returns the matches right before the given position.
+	 *
+	 * @param currentUser the user to match
+	 * @param before      the first match already read
+	 * @param limit       the maximum number of matches to return
+	 *
+	 * @return at most {@code limit} matches, in descending order of score.
+	 */
+	public List<MatchEntity> rankCandidatesBefore(User currentUser, MatchCursor before, int limit) {
+		List<ScoredCandidate> ranked = matchScorer.bottomKBefore(featureIndex.featuresOf(currentUser), featureIndex.candidates(currentUser),
+				new ScoredCandidate(before.getMatcheeId(), before.getScore()), limit);
+		return toMatches(currentUser, ranked);
+	}
+
+	/**
+	 * Scores and ranks every candidate of the current user in memory, like {@link #refreshMatches(User, boolean)} but without storing anything.
+	 * The scores can be stored later with {@link #storeScores(User, List)}.
+	 *
+	 * @param currentUser the user to match
+	 *
+	 * @return the scores of all candidates, in descending order of score.
+	 */
+	List<ScoredCandidate> rankCandidates(User currentUser) {
+		List<ScoredCandidate> ranked = matchScorer.scoreAll(featureIndex.featuresOf(currentUser), featureIndex.candidates(currentUser),
+				matchScorer.isParallelByDefault());
+		ranked.sort(ScoredCandidate.RANKING);
+		return ranked;
+	}
+
+	/* Loads the ranked users with one query; users deleted since they were indexed are skipped */
+	List<MatchEntity> toMatches(User currentUser, List<ScoredCandidate> ranked) {
+		List<Long> ids = new ArrayList<>(ranked.size());
+		ranked.forEach(c -> ids.add(c.getUserId()));
+		Map<Long, User> users = new HashMap<>();
+		userRepository.findAllById(ids).forEach(user -> users.put(user.getId(), user));
+		List<MatchEntity> matches = new ArrayList<>(ranked.size());
+		for (ScoredCandidate c : ranked) {
+			User matchee = users.get(c.getUserId());
+			if (matchee != null) matches.add(new MatchEntity(currentUser, matchee, c.getScore(), false));
+		}
+		return matches;
 	}
+
+	/**
+	 * Scores the current user against every user that shares at least one interest, group or the classification with them, and stores the
+	 * scores. Stored matches against users that no longer overlap are reset to zero.
+	 * <p>
+	 * The stored matches are read once and all scores are written with a single batched upsert, regardless of the number of candidates.
+	 *
+	 * @param currentUser the user to match
+	 * @param parallel    whether to score the candidates in parallel, see {@link MatchScorer}
+	 *
+	 * @return every match of the current user, in descending order of score.
+	 */
+	public Iterable<MatchEntity> refreshMatches(User currentUser, boolean parallel) {
+		storeScores(currentUser, parallel);
+		return matchRepository.findAllByMatcherRanked(currentUser);
+	}
+
+	private void storeScores(User currentUser, boolean parallel) {
+		storeScores(currentUser, matchScorer.scoreAll(featureIndex.featuresOf(currentUser), featureIndex.candidates(currentUser), parallel));
+	}
+
+	/**
+	 * Stores the scores of every candidate of the current user, as computed by {@link #rankCandidates(User)}. Stored matches against users that
+	 * are not among the candidates are reset to zero.
+	 *
+	 * @param currentUser the user that was matched
+	 * @param candidates  the scores of all candidates of the user
+	 */
+	void storeScores(User currentUser, List<ScoredCandidate> candidates) {
+		Map<Long, Long> existing = matchRepository.findMatchIdsByMatcher(currentUser.getId());
+		List<ScoredCandidate> scores = new ArrayList<>(candidates);
+		Set<Long> ids = new HashSet<>();
+		candidates.forEach(c -> ids.add(c.getUserId()));
+		/* Whatever else is stored no longer shares anything with the current user */
+		for (Long matcheeId : existing.keySet()) {
+			if (!ids.contains(matcheeId)) scores.add(new ScoredCandidate(matcheeId, 0));
+		}
+		matchRepository.upsertScores(currentUser.getId(), scores, existing);
+	}
+
+	/**
+	 * Ranks every candidate of the current user with a bounded min-heap and returns only the best {@code limit} matches. Nothing is stored or
+	 * deleted: the stored matches of the current user stay complete, and the returned matches are not persisted.
+	 *
+	 * @param currentUser the user to match
+	 * @param limit       the maximum number of matches to return
+	 * @param parallel    whether to rank the candidates in parallel, see {@link MatchScorer}
+	 *
+	 * @return the top matches of the current user, in descending order of score.
+	 */
+	public List<MatchEntity> matchUserTopK(User currentUser, int limit, boolean parallel) {
+		List<ScoredCandidate> ranked = matchScorer.topK(featureIndex.featuresOf(currentUser), featureIndex.candidates(currentUser), limit, parallel);
+		return toMatches(currentUser, ranked);
+	}
+
+	/**
+	 * Like {@link #matchUserTopK(User, int, boolean)}, but only scores the candidates returned by the {@link MinHashIndex}, i.e. the users whose
+	 * interests and groups are most similar to the current user's. Candidates with only a small overlap, or that only share the classification, may
+	 * be missed; in exchange the cost no longer depends on how popular the current user's interests are.
+	 * <p>
+	 * Since the result may be missing matches, it is never stored: the exact stored scores of the current user are left as they are.
+	 *
+	 * @param currentUser the user to match
+	 * @param limit       the maximum number of matches to return
+	 * @param parallel    whether to rank the candidates in parallel, see {@link MatchScorer}
+	 *
+	 * @return the top approximate matches of the current user, in descending order of score.
+	 */
+	public List<MatchEntity> matchUserApproximate(User currentUser, int limit, boolean parallel) {
+		UserFeatureIndex.UserFeatures features = featureIndex.featuresOf(currentUser);
+		List<ScoredCandidate> ranked = matchScorer.topK(features, minHashIndex.candidates(currentUser.getId(), features), limit, parallel);
+		return toMatches(currentUser, ranked);
+	}
+
+	/**
+	 * Scores the current user against every user that shares the chosen constraint with them and stores the scores. Results are served from the
+	 * {@link MatchResultCache} until the current user or one of the listed users changes.
+	 *
+	 * @param choice      the constraint to match against
+	 * @param currentUser the user to match
+	 *
+	 * @return the matches of the current user that conform to the constraint, in descending order of score.
+	 */
+	public List<MatchEntity> matchUserByChoice(GroupType choice, User currentUser) {
+		return matchResultCache.get(currentUser.getId(), choice, () -> computeMatchesByChoice(choice, currentUser));
+	}
+
+	private List<MatchEntity> computeMatchesByChoice(GroupType choice, User currentUser) {
+		Set<Long> candidates = candidatesByChoice(currentUser, choice);
+		if (candidates.isEmpty()) return Collections.emptyList();
+		if (matchRepository.existsByMatcher(currentUser)) {
+			List<ScoredCandidate> scores = matchScorer.scoreAll(featureIndex.featuresOf(currentUser), candidates, matchScorer.isParallelByDefault());
+			matchRepository.upsertScores(currentUser.getId(), scores, matchRepository.findMatchIdsByMatcher(currentUser.getId()));
+		} else {
+			/* Storing only these candidates would start a partial list, which plain reads would then serve as every match */
+			storeScores(currentUser, matchScorer.isParallelByDefault());
+		}
+		return matchRepository.findAllByMatcherAndMatcheeIdsRanked(currentUser, candidates);
+	}
+
+	private Set<Long> candidatesByChoice(User currentUser, GroupType choice) {
+		switch (choice) {
+			case STUDENT_CLASS:
+				return featureIndex.classificationCandidates(currentUser);
+			case COLLEGE:
+			case STUDENT_MAJOR:
+				/* Majors and colleges share one posting list space in the index, so any overlap counts */
+				return featureIndex.groupCandidates(currentUser);
+			default:
+				return Collections.emptySet();
+		}
+	}
+
 //
 //	/**
 //	 * Helper method tracks the number of characteristics that are the same between two users.
@@ -111,37 +363,28 @@ public class MatchService {
 //		return i;
 //	}
 
-	public Optional<User> matchUserRandomlyByChoice(GroupType choice, User currentUser, Iterable<User> allUsers) {
-
-		TreeSet<MatchEntity> set = populateMatchSet(currentUser, choice, allUsers);
-
-		int toGet = new Random().nextInt(set.size());
-		int i = 0;
-
-		for (MatchEntity m : set) {
-			if (i == toGet) return Optional.of(m.getMatchee());
-			++i;
-		}
-		return Optional.empty();
+	/**
+	 * Picks a uniformly random user that shares the chosen constraint with the current user. Candidates are sampled from the
+	 * {@link UserFeatureIndex}, so only the chosen user is loaded from the database.
+	 *
+	 * @param choice      the constraint to match against
+	 * @param currentUser the user to match
+	 *
+	 * @return a random matching user, or empty if there is none.
+	 */
+	public Optional<User> matchUserRandomlyByChoice(GroupType choice, User currentUser) {
+		return featureIndex.randomCandidate(currentUser, choice).flatMap(userRepository::findById);
 	}
 
-	public Optional<User> matchUserRandomly(User currentUser, Iterable<User> allUsers) {
-		LinkedList<User> list = new LinkedList<>();
-		allUsers.forEach(list::add);
-
-		int size = list.size();
-		Random r = new Random();
-
-		Optional<User> matchingUser = Optional.empty();
-		while (!list.isEmpty()) {
-			int index = r.nextInt(size);
-			matchingUser = Optional.ofNullable(list.get(index));
-			if (!matchingUser.isPresent() || matchingUser.get().getId().equals(currentUser.getId())) {
-				list.remove(index);
-			} else return matchingUser;
-		}
-
-		return matchingUser;
+	/**
+	 * Picks a uniformly random user other than the current user, loading only the chosen user from the database.
+	 *
+	 * @param currentUser the user to match
+	 *
+	 * @return a random user, or empty if there is no other user.
+	 */
+	public Optional<User> matchUserRandomly(User currentUser) {
+		return featureIndex.randomUser(currentUser.getId()).flatMap(userRepository::findById);
 	}
 }
 
@@ -0,0 +1,107 @@
+package com.yjohnson.backend.entities.Match;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yjohnson.backend.entities.User.User;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Writes a user's ranked matches to a response as they are read, instead of collecting them into one list first. Matches are read from the
+ * ranking index {@value #PAGE_SIZE} at a time and every page is flushed to the client before the next one is read, so the first matches
+ * arrive after a single page query and the server never holds more than one page.
+ * <p>
+ * The pages are read from the stored matches. A user without any is ranked in memory instead, with a single pass over its candidates, and
+ * the pages are cut from that ranking; the scores are only stored once the last match has been written, so the first matches do not wait for
+ * the upsert. Matches streamed that way have no ID yet.
+ */
+@Component
+public class MatchStreamer {
+	static final int PAGE_SIZE = 100;
+
+	private final MatchService matchService;
+	private final ObjectMapper objectMapper;
+
+	public MatchStreamer(MatchService matchService, ObjectMapper objectMapper) {
+		this.matchService = matchService;
+		this.objectMapper = objectMapper;
+	}
+
+	/**
+	 * Creates the body of a streamed match response.
+	 *
+	 * @param currentUser the user to match
+	 * @param format      how to frame each match
+	 *
+	 * @return a body that writes every match of the current user, in descending order of score.
+	 */
+	public StreamingResponseBody stream(User currentUser, Format format) {
+		return out -> {
+			try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+				/* The servlet container owns the response stream */
+				generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+				generator.setRootValueSeparator(null);
+				if (matchService.hasStoredMatches(currentUser)) {
+					List<MatchEntity> page = matchService.rankedPage(currentUser, null, PAGE_SIZE);
+					while (true) {
+						write(generator, format, page);
+						if (page.size() < PAGE_SIZE) break;
+						page = matchService.rankedPage(currentUser, MatchCursor.after(page.get(PAGE_SIZE - 1)), PAGE_SIZE);
+					}
+					generator.writeRaw(format.end);
+				} else {
+					List<ScoredCandidate> ranked = matchService.rankCandidates(currentUser);
+					for (int from = 0; from < ranked.size(); from += PAGE_SIZE) {
+						write(generator, format, matchService.toMatches(currentUser, ranked.subList(from, Math.min(from + PAGE_SIZE, ranked.size()))));
+					}
+					generator.writeRaw(format.end);
+					generator.flush();
+					matchService.storeScores(currentUser, ranked);
+				}
+			}
+		};
+	}
+
+	/* Writes one page and flushes it to the client */
+	private static void write(JsonGenerator generator, Format format, List<MatchEntity> page) throws IOException {
+		for (MatchEntity match : page) {
+			generator.writeRaw(format.prefix);
+			generator.writeObject(match);
+			generator.writeRaw(format.suffix);
+		}
+		generator.flush();
+	}
+
+	/**
+	 * Framing of a streamed match response.
+	 */
+	public enum Format {
+		/**
+		 * Newline-delimited JSON: one match object per line.
+		 */
+		NDJSON("application/x-ndjson", "", "\n", ""),
+		/**
+		 * Server-sent events: one {@code data} event per match, followed by an {@code end} event.
+		 */
+		SSE("text/event-stream", "data: ", "\n\n", "event: end\ndata: \n\n");
+
+		private final String mediaType;
+		private final String prefix;
+		private final String suffix;
+		private final String end;
+
+		Format(String mediaType, String prefix, String suffix, String end) {
+			this.mediaType = mediaType;
+			this.prefix = prefix;
+			this.suffix = suffix;
+			this.end = end;
+		}
+
+		public String getMediaType() {
+			return mediaType;
+		}
+	}
+}
@@ -0,0 +1,186 @@
+package com.yjohnson.backend.entities.Match;
+
+import com.yjohnson.backend.entities.Match.UserFeatureIndex.UserFeatures;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Approximate candidate generation for very large user populations. Every user's interests and groups are summarized by a MinHash signature of
+ * {@code bands * rows} values; two users agree on any single value with a probability equal to the Jaccard similarity of their feature sets.
+ * Signatures are split into {@code bands} bands of {@code rows} values and every band is hashed into a bucket (LSH banding), so a lookup only
+ * touches the users that share at least one whole band instead of every posting list.
+ * <p>
+ * The probability that a pair with Jaccard similarity {@code s} becomes a candidate is {@code 1 - (1 - s^rows)^bands}: more bands raise recall,
+ * more rows per band cut the number of candidates and thus latency. Both are set with {@code cybuds.match.lsh.bands} and
+ * {@code cybuds.match.lsh.rows}. The classification is left out of the signatures, since it is shared by too many users to tell them apart.
+ * <p>
+ * The index is filled from the {@link UserFeatureIndex} the first time it is queried and is kept fresh by {@link MatchDeltaService}.
+ */
+@Service
+public class MinHashIndex {
+	private static final long SEED = 0x5DEECE66DL;
+
+	private final UserFeatureIndex featureIndex;
+	private final int bands;
+	private final int rows;
+	private final long[] multipliers;
+	private final long[] offsets;
+	private final List<Map<Long, Set<Long>>> buckets;
+	private final Map<Long, long[]> bandKeys = new ConcurrentHashMap<>();
+	private volatile boolean loaded = false;
+
+	@Autowired
+	public MinHashIndex(UserFeatureIndex featureIndex,
+	                    @Value("${cybuds.match.lsh.bands:20}") int bands,
+	                    @Value("${cybuds.match.lsh.rows:4}") int rows) {
+		if (bands <= 0 || rows <= 0) throw new IllegalArgumentException("bands and rows must be positive");
+		this.featureIndex = featureIndex;
+		this.bands = bands;
+		this.rows = rows;
+
+		/* Fixed seed, so that signatures stay comparable across restarts */
+		Random random = new Random(SEED);
+		this.multipliers = new long[bands * rows];
+		this.offsets = new long[bands * rows];
+		for (int i = 0; i < multipliers.length; ++i) {
+			multipliers[i] = random.nextLong() | 1;
+			offsets[i] = random.nextLong();
+		}
+		this.buckets = new ArrayList<>(bands);
+		for (int b = 0; b < bands; ++b) {
+			buckets.add(new ConcurrentHashMap<>());
+		}
+	}
+
+	/**
+	 * Creates an index that is filled through {@link #put(long, UserFeatures)} only.
+	 */
+	MinHashIndex(int bands, int rows) {
+		this(null, bands, rows);
+		this.loaded = true;
+	}
+
+	public int getBands() {
+		return bands;
+	}
+
+	public int getRows() {
+		return rows;
+	}
+
+	/**
+	 * Returns the IDs of the users that share at least one LSH band with the given features, i.e. the users that are likely to have a high
+	 * Jaccard similarity with them.
+	 *
+	 * @param userId   the ID of the user to find candidates for; it is never part of the result
+	 * @param features the features of that user
+	 *
+	 * @return the IDs of the approximate candidates; empty if the user has no interests or groups.
+	 */
+	public Set<Long> candidates(long userId, UserFeatures features) {
+		ensureLoaded();
+		long[] keys = bandKeysOf(features);
+		Set<Long> ids = new HashSet<>();
+		if (keys == null) return ids;
+		for (int b = 0; b < bands; ++b) {
+			ids.addAll(buckets.get(b).getOrDefault(keys[b], Collections.emptySet()));
+		}
+		ids.remove(userId);
+		return ids;
+	}
+
+	/**
+	 * (Re)indexes a user.
+	 *
+	 * @param userId   the ID of the user
+	 * @param features the current features of the user
+	 */
+	public void put(long userId, UserFeatures features) {
+		long[] keys = bandKeysOf(features);
+		bandKeys.compute(userId, (id, old) -> {
+			if (old != null) forEachBucket(old, bucket -> bucket.remove(id));
+			if (keys != null) {
+				for (int b = 0; b < bands; ++b) {
+					buckets.get(b).computeIfAbsent(keys[b], k -> ConcurrentHashMap.newKeySet()).add(id);
+				}
+			}
+			return keys;
+		});
+	}
+
+	/**
+	 * Removes a user from the index.
+	 *
+	 * @param userId the ID of the user to remove
+	 */
+	public void remove(long userId) {
+		bandKeys.computeIfPresent(userId, (id, old) -> {
+			forEachBucket(old, bucket -> bucket.remove(id));
+			return null;
+		});
+	}
+
+	/**
+	 * Makes the index put every user of the feature index again before it is next read. An index that is filled through
+	 * {@link #put(long, UserFeatures)} only is left as it is.
+	 */
+	public void markStale() {
+		if (featureIndex != null) loaded = false;
+	}
+
+	private void ensureLoaded() {
+		if (loaded) return;
+		synchronized (this) {
+			if (loaded) return;
+			featureIndex.forEachIndexed(this::put);
+			loaded = true;
+		}
+	}
+
+	private void forEachBucket(long[] keys, Consumer<Set<Long>> action) {
+		for (int b = 0; b < bands; ++b) {
+			Set<Long> bucket = buckets.get(b).get(keys[b]);
+			if (bucket != null) action.accept(bucket);
+		}
+	}
+
+	/* One key per band, hashed from the band's rows; null when there is nothing to hash */
+	private long[] bandKeysOf(UserFeatures features) {
+		long[] signature = new long[multipliers.length];
+		Arrays.fill(signature, Long.MAX_VALUE);
+		boolean[] empty = {true};
+		features.forEachToken(token -> {
+			empty[0] = false;
+			for (int i = 0; i < signature.length; ++i) {
+				long h = mix(token * multipliers[i] + offsets[i]);
+				if (h < signature[i]) signature[i] = h;
+			}
+		});
+		if (empty[0]) return null;
+
+		long[] keys = new long[bands];
+		for (int b = 0; b < bands; ++b) {
+			long key = 1;
+			for (int r = b * rows; r < (b + 1) * rows; ++r) {
+				key = 31 * key + signature[r];
+			}
+			keys[b] = mix(key);
+		}
+		return keys;
+	}
+
+	/* Finalizer of MurmurHash3, spreads the bits of a linear hash */
+	private static long mix(long h) {
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return h;
+	}
+}
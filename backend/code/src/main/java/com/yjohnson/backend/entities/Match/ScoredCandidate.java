@@ -0,0 +1,39 @@
+package com.yjohnson.backend.entities.Match;
+
+import java.util.Comparator;
+
+/**
+ * A candidate user ID paired with its match score. Candidates are ranked by descending score; ties are broken by ascending user ID so that the
+ * ranking is deterministic.
+ */
+public final class ScoredCandidate {
+	/**
+	 * Orders candidates from the best match to the worst.
+	 */
+	public static final Comparator<ScoredCandidate> RANKING = Comparator.comparingInt(ScoredCandidate::getScore).reversed()
+	                                                                    .thenComparingLong(ScoredCandidate::getUserId);
+
+	private final long userId;
+	private final int score;
+
+	public ScoredCandidate(long userId, int score) {
+		this.userId = userId;
+		this.score = score;
+	}
+
+	public long getUserId() {
+		return userId;
+	}
+
+	public int getScore() {
+		return score;
+	}
+
+	@Override
+	public String toString() {
+		return "ScoredCandidate{" +
+				"userId=" + userId +
+				", score=" + score +
+				'}';
+	}
+}
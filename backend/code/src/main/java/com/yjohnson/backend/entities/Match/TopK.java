@@ -0,0 +1,68 @@
+package com.yjohnson.backend.entities.Match;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Keeps the {@code k} best {@link ScoredCandidate}s offered to it using a bounded min-heap, so ranking {@code n} candidates costs {@code O(n log k)}
+ * time and {@code O(k)} memory. The root of the heap is always the worst candidate kept so far. This class is not thread-safe.
+ */
+public class TopK {
+	private final int k;
+	private final PriorityQueue<ScoredCandidate> heap;
+
+	public TopK(int k) {
+		if (k <= 0) throw new IllegalArgumentException("k must be positive");
+		this.k = k;
+		this.heap = new PriorityQueue<>(Math.min(k, 1024) + 1, ScoredCandidate.RANKING.reversed());
+	}
+
+	/**
+	 * Offers a candidate; it is kept only if it ranks among the best {@code k} seen so far.
+	 *
+	 * @param userId the ID of the candidate user
+	 * @param score  the match score of the candidate
+	 */
+	public void offer(long userId, int score) {
+		if (heap.size() < k) {
+			heap.add(new ScoredCandidate(userId, score));
+			return;
+		}
+		ScoredCandidate worst = heap.peek();
+		if (score > worst.getScore() || (score == worst.getScore() && userId < worst.getUserId())) {
+			heap.poll();
+			heap.add(new ScoredCandidate(userId, score));
+		}
+	}
+
+	/**
+	 * Offers every candidate kept by another instance, e.g. when merging the results of several workers. The result does not depend on the order
+	 * in which instances are merged.
+	 *
+	 * @param other the instance to merge into this one
+	 *
+	 * @return this instance.
+	 */
+	public TopK merge(TopK other) {
+		for (ScoredCandidate c : other.heap) {
+			offer(c.getUserId(), c.getScore());
+		}
+		return this;
+	}
+
+	public int size() {
+		return heap.size();
+	}
+
+	/**
+	 * Returns the kept candidates from the best match to the worst.
+	 *
+	 * @return a new list with at most {@code k} candidates.
+	 */
+	public List<ScoredCandidate> toSortedList() {
+		List<ScoredCandidate> list = new ArrayList<>(heap);
+		list.sort(ScoredCandidate.RANKING);
+		return list;
+	}
+}
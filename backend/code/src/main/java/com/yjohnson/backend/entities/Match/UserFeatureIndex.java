@@ -0,0 +1,481 @@
+package com.yjohnson.backend.entities.Match;
+
+import com.yjohnson.backend.entities.DB_Relations.R_UserGroup;
+import com.yjohnson.backend.entities.DB_Relations.R_UserInterest;
+import com.yjohnson.backend.entities.Group.GroupType;
+import com.yjohnson.backend.entities.User.User;
+import com.yjohnson.backend.entities.User.UserRepository;
+import org.hibernate.Hibernate;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.IntConsumer;
+
+/**
+ * Keeps an in-memory copy of every user's matching features (interests, majors, colleges and classification) as compact bitsets. Interests and
+ * groups are assigned dense slots the first time they are seen so that two users can be compared with a handful of {@code AND} + popcount
+ * operations instead of iterating over their relation sets.
+ * <p>
+ * The score computed here is identical to {@link MatchEntity#calculateScore()}. Entries are kept fresh by {@link MatchDeltaService}, which
+ * {@code UserService} notifies whenever a user or one of its relations changes.
+ * <p>
+ * Alongside the bitsets, the index keeps an inverted index from every interest, group and classification to the IDs of the users that have it
+ * (posting lists). Merging a user's posting lists yields exactly the users that would score above zero against them, so matching only has to look
+ * at those instead of the whole user table. Group and classification posting lists, as well as the list of all users, are {@link IdPool}s, so
+ * random matches can be picked in constant time. The index is filled from the database the first time candidates are requested.
+ */
+@Service
+public class UserFeatureIndex {
+	static final int MAX_SAMPLING_ATTEMPTS = 32;
+
+	private final UserRepository userRepository;
+	private final Map<Long, Integer> interestSlots = new ConcurrentHashMap<>();
+	private final Map<Long, Integer> groupSlots = new ConcurrentHashMap<>();
+	private final AtomicInteger nextInterestSlot = new AtomicInteger();
+	private final AtomicInteger nextGroupSlot = new AtomicInteger();
+	private final Map<Long, UserFeatures> features = new ConcurrentHashMap<>();
+	private final Map<Integer, Set<Long>> interestPostings = new ConcurrentHashMap<>();
+	private final Map<Integer, IdPool> groupPostings = new ConcurrentHashMap<>();
+	private final Map<Integer, IdPool> classificationPostings = new ConcurrentHashMap<>();
+	private final IdPool allUsers = new IdPool();
+	private volatile boolean loaded = false;
+
+	public UserFeatureIndex(UserRepository userRepository) {
+		this.userRepository = userRepository;
+	}
+
+	/**
+	 * Returns the IDs of every user that shares at least one interest, major, college or the classification with the given user, i.e. every user
+	 * whose score against the given user is not zero. The given user is never part of the result.
+	 *
+	 * @param user the user to find candidates for
+	 *
+	 * @return the IDs of all users with a non-zero overlap.
+	 */
+	public Set<Long> candidates(User user) {
+		ensureLoaded();
+		UserFeatures f = featuresOf(user);
+		Set<Long> ids = new HashSet<>();
+		mergePostings(ids, interestPostings, f.interests);
+		mergePools(ids, groupPostings, f.groups);
+		classificationPostings.getOrDefault(f.classification, IdPool.EMPTY).addTo(ids);
+		ids.remove(user.getId());
+		return ids;
+	}
+
+	/**
+	 * Returns the IDs of every user that shares at least one major or college with the given user.
+	 *
+	 * @param user the user to find candidates for
+	 *
+	 * @return the IDs of all users that share a group.
+	 */
+	public Set<Long> groupCandidates(User user) {
+		ensureLoaded();
+		Set<Long> ids = new HashSet<>();
+		mergePools(ids, groupPostings, featuresOf(user).groups);
+		ids.remove(user.getId());
+		return ids;
+	}
+
+	/**
+	 * Returns the IDs of every user that has the same classification as the given user.
+	 *
+	 * @param user the user to find candidates for
+	 *
+	 * @return the IDs of all users in the same class.
+	 */
+	public Set<Long> classificationCandidates(User user) {
+		ensureLoaded();
+		Set<Long> ids = new HashSet<>();
+		classificationPostings.getOrDefault(featuresOf(user).classification, IdPool.EMPTY).addTo(ids);
+		ids.remove(user.getId());
+		return ids;
+	}
+
+	/**
+	 * Calculates the match score of two users from their indexed features.
+	 *
+	 * @param matcher the user that is matching
+	 * @param matchee the user being matched against
+	 *
+	 * @return the same value {@code new MatchEntity(matcher, matchee).getScore()} would produce.
+	 */
+	public int score(User matcher, User matchee) {
+		return featuresOf(matcher).score(featuresOf(matchee));
+	}
+
+	/**
+	 * Calculates the match score of a user against an indexed user, identified by its ID.
+	 *
+	 * @param matcher   the user that is matching
+	 * @param matcheeId the ID of the user being matched against
+	 *
+	 * @return the match score, or zero if no user with that ID is indexed.
+	 */
+	public int score(User matcher, Long matcheeId) {
+		UserFeatures matchee = features.get(matcheeId);
+		return matchee == null ? 0 : featuresOf(matcher).score(matchee);
+	}
+
+	/**
+	 * Returns the indexed features of a user, identified by its ID, without indexing anything.
+	 *
+	 * @param userId the ID of the user to look up
+	 *
+	 * @return the features of the user, or {@code null} if no user with that ID is indexed.
+	 */
+	public UserFeatures indexed(long userId) {
+		return features.get(userId);
+	}
+
+	/**
+	 * Returns whether two users share at least one major or college.
+	 *
+	 * @param one user one
+	 * @param two user two
+	 *
+	 * @return true if the intersection of their majors and colleges is not empty.
+	 */
+	public boolean sharesGroup(User one, User two) {
+		return UserFeatures.intersectionCount(featuresOf(one).groups, featuresOf(two).groups) > 0;
+	}
+
+	/**
+	 * Returns whether two users have the same student classification.
+	 *
+	 * @param one user one
+	 * @param two user two
+	 *
+	 * @return true if both users have the same classification.
+	 */
+	public boolean sharesClassification(User one, User two) {
+		return featuresOf(one).classification == featuresOf(two).classification;
+	}
+
+	/**
+	 * Returns the indexed features of the given user, indexing it first if it has not been seen yet.
+	 *
+	 * @param user the user to look up
+	 *
+	 * @return the features of the user.
+	 */
+	public UserFeatures featuresOf(User user) {
+		return features.computeIfAbsent(user.getId(), id -> {
+			UserFeatures added = extract(user);
+			post(id, added);
+			return added;
+		});
+	}
+
+	/**
+	 * (Re)indexes the given user. Must be called after a user's classification, interests or groups have changed.
+	 *
+	 * @param user the user to index
+	 *
+	 * @return the features the user had before, or {@code null} if it was not indexed.
+	 */
+	public UserFeatures update(User user) {
+		return put(user.getId(), extract(user));
+	}
+
+	UserFeatures put(Long userId, UserFeatures updated) {
+		UserFeatures[] before = new UserFeatures[1];
+		features.compute(userId, (id, old) -> {
+			if (old != null) unpost(id, old);
+			before[0] = old;
+			post(id, updated);
+			return updated;
+		});
+		return before[0];
+	}
+
+	/**
+	 * Returns the IDs of every user whose score against the given user may have changed when its features went from {@code before} to
+	 * {@code after}: the users that have any of the interests or groups that were added or removed, and both classifications if it changed.
+	 *
+	 * @param userId the ID of the user that changed
+	 * @param before the features of the user before the change, or {@code null} if it was not indexed
+	 * @param after  the features of the user after the change
+	 *
+	 * @return the IDs of the affected users, never including the given user.
+	 */
+	public Set<Long> usersAffectedBy(Long userId, UserFeatures before, UserFeatures after) {
+		ensureLoaded();
+		UserFeatures old = before != null ? before : new UserFeatures(new long[0], new long[0], Integer.MIN_VALUE);
+		Set<Long> ids = new HashSet<>();
+		mergePostings(ids, interestPostings, UserFeatures.difference(old.interests, after.interests));
+		mergePools(ids, groupPostings, UserFeatures.difference(old.groups, after.groups));
+		if (old.classification != after.classification) {
+			classificationPostings.getOrDefault(old.classification, IdPool.EMPTY).addTo(ids);
+			classificationPostings.getOrDefault(after.classification, IdPool.EMPTY).addTo(ids);
+		}
+		ids.remove(userId);
+		return ids;
+	}
+
+	/**
+	 * Picks a uniformly random indexed user in constant time.
+	 *
+	 * @param excludeId the ID of the user that must not be picked
+	 *
+	 * @return the ID of a random user, or empty if there is no other user.
+	 */
+	public Optional<Long> randomUser(Long excludeId) {
+		ensureLoaded();
+		return Optional.ofNullable(allUsers.sample(ThreadLocalRandom.current(), excludeId));
+	}
+
+	/**
+	 * Picks a uniformly random user among those that share the chosen constraint with the given user, without collecting them first. A shared
+	 * class is a single posting list and is sampled directly. Shared majors and colleges are a union of posting lists: a member of one of them is
+	 * picked in proportion to the list sizes and accepted with probability {@code 1 / (number of the user's lists it is in)}, which makes every user
+	 * in the union equally likely. If no pick is accepted after {@value #MAX_SAMPLING_ATTEMPTS} attempts, the union is built and sampled instead.
+	 *
+	 * @param user   the user to find a candidate for
+	 * @param choice the constraint to match against
+	 *
+	 * @return the ID of a random candidate, or empty if there is none.
+	 */
+	public Optional<Long> randomCandidate(User user, GroupType choice) {
+		ensureLoaded();
+		UserFeatures f = featuresOf(user);
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		switch (choice) {
+			case STUDENT_CLASS:
+				return Optional.ofNullable(classificationPostings.getOrDefault(f.classification, IdPool.EMPTY).sample(random, user.getId()));
+			case COLLEGE:
+			case STUDENT_MAJOR:
+				return randomGroupCandidate(user.getId(), f, random);
+			default:
+				return Optional.empty();
+		}
+	}
+
+	private Optional<Long> randomGroupCandidate(Long userId, UserFeatures f, Random random) {
+		List<IdPool> pools = new ArrayList<>();
+		forEachSlot(f.groups, slot -> pools.add(groupPostings.getOrDefault(slot, IdPool.EMPTY)));
+		for (int attempt = 0; attempt < MAX_SAMPLING_ATTEMPTS; ++attempt) {
+			int total = 0;
+			for (IdPool pool : pools) {
+				total += pool.size();
+			}
+			if (total == 0) return Optional.empty();
+
+			int index = random.nextInt(total);
+			Long picked = null;
+			for (IdPool pool : pools) {
+				int size = pool.size();
+				if (index < size) {
+					picked = pool.get(index);
+					break;
+				}
+				index -= size;
+			}
+			if (picked == null || picked.equals(userId)) continue;
+			UserFeatures other = features.get(picked);
+			int shared = other == null ? 0 : UserFeatures.intersectionCount(f.groups, other.groups);
+			if (shared > 0 && random.nextInt(shared) == 0) return Optional.of(picked);
+		}
+
+		/* Mostly the user itself, e.g. alone in its groups; fall back to the exact union */
+		Set<Long> ids = new HashSet<>();
+		mergePools(ids, groupPostings, f.groups);
+		ids.remove(userId);
+		if (ids.isEmpty()) return Optional.empty();
+		int index = random.nextInt(ids.size());
+		for (Long id : ids) {
+			if (index-- == 0) return Optional.of(id);
+		}
+		return Optional.empty();
+	}
+
+	/**
+	 * Passes every indexed user to the given action, filling the index first if needed.
+	 *
+	 * @param action called with the ID and the features of every indexed user
+	 */
+	public void forEachIndexed(BiConsumer<Long, UserFeatures> action) {
+		ensureLoaded();
+		features.forEach(action);
+	}
+
+	/**
+	 * Removes a user from the index.
+	 *
+	 * @param userId the ID of the user to remove
+	 */
+	public void remove(Long userId) {
+		features.computeIfPresent(userId, (id, old) -> {
+			unpost(id, old);
+			return null;
+		});
+	}
+
+	/**
+	 * Makes the index fill itself from the database again before it is next read, to pick up users that were saved without being indexed. Users
+	 * that are indexed already are kept as they are.
+	 */
+	public void markStale() {
+		loaded = false;
+	}
+
+	/**
+	 * Fills the index once the application is up, so that changes made through {@link #update(User)} always have a previous state to be compared
+	 * against.
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	public void warmUp() {
+		ensureLoaded();
+	}
+
+	/* Users that are already indexed were updated after this snapshot was read, so they are kept as they are */
+	private void ensureLoaded() {
+		if (loaded) return;
+		synchronized (this) {
+			if (loaded) return;
+			userRepository.findAllWithRelations().forEach(this::featuresOf);
+			loaded = true;
+		}
+	}
+
+	private void post(Long userId, UserFeatures f) {
+		forEachSlot(f.interests, slot -> interestPostings.computeIfAbsent(slot, k -> ConcurrentHashMap.newKeySet()).add(userId));
+		forEachSlot(f.groups, slot -> groupPostings.computeIfAbsent(slot, k -> new IdPool()).add(userId));
+		classificationPostings.computeIfAbsent(f.classification, k -> new IdPool()).add(userId);
+		allUsers.add(userId);
+	}
+
+	private void unpost(Long userId, UserFeatures f) {
+		forEachSlot(f.interests, slot -> interestPostings.getOrDefault(slot, Collections.emptySet()).remove(userId));
+		forEachSlot(f.groups, slot -> groupPostings.getOrDefault(slot, IdPool.EMPTY).remove(userId));
+		classificationPostings.getOrDefault(f.classification, IdPool.EMPTY).remove(userId);
+		allUsers.remove(userId);
+	}
+
+	private static void mergePostings(Set<Long> into, Map<Integer, Set<Long>> postings, long[] slots) {
+		forEachSlot(slots, slot -> into.addAll(postings.getOrDefault(slot, Collections.emptySet())));
+	}
+
+	private static void mergePools(Set<Long> into, Map<Integer, IdPool> postings, long[] slots) {
+		forEachSlot(slots, slot -> postings.getOrDefault(slot, IdPool.EMPTY).addTo(into));
+	}
+
+	private static void forEachSlot(long[] words, IntConsumer action) {
+		for (int w = 0; w < words.length; ++w) {
+			long word = words[w];
+			while (word != 0) {
+				action.accept((w << 6) + Long.numberOfTrailingZeros(word));
+				word &= word - 1;
+			}
+		}
+	}
+
+	private UserFeatures extract(User user) {
+		/* Relations are lazy; a user loaded without them is read again with them rather than one relation at a time */
+		if (!Hibernate.isInitialized(user.getInterests()) || !Hibernate.isInitialized(user.getGroups())) {
+			user = userRepository.findWithRelationsById(user.getId()).orElse(user);
+		}
+		long[] interests = new long[0];
+		if (user.getInterests() != null) {
+			for (R_UserInterest relation : user.getInterests()) {
+				interests = UserFeatures.set(interests, slotOf(interestSlots, nextInterestSlot, relation.getInterest().getId()));
+			}
+		}
+
+		/* Only majors and colleges count towards the score, see User.getMajors() and User.getColleges() */
+		long[] groups = new long[0];
+		if (user.getGroups() != null) {
+			for (R_UserGroup relation : user.getGroups()) {
+				GroupType type = relation.getGroup().groupType;
+				if (type == GroupType.STUDENT_MAJOR || type == GroupType.COLLEGE) {
+					groups = UserFeatures.set(groups, slotOf(groupSlots, nextGroupSlot, relation.getGroup().getId()));
+				}
+			}
+		}
+
+		Enum<?> classification = user.getClassification();
+		return new UserFeatures(interests, groups, classification == null ? -1 : classification.ordinal());
+	}
+
+	private static int slotOf(Map<Long, Integer> slots, AtomicInteger next, Long id) {
+		return slots.computeIfAbsent(id, k -> next.getAndIncrement());
+	}
+
+	/**
+	 * Immutable snapshot of a single user's features. Interests and groups are stored as bitsets packed into {@code long} words, indexed by the
+	 * dense slot of the interest or group.
+	 */
+	public static final class UserFeatures {
+		private final long[] interests;
+		private final long[] groups;
+		private final int classification;
+
+		UserFeatures(long[] interests, long[] groups, int classification) {
+			this.interests = interests;
+			this.groups = groups;
+			this.classification = classification;
+		}
+
+		/**
+		 * Calculates the match score between these features and another user's.
+		 *
+		 * @param other the features to compare against
+		 *
+		 * @return one point for the same classification plus one point for every shared interest, major and college.
+		 */
+		public int score(UserFeatures other) {
+			int i = classification == other.classification ? 1 : 0;
+			i += intersectionCount(interests, other.interests);
+			i += intersectionCount(groups, other.groups);
+			return i;
+		}
+
+		/**
+		 * Passes every interest and group of these features to the given action as a single token space: interest slot {@code s} becomes token
+		 * {@code 2s} and group slot {@code s} becomes token {@code 2s + 1}.
+		 *
+		 * @param action called once per token
+		 */
+		public void forEachToken(IntConsumer action) {
+			forEachSlot(interests, slot -> action.accept(slot << 1));
+			forEachSlot(groups, slot -> action.accept((slot << 1) | 1));
+		}
+
+		static int intersectionCount(long[] a, long[] b) {
+			int count = 0;
+			for (int w = Math.min(a.length, b.length) - 1; w >= 0; --w) {
+				count += Long.bitCount(a[w] & b[w]);
+			}
+			return count;
+		}
+
+		/* Symmetric difference: the slots set in exactly one of the two bitsets */
+		static long[] difference(long[] a, long[] b) {
+			long[] longer = a.length >= b.length ? a : b;
+			long[] shorter = longer == a ? b : a;
+			long[] diff = longer.clone();
+			for (int w = 0; w < shorter.length; ++w) {
+				diff[w] ^= shorter[w];
+			}
+			return diff;
+		}
+
+		static long[] set(long[] words, int slot) {
+			int word = slot >>> 6;
+			if (word >= words.length) {
+				long[] grown = new long[word + 1];
+				System.arraycopy(words, 0, grown, 0, words.length);
+				words = grown;
+			}
+			words[word] |= 1L << slot;
+			return words;
+		}
+	}
+}
@@ -0,0 +1,73 @@
+package com.yjohnson.backend.entities.User;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads RFC 4180 CSV one record at a time: fields are separated by commas, records by LF or CRLF, and a field in double quotes may contain
+ * commas, line breaks and doubled quotes.
+ */
+final class CsvRecordReader {
+	private final Reader in;
+	private int next;
+	private long line = 1;
+
+	CsvRecordReader(Reader in) throws IOException {
+		this.in = in;
+		this.next = in.read();
+	}
+
+	/**
+	 * @return the number of the line the next record starts on.
+	 */
+	long getLine() {
+		return line;
+	}
+
+	/**
+	 * Reads the next record.
+	 *
+	 * @return the fields of the record, or {@code null} at the end of the input.
+	 *
+	 * @throws IOException if reading fails or a quoted field is not closed
+	 */
+	List<String> read() throws IOException {
+		if (next == -1) return null;
+		List<String> fields = new ArrayList<>();
+		StringBuilder field = new StringBuilder();
+		boolean quoted = false;
+		while (true) {
+			int c = next;
+			next = in.read();
+			if (quoted) {
+				if (c == -1) throw new IOException("Unterminated quoted field on line " + line);
+				if (c == '"') {
+					if (next == '"') {
+						field.append('"');
+						next = in.read();
+					} else {
+						quoted = false;
+					}
+				} else {
+					if (c == '\n') ++line;
+					field.append((char) c);
+				}
+			} else if (c == '"' && field.length() == 0) {
+				quoted = true;
+			} else if (c == ',') {
+				fields.add(field.toString());
+				field.setLength(0);
+			} else if (c == '\r' && next == '\n') {
+				/* Part of CRLF, the LF ends the record */
+			} else if (c == '\n' || c == -1) {
+				if (c == '\n') ++line;
+				fields.add(field.toString());
+				return fields;
+			} else {
+				field.append((char) c);
+			}
+		}
+	}
+}
@@ -1,17 +1,18 @@
 package com.yjohnson.backend.entities.User;
 
+import com.fasterxml.jackson.annotation.JsonFilter;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.yjohnson.backend.entities.DB_Relations.R_UserGroup;
 import com.yjohnson.backend.entities.DB_Relations.R_UserInterest;
 import com.yjohnson.backend.entities.Group.GroupEntity;
 import com.yjohnson.backend.entities.Group.GroupType;
 import com.yjohnson.backend.entities.Match.MatchEntity;
+import com.yjohnson.backend.json.SparseFieldset;
+import org.springframework.util.StringUtils;
 
 import javax.persistence.*;
 import java.io.Serializable;
-import java.util.HashSet;
-import java.util.Objects;
-import java.util.Set;
+import java.util.*;
 
 enum Gender {
 	MALE,
@@ -25,7 +26,36 @@ enum StudentClassification {
 
 @Entity
 @Table(name = "Users")
+@NamedEntityGraph(
+		name = User.WITH_RELATIONS,
+		attributeNodes = {
+				@NamedAttributeNode(value = "interestedIn", subgraph = "interest"),
+				@NamedAttributeNode(value = "partOf", subgraph = "group")
+		},
+		subgraphs = {
+				@NamedSubgraph(name = "interest", attributeNodes = @NamedAttributeNode("interest")),
+				@NamedSubgraph(name = "group", attributeNodes = @NamedAttributeNode("group"))
+		}
+)
+@JsonFilter(SparseFieldset.FILTER)
 public class User implements Serializable, Cloneable {
+	/**
+	 * The fields a client may ask for by name in a {@code fields} parameter.
+	 */
+	public static final Set<String> FIELDS;
+
+	static {
+		Set<String> fields = new HashSet<>(UserSummary.FIELDS);
+		fields.addAll(Arrays.asList("email", "address", "phoneNumber"));
+		FIELDS = Collections.unmodifiableSet(fields);
+	}
+
+	/**
+	 * Entity graph that fetches the interest and group relations together with the user. The relations are lazy; use this graph wherever they are
+	 * read, e.g. for scoring, so that they are loaded with one query instead of one per user and relation.
+	 */
+	public static final String WITH_RELATIONS = "User.withRelations";
+
 	@Column(nullable = false)
 	private boolean premium;
 	@Column(nullable = false, unique = true)
@@ -48,10 +78,10 @@ public class User implements Serializable, Cloneable {
 	private StudentClassification classification;
 	@Enumerated(EnumType.STRING)
 	private Gender gender;
-	@OneToMany(cascade = CascadeType.ALL, fetch = FetchType.EAGER)
+	@OneToMany(cascade = CascadeType.ALL, fetch = FetchType.LAZY)
 	@JsonIgnore
 	private Set<R_UserInterest> interestedIn;
-	@OneToMany(cascade = CascadeType.ALL, fetch = FetchType.EAGER)
+	@OneToMany(cascade = CascadeType.ALL, fetch = FetchType.LAZY)
 	@JsonIgnore
 	private Set<R_UserGroup> partOf;
 	@Id
@@ -339,6 +369,20 @@ public class User implements Serializable, Cloneable {
 		return username != null && email != null && firstName != null && lastName != null && passwordHash != null && classification != null;
 	}
 
+	/**
+	 * Sanitizes the fields that users type in: the names are trimmed and capitalized in Title case (e.g. "marTHa" - "Martha"), the username and
+	 * email are lowercased without any whitespace and the phone number is stripped of separators and padded to 10 characters. Only call this on a
+	 * user that passed {@link #validate()}.
+	 */
+	public void normalize() {
+		firstName = StringUtils.trimWhitespace(StringUtils.capitalize(firstName.toLowerCase()));
+		if (middleName != null) middleName = StringUtils.trimWhitespace(StringUtils.capitalize(middleName.toLowerCase()));
+		lastName = StringUtils.trimWhitespace(StringUtils.capitalize(lastName.toLowerCase()));
+		username = StringUtils.trimAllWhitespace(username.toLowerCase());
+		email = StringUtils.trimAllWhitespace(email.toLowerCase());
+		if (phoneNumber != null) phoneNumber = String.format("%10s", StringUtils.deleteAny(phoneNumber, "-()/_-+ "));
+	}
+
 	public int getProfilePicture() {
 		return profilePicture;
 	}
@@ -1,37 +1,53 @@
 package com.yjohnson.backend.entities.User;
 
+import com.yjohnson.backend.entities.DB_Relations.BulkRelationResult;
 import com.yjohnson.backend.entities.DB_Relations.R_UserGroup;
 import com.yjohnson.backend.entities.DB_Relations.R_UserInterest;
 import com.yjohnson.backend.entities.Match.MatchService;
 import com.yjohnson.backend.exceptions.CybudsActionResultsInConflictException;
 import com.yjohnson.backend.exceptions.CybudsEntityByIdNotFoundException;
+import com.yjohnson.backend.json.SparseFieldset;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import org.springframework.dao.DataIntegrityViolationException;
-import org.springframework.http.HttpStatus;
-import org.springframework.http.ResponseEntity;
+import org.springframework.http.*;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
-import java.util.Optional;
+import java.io.InputStream;
+import java.util.*;
 
 @RestController
 @RequestMapping(path = "/users")
 public class UserController {
+	/* Upper bound on the IDs of one bulk relation request, which runs as a single transaction */
+	static final int MAX_BULK_SIZE = 500;
+	static final int DEFAULT_PAGE_SIZE = 100;
+	static final int MAX_PAGE_SIZE = 1000;
+
 	private final MatchService matchService;
 	private final UserService userService;
+	private final UserImportService userImportService;
+	private final UserProfileService userProfileService;
 
-	public UserController(MatchService matchService, UserService userService) {
+	public UserController(MatchService matchService, UserService userService, UserImportService userImportService,
+	                      UserProfileService userProfileService) {
 		this.matchService = matchService;
 		this.userService = userService;
+		this.userImportService = userImportService;
+		this.userProfileService = userProfileService;
 	}
 
 	/**
 	 * Retrieves a {@code User} from the database whose ID or username matches the given path variable. Only one of the two is required.
 	 *
 	 * @param identifier the id or username of the user to retrieve
+	 * @param fields     the comma-separated fields to return, e.g. {@code firstName,biography}; all fields by default
 	 *
 	 * @return the {@code User} object that corresponds with the path variable (OK) or an empty body (BAD REQUEST or NOT FOUND).
 	 */
@@ -40,29 +56,226 @@ public class UserController {
 			@ApiResponse(responseCode = "200", description = "Got the user", content = {
 					@Content(mediaType = "application/json", schema = @Schema(implementation = User.class))
 			}),
-			@ApiResponse(responseCode = "400", description = "Missing parameter"),
+			@ApiResponse(responseCode = "400", description = "Missing parameter or unknown field"),
 			@ApiResponse(responseCode = "404", description = "User not found")
 	})
 	@GetMapping("/{identifier}")
-	public ResponseEntity<?> getUser(@PathVariable Optional<String> identifier) {
+	public ResponseEntity<?> getUser(@PathVariable Optional<String> identifier, @RequestParam Optional<String> fields) {
 		Optional<User> optionalUser;
+		Optional<SparseFieldset> fieldset;
 		if (identifier.isPresent()) {
+			try {
+				fieldset = SparseFieldset.parse(fields, User.FIELDS, Collections.emptyMap());
+			} catch (IllegalArgumentException e) {
+				return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+			}
 			optionalUser = userService.getUserByString(identifier.get());
 		} else return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
 
 		// If it is a valid identifier then return the user associated with it
-		return optionalUser.map(user -> new ResponseEntity<>(user, HttpStatus.OK)).orElseGet(() -> new ResponseEntity<>(HttpStatus.NOT_FOUND));
+		return optionalUser.map(user -> new ResponseEntity<Object>(fieldset.isPresent() ? fieldset.get().apply(user) : user, HttpStatus.OK))
+		                   .orElseGet(() -> new ResponseEntity<>(HttpStatus.NOT_FOUND));
 	}
 
 	/**
-	 * Retrieves all the {@code User} objects in the database.
+	 * Retrieves everything a profile screen shows in one request: the user, their groups, their interests and their top matches. The sections are
+	 * read in parallel, see {@link UserProfileService}.
+	 *
+	 * @param id      the ID of the user
+	 * @param fields  the comma-separated sections to return, e.g. {@code user,matches}; all sections by default
+	 * @param matches the maximum number of top matches to return, at most {@value UserProfileService#MAX_MATCHES};
+	 *                {@value UserProfileService#DEFAULT_MATCHES} by default
 	 *
-	 * @return all the users in the database
+	 * @return the profile (OK) or an empty body (BAD REQUEST or NOT FOUND).
 	 */
-	@Operation(summary = "Gets all users")
+	@Operation(summary = "Get a user with their groups, interests and top matches")
+	@ApiResponses(value = {
+			@ApiResponse(responseCode = "200", description = "Got the profile", content = {
+					@Content(mediaType = "application/json", schema = @Schema(implementation = UserProfile.class))
+			}),
+			@ApiResponse(responseCode = "400", description = "Missing parameter, unknown section, or matches not between 1 and " +
+					UserProfileService.MAX_MATCHES),
+			@ApiResponse(responseCode = "404", description = "User not found")
+	})
+	@GetMapping("/{id}/profile")
+	public ResponseEntity<UserProfile> getProfile(@PathVariable Optional<Long> id, @RequestParam Optional<String> fields,
+	                                              @RequestParam Optional<Integer> matches) {
+		/* Parameter Checking */
+		int matchCount = matches.orElse(UserProfileService.DEFAULT_MATCHES);
+		if (!id.isPresent() || matchCount < 1 || matchCount > UserProfileService.MAX_MATCHES) return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+		Collection<String> sections;
+		try {
+			sections = SparseFieldset.parse(fields, UserProfile.SECTIONS, Collections.emptyMap())
+			                         .map(SparseFieldset::getNames)
+			                         .orElse(UserProfile.SECTIONS);
+		} catch (IllegalArgumentException e) {
+			return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+		}
+
+		return userProfileService.getProfile(id.get(), sections, matchCount)
+		                         .map(profile -> new ResponseEntity<>(profile, HttpStatus.OK))
+		                         .orElseGet(() -> new ResponseEntity<>(HttpStatus.NOT_FOUND));
+	}
+
+	/**
+	 * Lists the public columns of the users in ID order, one page at a time. Pass the last ID of a page as {@code afterId} to get the next one;
+	 * its link is also given in the {@code Link} header of every full page. {@code page} skips whole pages by offset instead.
+	 * <p>
+	 * With {@code fields}, only those columns and the ID are selected and returned.
+	 *
+	 * @param afterId only users with a greater ID are listed, 0 by default
+	 * @param page    the number of pages to skip after {@code afterId}, 0 by default
+	 * @param size    the maximum number of users to list, {@value #DEFAULT_PAGE_SIZE} by default
+	 * @param fields  the comma-separated columns to return, e.g. {@code firstName,biography}; all public columns by default
+	 *
+	 * @return the users of the page (OK) or an empty body (BAD REQUEST).
+	 */
+	@Operation(summary = "Lists users one page at a time")
+	@ApiResponses(value = {
+			@ApiResponse(responseCode = "200", description = "Got the page", content = {
+					@Content(mediaType = "application/json", array = @ArraySchema(schema = @Schema(implementation = UserSummary.class)))
+			}),
+			@ApiResponse(responseCode = "400", description = "Negative page or afterId, size not between 1 and " + MAX_PAGE_SIZE + ", or unknown field")
+	})
 	@GetMapping
-	public Iterable<User> getAllUsers() {
-		return userService.getAllUsersFromDB();    //1
+	public ResponseEntity<List<?>> getAllUsers(@RequestParam Optional<Long> afterId, @RequestParam Optional<Integer> page,
+	                                           @RequestParam Optional<Integer> size, @RequestParam Optional<String> fields) {
+		/* Parameter Checking */
+		int pageSize = size.orElse(DEFAULT_PAGE_SIZE);
+		if (afterId.orElse(0L) < 0 || page.orElse(0) < 0 || pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+			return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+		}
+		Optional<SparseFieldset> fieldset;
+		try {
+			fieldset = SparseFieldset.parse(fields, UserSummary.FIELDS, Collections.emptyMap());
+		} catch (IllegalArgumentException e) {
+			return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+		}
+
+		List<?> users;
+		Long lastId = null;
+		if (fieldset.isPresent()) {
+			List<Map<String, Object>> rows = userService.getUserFields(afterId.orElse(0L), page.orElse(0), pageSize, fieldset.get().getNames());
+			if (!rows.isEmpty()) lastId = (Long) rows.get(rows.size() - 1).get("id");
+			users = rows;
+		} else {
+			List<UserSummary> summaries = userService.getUserSummaries(afterId.orElse(0L), page.orElse(0), pageSize);
+			if (!summaries.isEmpty()) lastId = summaries.get(summaries.size() - 1).getId();
+			users = summaries;
+		}
+		HttpHeaders headers = new HttpHeaders();
+		if (users.size() == pageSize) {
+			String next = ServletUriComponentsBuilder.fromCurrentRequest().replaceQueryParam("page").replaceQueryParam("afterId", lastId)
+			                                         .toUriString();
+			headers.add(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"");
+		}
+		return new ResponseEntity<>(users, headers, HttpStatus.OK);
+	}
+
+	/**
+	 * Streams the public columns of all users as newline-delimited JSON, in ID order. Chosen over the paged listing when the client accepts
+	 * {@code application/x-ndjson}.
+	 *
+	 * @param afterId only users with a greater ID are listed, 0 by default
+	 * @param fields  the comma-separated columns to return; all public columns by default
+	 *
+	 * @return a streamed response of the users (OK) or an empty body (BAD REQUEST).
+	 */
+	@Operation(summary = "Streams all users as NDJSON")
+	@ApiResponses(value = {
+			@ApiResponse(responseCode = "200", description = "Streaming the users", content = {
+					@Content(mediaType = "application/x-ndjson", schema = @Schema(implementation = UserSummary.class))
+			}),
+			@ApiResponse(responseCode = "400", description = "Negative afterId or unknown field")
+	})
+	@GetMapping(produces = "application/x-ndjson")
+	public ResponseEntity<StreamingResponseBody> streamAllUsers(@RequestParam Optional<Long> afterId, @RequestParam Optional<String> fields) {
+		/* Parameter Checking */
+		if (afterId.orElse(0L) < 0) return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+		Optional<SparseFieldset> fieldset;
+		try {
+			fieldset = SparseFieldset.parse(fields, UserSummary.FIELDS, Collections.emptyMap());
+		} catch (IllegalArgumentException e) {
+			return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+		}
+
+		HttpHeaders headers = new HttpHeaders();
+		headers.setContentType(MediaType.parseMediaType("application/x-ndjson"));
+		headers.setCacheControl(CacheControl.noCache());
+		return new ResponseEntity<>(
+				fieldset.isPresent()
+						? userService.streamUserFields(afterId.orElse(0L), fieldset.get().getNames())
+						: userService.streamUserSummaries(afterId.orElse(0L)),
+				headers,
+				HttpStatus.OK
+		);
+	}
+
+	/**
+	 * Retrieves up to {@value #MAX_BULK_SIZE} users by ID or username at once, with a single query, e.g. the users of a match list. Each
+	 * identifier is resolved like the path variable of {@code GET /users/{identifier}}.
+	 *
+	 * @param identifiers the ids or usernames of the users to retrieve
+	 * @param fields      the comma-separated fields of the users to return; all fields by default
+	 *
+	 * @return one result per identifier in request order, with the user or a {@code NOT_FOUND} status (OK), or an empty body (BAD REQUEST).
+	 */
+	@Operation(summary = "Get several users by their IDs or usernames")
+	@ApiResponses(value = {
+			@ApiResponse(responseCode = "200", description = "Looked up every identifier; see the status of each result", content = {
+					@Content(mediaType = "application/json", array = @ArraySchema(schema = @Schema(implementation = UserLookupResult.class)))
+			}),
+			@ApiResponse(responseCode = "400", description = "Missing parameter, null identifier, more than " + MAX_BULK_SIZE + " identifiers, or " +
+					"unknown field")
+	})
+	@PostMapping("/batch")
+	public ResponseEntity<?> getUsers(@RequestBody Optional<List<String>> identifiers, @RequestParam Optional<String> fields) {
+		/* Parameter Checking */
+		if (!identifiers.isPresent() || identifiers.get().isEmpty() || identifiers.get().size() > MAX_BULK_SIZE ||
+				identifiers.get().contains(null)) {
+			return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+		}
+		Optional<SparseFieldset> fieldset;
+		try {
+			fieldset = SparseFieldset.parse(fields, User.FIELDS, Collections.emptyMap());
+		} catch (IllegalArgumentException e) {
+			return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+		}
+
+		List<UserLookupResult> results = userService.getUsersByStrings(identifiers.get());
+		return new ResponseEntity<>(
+				fieldset.isPresent() ? fieldset.get().apply(results, Collections.singletonList("user")) : results,
+				HttpStatus.OK
+		);
+	}
+
+	/**
+	 * Imports users in bulk from a CSV file with a header row or from newline-delimited JSON, one user per row. Majors, colleges and interests are
+	 * given by name. The users are committed in batches while the request body is read, and the import is reported as newline-delimited JSON
+	 * events: an {@code error} event for every rejected row, a {@code progress} event after every batch and a final {@code done} event.
+	 *
+	 * @param contentType {@code text/csv} or {@code application/x-ndjson}
+	 * @param body        the users to import
+	 *
+	 * @return a streamed report of the import (OK) or an empty body (UNSUPPORTED MEDIA TYPE).
+	 */
+	@Operation(summary = "Import users in bulk from CSV or NDJSON")
+	@ApiResponses(value = {
+			@ApiResponse(responseCode = "200", description = "Streaming the progress of the import", content = {
+					@Content(mediaType = "application/x-ndjson")
+			}),
+			@ApiResponse(responseCode = "415", description = "Body is neither text/csv nor application/x-ndjson")
+	})
+	@PostMapping("/import")
+	public ResponseEntity<StreamingResponseBody> importUsers(@RequestHeader(value = HttpHeaders.CONTENT_TYPE, defaultValue = "") String contentType,
+	                                                         InputStream body) {
+		Optional<UserImportService.Format> format = UserImportService.Format.of(contentType);
+		if (!format.isPresent()) return new ResponseEntity<>(HttpStatus.UNSUPPORTED_MEDIA_TYPE);
+
+		HttpHeaders headers = new HttpHeaders();
+		headers.setContentType(MediaType.parseMediaType(UserImportService.Format.NDJSON.getMediaType()));
+		headers.setCacheControl(CacheControl.noStore());
+		return new ResponseEntity<>(userImportService.stream(body, format.get()), headers, HttpStatus.OK);
 	}
 
 	/**
@@ -173,6 +386,26 @@ public class UserController {
 		}
 	}
 
+	@Operation(summary = "Add several User-Group relations at once")
+	@ApiResponses(value = {
+			@ApiResponse(responseCode = "200", description = "Processed every group; see the status of each result", content = {
+					@Content(mediaType = "application/json", array = @ArraySchema(schema = @Schema(implementation = BulkRelationResult.class)))
+			}),
+			@ApiResponse(responseCode = "400", description = "Missing parameter, null ID, or more than " + MAX_BULK_SIZE + " IDs"),
+			@ApiResponse(responseCode = "404", description = "User not found")
+	})
+	@PostMapping("/{id}/groups")
+	public ResponseEntity<?> addGroupRelations(@PathVariable("id") Optional<Long> user_id, @RequestBody Optional<List<Long>> group_ids) {
+		/* Parameter Checking */
+		if (!user_id.isPresent() || !isValidBulk(group_ids)) return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+
+		try {
+			return new ResponseEntity<>(userService.ugService.addRelationsToUser(user_id.get(), group_ids.get()), HttpStatus.OK);
+		} catch (CybudsEntityByIdNotFoundException e) {
+			return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+		}
+	}
+
 	@Operation(summary = "Delete a User-Group relation based off both their IDs")
 	@ApiResponses(value = {
 			@ApiResponse(responseCode = "200", description = "Deleted the group", content = {
@@ -241,6 +474,26 @@ public class UserController {
 		}
 	}
 
+	@Operation(summary = "Add several User-Interest relations at once")
+	@ApiResponses(value = {
+			@ApiResponse(responseCode = "200", description = "Processed every interest; see the status of each result", content = {
+					@Content(mediaType = "application/json", array = @ArraySchema(schema = @Schema(implementation = BulkRelationResult.class)))
+			}),
+			@ApiResponse(responseCode = "400", description = "Missing parameter, null ID, or more than " + MAX_BULK_SIZE + " IDs"),
+			@ApiResponse(responseCode = "404", description = "User not found")
+	})
+	@PostMapping("/{id}/interests")
+	public ResponseEntity<?> addInterestRelations(@PathVariable("id") Optional<Long> user_id, @RequestBody Optional<List<Long>> interest_ids) {
+		/* Parameter Checking */
+		if (!user_id.isPresent() || !isValidBulk(interest_ids)) return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+
+		try {
+			return new ResponseEntity<>(userService.uiService.addRelationsToUser(user_id.get(), interest_ids.get()), HttpStatus.OK);
+		} catch (CybudsEntityByIdNotFoundException e) {
+			return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+		}
+	}
+
 	@Operation(summary = "Delete a User-Interest relation based off both their IDs")
 	@ApiResponses(value = {
 			@ApiResponse(responseCode = "200", description = "Deleted the interest", content = {
@@ -266,4 +519,7 @@ public class UserController {
 		}
 	}
 
-}
\ No newline at end of file
+	private static boolean isValidBulk(Optional<List<Long>> ids) {
+		return ids.isPresent() && !ids.get().isEmpty() && ids.get().size() <= MAX_BULK_SIZE && !ids.get().contains(null);
+	}
+}
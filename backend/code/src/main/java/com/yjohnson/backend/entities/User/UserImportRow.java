@@ -0,0 +1,189 @@
+package com.yjohnson.backend.entities.User;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One user of a bulk import, as read from an NDJSON line or a CSV record. Majors, colleges and interests are given by name; in CSV they are
+ * separated by semicolons within their column.
+ */
+public class UserImportRow {
+	private String username;
+	private String email;
+	private String passwordHash;
+	private String firstName;
+	private String middleName;
+	private String lastName;
+	private String address;
+	private String phoneNumber;
+	private String classification;
+	private String gender;
+	private String biography;
+	private List<String> majors = new ArrayList<>();
+	private List<String> colleges = new ArrayList<>();
+	private List<String> interests = new ArrayList<>();
+
+	/**
+	 * Sets a field from a CSV column. Empty values are treated as missing.
+	 *
+	 * @param column the name of the column, as in the header
+	 * @param value  the value of the column
+	 *
+	 * @throws IllegalArgumentException if there is no field with that name
+	 */
+	void set(String column, String value) {
+		String v = value.isEmpty() ? null : value;
+		switch (column) {
+			case "username": username = v; break;
+			case "email": email = v; break;
+			case "passwordHash": passwordHash = v; break;
+			case "firstName": firstName = v; break;
+			case "middleName": middleName = v; break;
+			case "lastName": lastName = v; break;
+			case "address": address = v; break;
+			case "phoneNumber": phoneNumber = v; break;
+			case "classification": classification = v; break;
+			case "gender": gender = v; break;
+			case "biography": biography = v; break;
+			case "majors": majors = split(v); break;
+			case "colleges": colleges = split(v); break;
+			case "interests": interests = split(v); break;
+			default: throw new IllegalArgumentException("Unknown column " + column);
+		}
+	}
+
+	private static List<String> split(String value) {
+		List<String> names = new ArrayList<>();
+		if (value == null) return names;
+		for (String name : value.split(";")) {
+			if (!name.trim().isEmpty()) names.add(name.trim());
+		}
+		return names;
+	}
+
+	/**
+	 * Checks the names of a CSV header.
+	 *
+	 * @param columns the column names
+	 *
+	 * @throws IllegalArgumentException if a column does not name a field
+	 */
+	static void checkColumns(List<String> columns) {
+		UserImportRow probe = new UserImportRow();
+		for (String column : columns) {
+			probe.set(column, "");
+		}
+	}
+
+	public String getUsername() {
+		return username;
+	}
+
+	public void setUsername(String username) {
+		this.username = username;
+	}
+
+	public String getEmail() {
+		return email;
+	}
+
+	public void setEmail(String email) {
+		this.email = email;
+	}
+
+	public String getPasswordHash() {
+		return passwordHash;
+	}
+
+	public void setPasswordHash(String passwordHash) {
+		this.passwordHash = passwordHash;
+	}
+
+	public String getFirstName() {
+		return firstName;
+	}
+
+	public void setFirstName(String firstName) {
+		this.firstName = firstName;
+	}
+
+	public String getMiddleName() {
+		return middleName;
+	}
+
+	public void setMiddleName(String middleName) {
+		this.middleName = middleName;
+	}
+
+	public String getLastName() {
+		return lastName;
+	}
+
+	public void setLastName(String lastName) {
+		this.lastName = lastName;
+	}
+
+	public String getAddress() {
+		return address;
+	}
+
+	public void setAddress(String address) {
+		this.address = address;
+	}
+
+	public String getPhoneNumber() {
+		return phoneNumber;
+	}
+
+	public void setPhoneNumber(String phoneNumber) {
+		this.phoneNumber = phoneNumber;
+	}
+
+	public String getClassification() {
+		return classification;
+	}
+
+	public void setClassification(String classification) {
+		this.classification = classification;
+	}
+
+	public String getGender() {
+		return gender;
+	}
+
+	public void setGender(String gender) {
+		this.gender = gender;
+	}
+
+	public String getBiography() {
+		return biography;
+	}
+
+	public void setBiography(String biography) {
+		this.biography = biography;
+	}
+
+	public List<String> getMajors() {
+		return majors;
+	}
+
+	public void setMajors(List<String> majors) {
+		this.majors = majors == null ? new ArrayList<>() : majors;
+	}
+
+	public List<String> getColleges() {
+		return colleges;
+	}
+
+	public void setColleges(List<String> colleges) {
+		this.colleges = colleges == null ? new ArrayList<>() : colleges;
+	}
+
+	public List<String> getInterests() {
+		return interests;
+	}
+
+	public void setInterests(List<String> interests) {
+		this.interests = interests == null ? new ArrayList<>() : interests;
+	}
+}
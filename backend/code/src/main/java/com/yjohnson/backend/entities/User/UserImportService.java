@@ -0,0 +1,420 @@
+package com.yjohnson.backend.entities.User;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yjohnson.backend.entities.DB_Relations.R_UserGroup;
+import com.yjohnson.backend.entities.DB_Relations.R_UserInterest;
+import com.yjohnson.backend.entities.Group.GroupEntity;
+import com.yjohnson.backend.entities.Group.GroupRepository;
+import com.yjohnson.backend.entities.Group.GroupType;
+import com.yjohnson.backend.entities.Interest.InterestEntity;
+import com.yjohnson.backend.entities.Interest.InterestRepository;
+import com.yjohnson.backend.entities.Match.MatchDeltaService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Imports many users at once from a CSV or NDJSON stream, e.g. a whole incoming class. The input is read one row at a time and the users are
+ * committed in transactions of {@code cybuds.import.batch-size} users, so neither the input nor the persistence context ever holds more than one
+ * batch.
+ * <p>
+ * Usernames and emails are checked against sets that are read once at the start of the import and grow with every accepted row, and majors,
+ * colleges and interests are resolved by name from maps read once as well, so a row costs no query of its own. A row that is invalid, taken, or
+ * refers to an unknown group or interest is reported and skipped; the other rows are still imported. Newly imported users are indexed for
+ * matching after every batch.
+ */
+@Service
+public class UserImportService {
+	private final Logger logger = LoggerFactory.getLogger(UserImportService.class);
+	private final UserRepository userRepository;
+	private final GroupRepository groupRepository;
+	private final InterestRepository interestRepository;
+	private final MatchDeltaService matchDeltaService;
+	private final TransactionTemplate transactionTemplate;
+	private final ObjectMapper objectMapper;
+	private final int batchSize;
+
+	public UserImportService(UserRepository userRepository, GroupRepository groupRepository, InterestRepository interestRepository,
+	                         MatchDeltaService matchDeltaService, TransactionTemplate transactionTemplate, ObjectMapper objectMapper,
+	                         @Value("${cybuds.import.batch-size:500}") int batchSize) {
+		if (batchSize <= 0) throw new IllegalArgumentException("batch-size must be positive");
+		this.userRepository = userRepository;
+		this.groupRepository = groupRepository;
+		this.interestRepository = interestRepository;
+		this.matchDeltaService = matchDeltaService;
+		this.transactionTemplate = transactionTemplate;
+		this.objectMapper = objectMapper;
+		this.batchSize = batchSize;
+	}
+
+	/**
+	 * Creates the body of an import response, which reports the import as newline-delimited JSON events while it runs: an {@code error} event
+	 * for every rejected row, a {@code progress} event after every committed batch and a final {@code done} event.
+	 *
+	 * @param in     the users to import
+	 * @param format the format of {@code in}
+	 *
+	 * @return a body that runs the import.
+	 */
+	public StreamingResponseBody stream(InputStream in, Format format) {
+		return out -> {
+			try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+				/* The servlet container owns the response stream */
+				generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+				generator.setRootValueSeparator(null);
+				Progress done = importUsers(in, format, new Listener() {
+					@Override
+					public void onRowRejected(long row, String reason) {
+						try {
+							generator.writeStartObject();
+							generator.writeStringField("event", "error");
+							generator.writeNumberField("row", row);
+							generator.writeStringField("message", reason);
+							generator.writeEndObject();
+							generator.writeRaw('\n');
+						} catch (IOException e) {
+							throw new UncheckedIOException(e);
+						}
+					}
+
+					@Override
+					public void onBatchCommitted(Progress progress) {
+						try {
+							writeProgress(generator, "progress", progress);
+							generator.flush();
+						} catch (IOException e) {
+							throw new UncheckedIOException(e);
+						}
+					}
+				});
+				writeProgress(generator, "done", done);
+			}
+		};
+	}
+
+	/**
+	 * Imports every user of the given input.
+	 *
+	 * @param in       the users to import
+	 * @param format   the format of {@code in}
+	 * @param listener is told about every rejected row and every committed batch
+	 *
+	 * @return the counts of the whole import.
+	 *
+	 * @throws IOException if the input cannot be read; the batches committed before stay committed
+	 */
+	public Progress importUsers(InputStream in, Format format, Listener listener) throws IOException {
+		Run run = new Run(listener);
+		Reader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+		if (format == Format.CSV) readCsv(reader, run);
+		else readNdjson((BufferedReader) reader, run);
+		run.commit();
+		return run.progress();
+	}
+
+	private void readNdjson(BufferedReader reader, Run run) throws IOException {
+		long line = 0;
+		String json;
+		while ((json = reader.readLine()) != null) {
+			++line;
+			if (json.trim().isEmpty()) continue;
+			UserImportRow row;
+			try {
+				row = objectMapper.readValue(json, UserImportRow.class);
+			} catch (JsonProcessingException e) {
+				run.reject(line, "Invalid JSON: " + e.getOriginalMessage());
+				continue;
+			}
+			run.accept(line, row);
+		}
+	}
+
+	private void readCsv(Reader reader, Run run) throws IOException {
+		CsvRecordReader csv = new CsvRecordReader(reader);
+		List<String> header = csv.read();
+		if (header == null) return;
+		try {
+			UserImportRow.checkColumns(header);
+		} catch (IllegalArgumentException e) {
+			run.reject(1, e.getMessage());
+			return;
+		}
+		List<String> record;
+		long line = csv.getLine();
+		while ((record = csv.read()) != null) {
+			if (record.size() == 1 && record.get(0).isEmpty()) {
+				line = csv.getLine();
+				continue;
+			}
+			if (record.size() != header.size()) {
+				run.reject(line, "Expected " + header.size() + " fields but got " + record.size());
+			} else {
+				UserImportRow row = new UserImportRow();
+				for (int i = 0; i < header.size(); i++) {
+					row.set(header.get(i), record.get(i));
+				}
+				run.accept(line, row);
+			}
+			line = csv.getLine();
+		}
+	}
+
+	private static void writeProgress(JsonGenerator generator, String event, Progress progress) throws IOException {
+		generator.writeStartObject();
+		generator.writeStringField("event", event);
+		generator.writeNumberField("rows", progress.getRows());
+		generator.writeNumberField("imported", progress.getImported());
+		generator.writeNumberField("rejected", progress.getRejected());
+		generator.writeNumberField("elapsedMillis", progress.getElapsedMillis());
+		generator.writeNumberField("usersPerSecond", progress.getUsersPerSecond());
+		generator.writeEndObject();
+		generator.writeRaw('\n');
+	}
+
+	/**
+	 * The state of one import.
+	 */
+	private final class Run {
+		private final Listener listener;
+		private final long start = System.nanoTime();
+		private final Set<String> usernames = new HashSet<>();
+		private final Set<String> emails = new HashSet<>();
+		private final Map<String, GroupEntity> majors = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+		private final Map<String, GroupEntity> colleges = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+		private final Map<String, InterestEntity> interests = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+		private final List<User> batch = new ArrayList<>();
+		private final List<Long> batchRows = new ArrayList<>();
+		private long rows;
+		private long imported;
+		private long rejected;
+
+		Run(Listener listener) {
+			this.listener = listener;
+			for (String username : userRepository.findAllUsernames()) {
+				usernames.add(username.toLowerCase());
+			}
+			for (String email : userRepository.findAllEmails()) {
+				emails.add(email.toLowerCase());
+			}
+			for (GroupEntity group : groupRepository.findAll()) {
+				if (group.getName() == null) continue;
+				if (group.groupType == GroupType.STUDENT_MAJOR) majors.put(group.getName(), group);
+				else if (group.groupType == GroupType.COLLEGE) colleges.put(group.getName(), group);
+			}
+			for (InterestEntity interest : interestRepository.findAll()) {
+				if (interest.getName() != null) interests.put(interest.getName(), interest);
+			}
+		}
+
+		void reject(long row, String reason) {
+			++rows;
+			++rejected;
+			listener.onRowRejected(row, reason);
+		}
+
+		void accept(long row, UserImportRow values) {
+			User user;
+			try {
+				user = toUser(values);
+			} catch (IllegalArgumentException e) {
+				reject(row, e.getMessage());
+				return;
+			}
+			if (usernames.contains(user.getUsername())) {
+				reject(row, "Username " + user.getUsername() + " is taken");
+				return;
+			}
+			if (emails.contains(user.getEmail())) {
+				reject(row, "Email " + user.getEmail() + " is taken");
+				return;
+			}
+			usernames.add(user.getUsername());
+			emails.add(user.getEmail());
+			++rows;
+			batch.add(user);
+			batchRows.add(row);
+			if (batch.size() >= batchSize) commit();
+		}
+
+		private User toUser(UserImportRow values) {
+			StudentClassification classification = values.getClassification() == null ? null : parse(StudentClassification.class,
+					"classification", values.getClassification());
+			Gender gender = values.getGender() == null ? null : parse(Gender.class, "gender", values.getGender());
+			User user = new User(values.getUsername(), values.getEmail(), values.getPasswordHash(), values.getFirstName(), values.getMiddleName(),
+					values.getLastName(), values.getAddress(), values.getPhoneNumber(), classification, gender, new HashSet<>(), new HashSet<>(),
+					values.getBiography(), false, 0, null);
+			if (!user.validate()) {
+				throw new IllegalArgumentException("username, email, passwordHash, firstName, lastName and classification are required");
+			}
+			user.normalize();
+
+			LocalDateTime now = LocalDateTime.now();
+			Set<Long> groupIds = new HashSet<>();
+			for (GroupEntity group : resolve(majors, "major", values.getMajors())) {
+				if (groupIds.add(group.getId())) user.getGroups().add(new R_UserGroup(user, group, now));
+			}
+			for (GroupEntity group : resolve(colleges, "college", values.getColleges())) {
+				if (groupIds.add(group.getId())) user.getGroups().add(new R_UserGroup(user, group, now));
+			}
+			Set<Long> interestIds = new HashSet<>();
+			for (InterestEntity interest : resolve(interests, "interest", values.getInterests())) {
+				if (interestIds.add(interest.getId())) user.getInterests().add(new R_UserInterest(user, interest, now));
+			}
+			return user;
+		}
+
+		/**
+		 * Saves the current batch in one transaction and indexes its users. If the transaction fails, e.g. because a user with the same username
+		 * registered meanwhile, every row of the batch is rejected. If only indexing fails, the users stay imported and the indexes are marked for
+		 * a reload from the database instead.
+		 */
+		void commit() {
+			if (batch.isEmpty()) return;
+			boolean committed = false;
+			try {
+				transactionTemplate.execute(status -> userRepository.saveAll(batch));
+				committed = true;
+			} catch (RuntimeException e) {
+				rows -= batch.size();
+				for (int i = 0; i < batch.size(); i++) {
+					usernames.remove(batch.get(i).getUsername());
+					emails.remove(batch.get(i).getEmail());
+					reject(batchRows.get(i), "Batch rolled back: " + e.getMessage());
+				}
+			}
+			if (committed) {
+				imported += batch.size();
+				try {
+					matchDeltaService.onUsersAdded(batch);
+				} catch (RuntimeException e) {
+					logger.warn("Indexing {} imported users failed, the match indexes are reloaded on their next read", batch.size(), e);
+					matchDeltaService.markIndexesStale();
+				}
+			}
+			batch.clear();
+			batchRows.clear();
+			listener.onBatchCommitted(progress());
+		}
+
+		Progress progress() {
+			return new Progress(rows, imported, rejected, (System.nanoTime() - start) / 1_000_000);
+		}
+	}
+
+	private static <E extends Enum<E>> E parse(Class<E> type, String field, String value) {
+		try {
+			return Enum.valueOf(type, value.trim().toUpperCase(Locale.ROOT));
+		} catch (IllegalArgumentException e) {
+			throw new IllegalArgumentException("Unknown " + field + " " + value);
+		}
+	}
+
+	private static <E> List<E> resolve(Map<String, E> byName, String kind, List<String> names) {
+		List<E> entities = new ArrayList<>(names.size());
+		for (String name : names) {
+			E entity = byName.get(name.trim());
+			if (entity == null) throw new IllegalArgumentException("Unknown " + kind + " " + name);
+			entities.add(entity);
+		}
+		return entities;
+	}
+
+	/**
+	 * Input format of an import.
+	 */
+	public enum Format {
+		/**
+		 * Comma-separated values with a header row naming the fields of {@link UserImportRow}.
+		 */
+		CSV("text/csv"),
+		/**
+		 * Newline-delimited JSON: one {@link UserImportRow} object per line.
+		 */
+		NDJSON("application/x-ndjson");
+
+		private final String mediaType;
+
+		Format(String mediaType) {
+			this.mediaType = mediaType;
+		}
+
+		public String getMediaType() {
+			return mediaType;
+		}
+
+		/**
+		 * @param contentType the content type of an import request, parameters such as the charset are ignored
+		 *
+		 * @return the format of that content type, if it is one.
+		 */
+		public static Optional<Format> of(String contentType) {
+			for (Format format : values()) {
+				if (contentType.toLowerCase(Locale.ROOT).startsWith(format.mediaType)) return Optional.of(format);
+			}
+			return Optional.empty();
+		}
+	}
+
+	/**
+	 * Receives the events of a running import.
+	 */
+	public interface Listener {
+		/**
+		 * @param row    the line the rejected row starts on
+		 * @param reason why the row was rejected
+		 */
+		void onRowRejected(long row, String reason);
+
+		void onBatchCommitted(Progress progress);
+	}
+
+	/**
+	 * Counts of an import so far.
+	 */
+	public static final class Progress {
+		private final long rows;
+		private final long imported;
+		private final long rejected;
+		private final long elapsedMillis;
+
+		Progress(long rows, long imported, long rejected, long elapsedMillis) {
+			this.rows = rows;
+			this.imported = imported;
+			this.rejected = rejected;
+			this.elapsedMillis = elapsedMillis;
+		}
+
+		/**
+		 * @return the number of rows read and either committed or rejected.
+		 */
+		public long getRows() {
+			return rows;
+		}
+
+		public long getImported() {
+			return imported;
+		}
+
+		public long getRejected() {
+			return rejected;
+		}
+
+		public long getElapsedMillis() {
+			return elapsedMillis;
+		}
+
+		public double getUsersPerSecond() {
+			return elapsedMillis == 0 ? 0 : imported * 1000.0 / elapsedMillis;
+		}
+	}
+}
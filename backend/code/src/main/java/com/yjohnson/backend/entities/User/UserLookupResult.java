@@ -0,0 +1,53 @@
+package com.yjohnson.backend.entities.User;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * The outcome of one identifier of a batch user lookup: the ID or username that was requested, whether a user was found for it, and the user.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class UserLookupResult {
+	private final String identifier;
+	private final Status status;
+	private final User user;
+
+	private UserLookupResult(String identifier, Status status, User user) {
+		this.identifier = identifier;
+		this.status = status;
+		this.user = user;
+	}
+
+	public static UserLookupResult found(String identifier, User user) {
+		return new UserLookupResult(identifier, Status.FOUND, user);
+	}
+
+	public static UserLookupResult notFound(String identifier) {
+		return new UserLookupResult(identifier, Status.NOT_FOUND, null);
+	}
+
+	public String getIdentifier() {
+		return identifier;
+	}
+
+	public Status getStatus() {
+		return status;
+	}
+
+	/**
+	 * @return the user, or {@code null} if none was found.
+	 */
+	public User getUser() {
+		return user;
+	}
+
+	public enum Status {
+		/**
+		 * A user has the requested ID or username.
+		 */
+		FOUND,
+		/**
+		 * No user has the requested ID or username.
+		 */
+		NOT_FOUND
+	}
+}
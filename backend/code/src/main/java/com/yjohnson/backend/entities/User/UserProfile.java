@@ -0,0 +1,54 @@
+package com.yjohnson.backend.entities.User;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.yjohnson.backend.entities.DB_Relations.R_UserGroup;
+import com.yjohnson.backend.entities.DB_Relations.R_UserInterest;
+import com.yjohnson.backend.entities.Match.MatchEntity;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Everything a profile screen shows about a user: the user, their groups, their interests and their top matches. Sections that were not asked
+ * for are {@code null} and left out of the JSON.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class UserProfile {
+	/**
+	 * The names of the sections, which may be asked for with a {@code fields} query parameter.
+	 */
+	public static final Set<String> SECTIONS = Collections.unmodifiableSet(new LinkedHashSet<>(Arrays.asList(
+			"user", "groups", "interests", "matches"
+	)));
+
+	private final User user;
+	private final List<R_UserGroup> groups;
+	private final List<R_UserInterest> interests;
+	private final List<MatchEntity> matches;
+
+	public UserProfile(User user, List<R_UserGroup> groups, List<R_UserInterest> interests, List<MatchEntity> matches) {
+		this.user = user;
+		this.groups = groups;
+		this.interests = interests;
+		this.matches = matches;
+	}
+
+	public User getUser() {
+		return user;
+	}
+
+	public List<R_UserGroup> getGroups() {
+		return groups;
+	}
+
+	public List<R_UserInterest> getInterests() {
+		return interests;
+	}
+
+	public List<MatchEntity> getMatches() {
+		return matches;
+	}
+}
@@ -0,0 +1,95 @@
+package com.yjohnson.backend.entities.User;
+
+import com.yjohnson.backend.entities.DB_Relations.R_UserGroup;
+import com.yjohnson.backend.entities.DB_Relations.R_UserInterest;
+import com.yjohnson.backend.entities.DB_Relations.UserGroupRepository;
+import com.yjohnson.backend.entities.DB_Relations.UserInterestRepository;
+import com.yjohnson.backend.entities.Match.MatchEntity;
+import com.yjohnson.backend.entities.Match.MatchService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Assembles a {@link UserProfile} in one call. The user is read first, since a missing user ends the request and the matches are ranked from
+ * it; the groups, interests and matches are then read at the same time on a dedicated pool.
+ * <p>
+ * The pool has {@code cybuds.profile.threads} workers and queues at most {@code cybuds.profile.queue-capacity} sections. When the queue is full,
+ * sections run on the request thread instead, so a burst of profile requests slows down to sequential reads rather than failing or piling up
+ * unbounded work.
+ */
+@Service
+public class UserProfileService {
+	static final int DEFAULT_MATCHES = 10;
+	static final int MAX_MATCHES = 50;
+
+	private final UserService userService;
+	private final MatchService matchService;
+	private final UserGroupRepository userGroupRepository;
+	private final UserInterestRepository userInterestRepository;
+	private final ThreadPoolExecutor executor;
+
+	public UserProfileService(UserService userService, MatchService matchService, UserGroupRepository userGroupRepository,
+	                          UserInterestRepository userInterestRepository,
+	                          @Value("${cybuds.profile.threads:8}") int threads,
+	                          @Value("${cybuds.profile.queue-capacity:256}") int queueCapacity) {
+		this.userService = userService;
+		this.matchService = matchService;
+		this.userGroupRepository = userGroupRepository;
+		this.userInterestRepository = userInterestRepository;
+		AtomicInteger workers = new AtomicInteger();
+		this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+			Thread thread = new Thread(runnable, "profile-" + workers.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}, new ThreadPoolExecutor.CallerRunsPolicy());
+	}
+
+	/**
+	 * Reads the given sections of a user's profile.
+	 *
+	 * @param id       the ID of the user
+	 * @param sections the sections to read, see {@link UserProfile#SECTIONS}
+	 * @param matches  the maximum number of top matches to read
+	 *
+	 * @return the profile, with {@code null} for every section that was not asked for, or empty if there is no user with the ID.
+	 */
+	public Optional<UserProfile> getProfile(Long id, Collection<String> sections, int matches) {
+		Optional<User> optionalUser = userService.getUserByID(id);
+		if (!optionalUser.isPresent()) return Optional.empty();
+		User user = optionalUser.get();
+
+		CompletableFuture<List<R_UserGroup>> groups = section(sections, "groups", () -> userGroupRepository.findAllWithGroupByUserId(id));
+		CompletableFuture<List<R_UserInterest>> interests = section(sections, "interests",
+				() -> userInterestRepository.findAllWithInterestByUserId(id));
+		CompletableFuture<List<MatchEntity>> ranked = section(sections, "matches", () -> matchService.rankedPage(user, null, matches));
+		return Optional.of(new UserProfile(sections.contains("user") ? user : null, join(groups), join(interests), join(ranked)));
+	}
+
+	private <T> CompletableFuture<T> section(Collection<String> sections, String section, Supplier<T> read) {
+		if (!sections.contains(section)) return CompletableFuture.completedFuture(null);
+		return CompletableFuture.supplyAsync(read, executor);
+	}
+
+	private static <T> T join(CompletableFuture<T> section) {
+		try {
+			return section.join();
+		} catch (CompletionException e) {
+			/* Rethrow what the section threw, so it is handled as if it was read on the request thread */
+			if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+			throw e;
+		}
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		executor.shutdown();
+	}
+}
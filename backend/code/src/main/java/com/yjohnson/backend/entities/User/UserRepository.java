@@ -1,11 +1,43 @@
 package com.yjohnson.backend.entities.User;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 
-import javax.swing.text.html.Option;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
-public interface UserRepository extends CrudRepository<User, Long> {
+public interface UserRepository extends CrudRepository<User, Long>, UserRepositoryCustom {
 	Optional<User> findByEmail(String email);
 	Optional<User> findByUsername(String username);
-}
\ No newline at end of file
+
+	@EntityGraph(User.WITH_RELATIONS)
+	Optional<User> findWithRelationsById(Long id);
+
+	List<User> findAllByIdIn(Collection<Long> ids);
+
+	List<User> findAllByUsernameIn(Collection<String> usernames);
+
+	List<User> findAllByIdInOrUsernameIn(Collection<Long> ids, Collection<String> usernames);
+
+	@EntityGraph(User.WITH_RELATIONS)
+	@Query("SELECT DISTINCT u FROM User u")
+	List<User> findAllWithRelations();
+
+	/**
+	 * Returns the users with an ID greater than {@code afterId} in ID order. Passing the last ID of one page as {@code afterId} of the next walks
+	 * the primary key in order, so every page is a bounded range scan no matter how deep it is.
+	 */
+	@Query("SELECT new com.yjohnson.backend.entities.User.UserSummary(u.id, u.username, u.firstName, u.middleName, u.lastName, " +
+			"u.classification, u.gender, u.biography, u.profilePicture) FROM User u WHERE u.id > :afterId ORDER BY u.id")
+	List<UserSummary> findSummariesAfter(@Param("afterId") long afterId, Pageable page);
+
+	@Query("SELECT u.username FROM User u")
+	List<String> findAllUsernames();
+
+	@Query("SELECT u.email FROM User u")
+	List<String> findAllEmails();
+}
@@ -0,0 +1,23 @@
+package com.yjohnson.backend.entities.User;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Queries on {@code Users} whose selected columns are only known at runtime.
+ */
+public interface UserRepositoryCustom {
+	/**
+	 * Like {@link UserRepository#findSummariesAfter(long, org.springframework.data.domain.Pageable)}, but selects only the given columns and the
+	 * ID.
+	 *
+	 * @param fields  the names of the columns to select, out of {@link UserSummary#FIELDS}
+	 * @param afterId only users with a greater ID are listed
+	 * @param page    the number of pages to skip after {@code afterId}
+	 * @param size    the maximum number of users to list
+	 *
+	 * @return a map from field name to value per user, in ID order.
+	 */
+	List<Map<String, Object>> findFieldsAfter(Collection<String> fields, long afterId, int page, int size);
+}
@@ -0,0 +1,39 @@
+package com.yjohnson.backend.entities.User;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.*;
+
+class UserRepositoryImpl implements UserRepositoryCustom {
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	@Override
+	public List<Map<String, Object>> findFieldsAfter(Collection<String> fields, long afterId, int page, int size) {
+		List<String> columns = new ArrayList<>();
+		columns.add("id");
+		for (String field : fields) {
+			if (!UserSummary.FIELDS.contains(field)) throw new IllegalArgumentException("Unknown field " + field);
+			if (!columns.contains(field)) columns.add(field);
+		}
+		StringJoiner select = new StringJoiner(", u.", "SELECT u.", " FROM User u WHERE u.id > :afterId ORDER BY u.id");
+		columns.forEach(select::add);
+
+		List<?> rows = entityManager.createQuery(select.toString())
+		                                   .setParameter("afterId", afterId)
+		                                   .setFirstResult(page * size)
+		                                   .setMaxResults(size)
+		                                   .getResultList();
+		List<Map<String, Object>> users = new ArrayList<>(rows.size());
+		for (Object row : rows) {
+			/* A single selected column comes as a plain value */
+			Object[] values = columns.size() == 1 ? new Object[]{row} : (Object[]) row;
+			Map<String, Object> user = new LinkedHashMap<>();
+			for (int i = 0; i < columns.size(); i++) {
+				user.put(columns.get(i), values[i]);
+			}
+			users.add(user);
+		}
+		return users;
+	}
+}
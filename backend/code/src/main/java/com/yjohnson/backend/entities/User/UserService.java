@@ -1,5 +1,10 @@
 package com.yjohnson.backend.entities.User;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.yjohnson.backend.entities.DB_Relations.BulkRelationResult;
 import com.yjohnson.backend.entities.DB_Relations.R_UserGroup;
 import com.yjohnson.backend.entities.DB_Relations.R_UserInterest;
 import com.yjohnson.backend.entities.DB_Relations.UserGroupRepository;
@@ -8,15 +13,23 @@ import com.yjohnson.backend.entities.Group.GroupEntity;
 import com.yjohnson.backend.entities.Group.GroupRepository;
 import com.yjohnson.backend.entities.Interest.InterestEntity;
 import com.yjohnson.backend.entities.Interest.InterestRepository;
+import com.yjohnson.backend.entities.Match.MatchDeltaService;
 import com.yjohnson.backend.exceptions.CybudsActionResultsInConflictException;
 import com.yjohnson.backend.exceptions.CybudsEntityByIdNotFoundException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.LocalDateTime;
-import java.util.Optional;
+import java.util.*;
+import java.util.function.LongFunction;
+import java.util.function.ToLongFunction;
 
 @Service
 public class UserService {
+	static final int STREAM_PAGE_SIZE = 1000;
+
 	public final UserGroupService ugService = new UserGroupService();
 	public final UserInterestService uiService = new UserInterestService();
 
@@ -25,14 +38,21 @@ public class UserService {
 	private final UserGroupRepository userGroupRepository;
 	private final InterestRepository interestRepository;
 	private final UserInterestRepository userInterestRepository;
+	private final MatchDeltaService matchDeltaService;
+	private final TransactionTemplate transactionTemplate;
+	private final ObjectMapper objectMapper;
 
 	public UserService(UserRepository userRepository, GroupRepository groupRepository, UserGroupRepository userGroupRepository,
-	                   InterestRepository interestRepository, UserInterestRepository userInterestRepository) {
+	                   InterestRepository interestRepository, UserInterestRepository userInterestRepository, MatchDeltaService matchDeltaService,
+	                   TransactionTemplate transactionTemplate, ObjectMapper objectMapper) {
 		this.userRepository = userRepository;
 		this.groupRepository = groupRepository;
 		this.userGroupRepository = userGroupRepository;
 		this.interestRepository = interestRepository;
 		this.userInterestRepository = userInterestRepository;
+		this.matchDeltaService = matchDeltaService;
+		this.transactionTemplate = transactionTemplate;
+		this.objectMapper = objectMapper;
 	}
 
 	/**
@@ -68,6 +88,7 @@ public class UserService {
 		if (optionalUser.isPresent()) {
 			User deleted = optionalUser.get().clone();
 			userRepository.delete(optionalUser.get());                  // 2
+			matchDeltaService.onUserRemoved(id);
 			return Optional.of(deleted);
 		}
 		return Optional.empty();
@@ -84,6 +105,61 @@ public class UserService {
 		return userRepository.findById(id);
 	}
 
+	/**
+	 * Retrieves a {@code User} from the database whose ID matches the given ID, together with its interest and group relations.
+	 *
+	 * @param id the ID of the user to retrieve
+	 *
+	 * @return the {@code User} object that corresponds with the ID, with its relations loaded.
+	 */
+	public Optional<User> getUserWithRelationsByID(Long id) {
+		return userRepository.findWithRelationsById(id);
+	}
+
+	/**
+	 * Retrieves the users with the given IDs or usernames with a single query. Each identifier is read as an ID if it parses as a {@code Long} and
+	 * as a username otherwise, like {@link #getUserByString(String)}.
+	 *
+	 * @param identifiers the ids or usernames of the users to retrieve
+	 *
+	 * @return one result per identifier, in the same order, with the user or a not-found marker.
+	 */
+	public List<UserLookupResult> getUsersByStrings(List<String> identifiers) {
+		Set<Long> ids = new HashSet<>();
+		Set<String> usernames = new HashSet<>();
+		for (String identifier : identifiers) {
+			try {
+				ids.add(Long.parseLong(identifier));
+			} catch (NumberFormatException e) {
+				usernames.add(identifier);
+			}
+		}
+		/* An empty IN list is not valid SQL on every database, so only the non-empty one is queried */
+		List<User> users;
+		if (usernames.isEmpty()) users = userRepository.findAllByIdIn(ids);
+		else if (ids.isEmpty()) users = userRepository.findAllByUsernameIn(usernames);
+		else users = userRepository.findAllByIdInOrUsernameIn(ids, usernames);
+
+		Map<Long, User> byId = new HashMap<>();
+		/* Usernames are compared without case by the database */
+		Map<String, User> byUsername = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+		for (User user : users) {
+			byId.put(user.getId(), user);
+			if (user.getUsername() != null) byUsername.put(user.getUsername(), user);
+		}
+		List<UserLookupResult> results = new ArrayList<>(identifiers.size());
+		for (String identifier : identifiers) {
+			User user;
+			try {
+				user = byId.get(Long.parseLong(identifier));
+			} catch (NumberFormatException e) {
+				user = byUsername.get(identifier);
+			}
+			results.add(user != null ? UserLookupResult.found(identifier, user) : UserLookupResult.notFound(identifier));
+		}
+		return results;
+	}
+
 	/**
 	 * Updates the {@code User} with the values of the given {@code User} object. It is not possible to update the ID, group relations, or interests
 	 * via this method. Values that do not need to be updated can be omitted.
@@ -94,16 +170,83 @@ public class UserService {
 	 * @return the updated {@code User} object.
 	 */
 	public User saveUpdatedUser(User user, User valuesToUpdate) {
-		return userRepository.save(user.updateContents(valuesToUpdate));
+		User saved = userRepository.save(user.updateContents(valuesToUpdate));
+		matchDeltaService.onUserChanged(saved);
+		return saved;
+	}
+
+	/**
+	 * Lists one page of users in ID order. The page is selected by keyset, the users after {@code afterId}, and then by offset, skipping
+	 * {@code page} pages of {@code size}; prefer the keyset, as an offset still scans the rows it skips.
+	 *
+	 * @param afterId only users with a greater ID are listed, e.g. the last ID of the previous page
+	 * @param page    the number of pages to skip after {@code afterId}
+	 * @param size    the maximum number of users to list
+	 *
+	 * @return the public columns of the users of the page.
+	 */
+	public List<UserSummary> getUserSummaries(long afterId, int page, int size) {
+		return userRepository.findSummariesAfter(afterId, PageRequest.of(page, size));
 	}
 
 	/**
-	 * Retrieves all the {@code User} objects in the database.
+	 * Like {@link #getUserSummaries(long, int, int)}, but selects only the given columns and the ID.
+	 *
+	 * @param afterId only users with a greater ID are listed
+	 * @param page    the number of pages to skip after {@code afterId}
+	 * @param size    the maximum number of users to list
+	 * @param fields  the columns to select, out of {@link UserSummary#FIELDS}
 	 *
-	 * @return all the users in the database
+	 * @return a map from field name to value per user.
 	 */
-	public Iterable<User> getAllUsersFromDB() {
-		return userRepository.findAll();
+	public List<Map<String, Object>> getUserFields(long afterId, int page, int size, Collection<String> fields) {
+		return userRepository.findFieldsAfter(fields, afterId, page, size);
+	}
+
+	/**
+	 * Creates a response body that writes the public columns of every user after the given ID as newline-delimited JSON, in ID order. The users
+	 * are read {@value #STREAM_PAGE_SIZE} at a time by keyset and flushed after every page, so memory use does not grow with the number of users.
+	 *
+	 * @param afterId only users with a greater ID are written
+	 *
+	 * @return a body that writes the users.
+	 */
+	public StreamingResponseBody streamUserSummaries(long afterId) {
+		return streamUsers(afterId, after -> getUserSummaries(after, 0, STREAM_PAGE_SIZE), UserSummary::getId, UserSummary.class);
+	}
+
+	/**
+	 * Like {@link #streamUserSummaries(long)}, but selects and writes only the given columns and the ID.
+	 *
+	 * @param afterId only users with a greater ID are written
+	 * @param fields  the columns to select, out of {@link UserSummary#FIELDS}
+	 *
+	 * @return a body that writes the users.
+	 */
+	public StreamingResponseBody streamUserFields(long afterId, Collection<String> fields) {
+		return streamUsers(afterId, after -> getUserFields(after, 0, STREAM_PAGE_SIZE, fields), user -> (Long) user.get("id"), Map.class);
+	}
+
+	private <U> StreamingResponseBody streamUsers(long afterId, LongFunction<List<U>> pageAfter, ToLongFunction<U> idOf, Class<?> type) {
+		/* Flushing once per page rather than once per user keeps the response in large chunks */
+		ObjectWriter writer = objectMapper.writerFor(type).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+		return out -> {
+			try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+				/* The servlet container owns the response stream */
+				generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+				generator.setRootValueSeparator(null);
+				List<U> page = pageAfter.apply(afterId);
+				while (true) {
+					for (U user : page) {
+						writer.writeValue(generator, user);
+						generator.writeRaw('\n');
+					}
+					generator.flush();
+					if (page.size() < STREAM_PAGE_SIZE) break;
+					page = pageAfter.apply(idOf.applyAsLong(page.get(STREAM_PAGE_SIZE - 1)));
+				}
+			}
+		};
 	}
 
 	class UserGroupService {
@@ -115,7 +258,7 @@ public class UserService {
 		 * @return an optional iterable collection of {@code R_UserGroup} that the user participates in.
 		 */
 		public Optional<Iterable<R_UserGroup>> getGroupsOfUserByID(Long id) {
-			Optional<User> optionalUser = getUserByID(id);
+			Optional<User> optionalUser = getUserWithRelationsByID(id);
 			Optional<Iterable<R_UserGroup>> groups = Optional.empty();
 			if (optionalUser.isPresent())
 				groups = Optional.of(optionalUser.get().getGroups());
@@ -124,7 +267,7 @@ public class UserService {
 
 		public R_UserGroup addRelationToUser(Long uid, Long gid) throws CybudsEntityByIdNotFoundException, CybudsActionResultsInConflictException {
 
-			Optional<User> user = getUserByID(uid);
+			Optional<User> user = getUserWithRelationsByID(uid);
 			Optional<GroupEntity> optionalGroup = groupRepository.findById(gid);// 2
 			if (!user.isPresent() || !optionalGroup.isPresent()) throw new CybudsEntityByIdNotFoundException();
 			if (userGroupRepository.findByUserAndGroup(user.get(), optionalGroup.get()).isPresent())
@@ -140,12 +283,64 @@ public class UserService {
 			optionalGroup.get().members.add(relation);
 			userRepository.save(user.get()); // 5
 			groupRepository.save(optionalGroup.get()); // 6
+			matchDeltaService.onUserChanged(user.get());
 			return relation;
 		}
 
+		/**
+		 * Adds a relation between a user and every given group in one transaction. The user and the groups are read with one query each and the
+		 * relations are inserted as one batch. A group that does not exist, that the user is already part of, or that is listed twice is reported
+		 * in its result instead of failing the batch.
+		 * <p>
+		 * Unlike {@link #addRelationToUser(Long, Long)}, this does not load or update the member set of every group, as nothing reads it.
+		 *
+		 * @param uid  the ID of the user
+		 * @param gids the IDs of the groups to add, none of which may be {@code null}
+		 *
+		 * @return one result per requested ID, in request order.
+		 *
+		 * @throws CybudsEntityByIdNotFoundException if there is no user with the given ID
+		 */
+		public List<BulkRelationResult<R_UserGroup>> addRelationsToUser(Long uid, List<Long> gids) throws CybudsEntityByIdNotFoundException {
+			List<BulkRelationResult<R_UserGroup>> results = new ArrayList<>(gids.size());
+			Optional<User> user = transactionTemplate.execute(status -> {
+				Optional<User> optionalUser = getUserWithRelationsByID(uid);   // 1
+				if (!optionalUser.isPresent()) return optionalUser;
+				Set<Long> present = new HashSet<>();
+				for (R_UserGroup relation : optionalUser.get().getGroups()) {
+					present.add(relation.getGroup().getId());
+				}
+				Map<Long, GroupEntity> groups = new HashMap<>();
+				groupRepository.findAllById(new HashSet<>(gids)).forEach(group -> groups.put(group.getId(), group));   // 2
+
+				List<R_UserGroup> added = new ArrayList<>();
+				LocalDateTime now = LocalDateTime.now();
+				for (Long gid : gids) {
+					GroupEntity group = groups.get(gid);
+					if (group == null) {
+						results.add(BulkRelationResult.notFound(gid));
+					} else if (!present.add(gid)) {
+						results.add(BulkRelationResult.conflict(gid));
+					} else {
+						R_UserGroup relation = new R_UserGroup(optionalUser.get(), group, now);
+						added.add(relation);
+						results.add(BulkRelationResult.created(gid, relation));
+					}
+				}
+				userGroupRepository.saveAll(added);   // 3, batched
+				optionalUser.get().getGroups().addAll(added);
+				return optionalUser;
+			});
+			if (user == null || !user.isPresent()) throw new CybudsEntityByIdNotFoundException();
+			if (results.stream().anyMatch(result -> result.getStatus() == BulkRelationResult.Status.CREATED)) {
+				matchDeltaService.onUserChanged(user.get());
+			}
+			return results;
+		}
+
 		public R_UserGroup deleteRelationForUser(Long uid, Long gid) throws CybudsEntityByIdNotFoundException,
 				CybudsActionResultsInConflictException {
-			Optional<User> user = getUserByID(uid);
+			Optional<User> user = getUserWithRelationsByID(uid);
 			Optional<GroupEntity> optionalGroup = groupRepository.findById(gid);// 2
 			if (!user.isPresent() || !optionalGroup.isPresent()) throw new CybudsEntityByIdNotFoundException();
 			Optional<R_UserGroup> relation = userGroupRepository.findByUserAndGroup(user.get(), optionalGroup.get());
@@ -156,6 +351,7 @@ public class UserService {
 			userGroupRepository.delete(relation.get()); //4
 			userRepository.save(user.get()); // 5
 			groupRepository.save(optionalGroup.get()); // 6
+			matchDeltaService.onUserChanged(user.get());
 			return relation.get();
 		}
 	}
@@ -169,7 +365,7 @@ public class UserService {
 		 * @return an optional iterable collection of {@code R_UserInterest} that the user participates in.
 		 */
 		public Optional<Iterable<R_UserInterest>> getInterestsOfUserByID(Long id) {
-			Optional<User> optionalUser = getUserByID(id);
+			Optional<User> optionalUser = getUserWithRelationsByID(id);
 			Optional<Iterable<R_UserInterest>> interests = Optional.empty();
 			if (optionalUser.isPresent())
 				interests = Optional.of(optionalUser.get().getInterests());
@@ -178,7 +374,7 @@ public class UserService {
 
 		public R_UserInterest addRelationToUser(Long uid, Long gid) throws CybudsEntityByIdNotFoundException,
 				CybudsActionResultsInConflictException {
-			Optional<User> user = getUserByID(uid);
+			Optional<User> user = getUserWithRelationsByID(uid);
 			Optional<InterestEntity> optionalInterest = interestRepository.findById(gid);// 2
 			if (!user.isPresent() || !optionalInterest.isPresent()) throw new CybudsEntityByIdNotFoundException();
 			if (userInterestRepository.findByUserAndInterest(user.get(), optionalInterest.get()).isPresent())
@@ -194,12 +390,65 @@ public class UserService {
 			optionalInterest.get().interested.add(relation);
 			userRepository.save(user.get()); // 5
 			interestRepository.save(optionalInterest.get()); // 6
+			matchDeltaService.onUserChanged(user.get());
 			return relation;
 		}
 
+		/**
+		 * Adds a relation between a user and every given interest in one transaction. The user and the interests are read with one query each and
+		 * the relations are inserted as one batch. An interest that does not exist, that the user already has, or that is listed twice is reported
+		 * in its result instead of failing the batch.
+		 * <p>
+		 * Unlike {@link #addRelationToUser(Long, Long)}, this does not load or update the set of interested users of every interest, as nothing
+		 * reads it.
+		 *
+		 * @param uid  the ID of the user
+		 * @param iids the IDs of the interests to add, none of which may be {@code null}
+		 *
+		 * @return one result per requested ID, in request order.
+		 *
+		 * @throws CybudsEntityByIdNotFoundException if there is no user with the given ID
+		 */
+		public List<BulkRelationResult<R_UserInterest>> addRelationsToUser(Long uid, List<Long> iids) throws CybudsEntityByIdNotFoundException {
+			List<BulkRelationResult<R_UserInterest>> results = new ArrayList<>(iids.size());
+			Optional<User> user = transactionTemplate.execute(status -> {
+				Optional<User> optionalUser = getUserWithRelationsByID(uid);   // 1
+				if (!optionalUser.isPresent()) return optionalUser;
+				Set<Long> present = new HashSet<>();
+				for (R_UserInterest relation : optionalUser.get().getInterests()) {
+					present.add(relation.getInterest().getId());
+				}
+				Map<Long, InterestEntity> interests = new HashMap<>();
+				interestRepository.findAllById(new HashSet<>(iids)).forEach(interest -> interests.put(interest.getId(), interest));   // 2
+
+				List<R_UserInterest> added = new ArrayList<>();
+				LocalDateTime now = LocalDateTime.now();
+				for (Long iid : iids) {
+					InterestEntity interest = interests.get(iid);
+					if (interest == null) {
+						results.add(BulkRelationResult.notFound(iid));
+					} else if (!present.add(iid)) {
+						results.add(BulkRelationResult.conflict(iid));
+					} else {
+						R_UserInterest relation = new R_UserInterest(optionalUser.get(), interest, now);
+						added.add(relation);
+						results.add(BulkRelationResult.created(iid, relation));
+					}
+				}
+				userInterestRepository.saveAll(added);   // 3, batched
+				optionalUser.get().getInterests().addAll(added);
+				return optionalUser;
+			});
+			if (user == null || !user.isPresent()) throw new CybudsEntityByIdNotFoundException();
+			if (results.stream().anyMatch(result -> result.getStatus() == BulkRelationResult.Status.CREATED)) {
+				matchDeltaService.onUserChanged(user.get());
+			}
+			return results;
+		}
+
 		public R_UserInterest deleteRelationForUser(Long uid, Long gid) throws CybudsEntityByIdNotFoundException,
 				CybudsActionResultsInConflictException {
-			Optional<User> user = getUserByID(uid);
+			Optional<User> user = getUserWithRelationsByID(uid);
 			Optional<InterestEntity> optionalInterest = interestRepository.findById(gid);// 2
 			if (!user.isPresent() || !optionalInterest.isPresent()) throw new CybudsEntityByIdNotFoundException();
 			Optional<R_UserInterest> relation = userInterestRepository.findByUserAndInterest(user.get(), optionalInterest.get());
@@ -210,6 +459,7 @@ public class UserService {
 			userInterestRepository.delete(relation.get()); //4
 			userRepository.save(user.get()); // 5
 			interestRepository.save(optionalInterest.get()); // 6
+			matchDeltaService.onUserChanged(user.get());
 			return relation.get();
 		}
 	}
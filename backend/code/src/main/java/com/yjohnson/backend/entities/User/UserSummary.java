@@ -0,0 +1,87 @@
+package com.yjohnson.backend.entities.User;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * The public columns of a {@code User}, as listed by {@code GET /users}. It is selected directly by a constructor query, so listing users does
+ * not load, manage or dirty-check any {@code User} entities, and leaves out credentials and contact details.
+ */
+public class UserSummary {
+	/**
+	 * The names of the fields, which are the same in JSON and in JPQL.
+	 */
+	public static final Set<String> FIELDS = Collections.unmodifiableSet(new LinkedHashSet<>(Arrays.asList(
+			"id", "username", "firstName", "middleName", "lastName", "classification", "gender", "biography", "profilePicture")));
+
+	private final Long id;
+	private final String username;
+	private final String firstName;
+	private final String middleName;
+	private final String lastName;
+	private final StudentClassification classification;
+	private final Gender gender;
+	private final String biography;
+	private final int profilePicture;
+
+	public UserSummary(Long id, String username, String firstName, String middleName, String lastName, StudentClassification classification,
+	                   Gender gender, String biography, int profilePicture) {
+		this.id = id;
+		this.username = username;
+		this.firstName = firstName;
+		this.middleName = middleName;
+		this.lastName = lastName;
+		this.classification = classification;
+		this.gender = gender;
+		this.biography = biography;
+		this.profilePicture = profilePicture;
+	}
+
+	/**
+	 * @param user a user that is already loaded
+	 *
+	 * @return the public columns of the user.
+	 */
+	public static UserSummary of(User user) {
+		return new UserSummary(user.getId(), user.getUsername(), user.getFirstName(), user.getMiddleName(), user.getLastName(),
+				user.getClassification(), user.getGender(), user.getBiography(), user.getProfilePicture());
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	public String getUsername() {
+		return username;
+	}
+
+	public String getFirstName() {
+		return firstName;
+	}
+
+	public String getMiddleName() {
+		return middleName;
+	}
+
+	public String getLastName() {
+		return lastName;
+	}
+
+	public StudentClassification getClassification() {
+		return classification;
+	}
+
+	public Gender getGender() {
+		return gender;
+	}
+
+	public String getBiography() {
+		return biography;
+	}
+
+	public int getProfilePicture() {
+		return profilePicture;
+	}
+}
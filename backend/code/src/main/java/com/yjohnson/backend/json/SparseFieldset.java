@@ -0,0 +1,184 @@
+package com.yjohnson.backend.json;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonStreamContext;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.FilterProvider;
+import com.fasterxml.jackson.databind.ser.PropertyFilter;
+import com.fasterxml.jackson.databind.ser.PropertyWriter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import org.springframework.http.converter.json.MappingJacksonValue;
+
+import java.util.*;
+
+/**
+ * The fields a client asked for with a {@code fields} query parameter, e.g. {@code fields=score,matched_user.firstName,matched_user.biography}.
+ * Fields are separated by commas, and a field of a nested object is named by its path, with dots.
+ * <p>
+ * Classes annotated with {@code @JsonFilter(SparseFieldset.FILTER)} can be serialized with only these fields by {@link #apply(Object)}. Every
+ * other serialization of those classes writes all of their fields, see {@link #DEFAULT_FILTERS}.
+ */
+public final class SparseFieldset {
+	public static final String FILTER = "sparseFieldset";
+	/**
+	 * Filters that write every field; every {@code ObjectMapper} that serializes a filtered class must be configured with them.
+	 */
+	public static final FilterProvider DEFAULT_FILTERS = new SimpleFilterProvider().addFilter(FILTER, SimpleBeanPropertyFilter.serializeAll());
+
+	/* Field name -> the fields of the nested object, or null for the whole field */
+	private final Map<String, SparseFieldset> fields;
+
+	private SparseFieldset(Map<String, SparseFieldset> fields) {
+		this.fields = fields;
+	}
+
+	/**
+	 * @param fields the value of a {@code fields} query parameter
+	 *
+	 * @return the fieldset, with the fields in the order they were first named.
+	 *
+	 * @throws IllegalArgumentException if a field name is empty
+	 */
+	public static SparseFieldset parse(String fields) {
+		SparseFieldset root = new SparseFieldset(new LinkedHashMap<>());
+		for (String path : fields.split(",", -1)) {
+			SparseFieldset node = root;
+			String[] names = path.trim().split("\\.", -1);
+			for (int i = 0; i < names.length; i++) {
+				if (names[i].isEmpty()) throw new IllegalArgumentException("Invalid field " + path.trim());
+				if (i == names.length - 1) {
+					/* Naming a field whole includes any subfields named before */
+					node.fields.put(names[i], null);
+				} else if (node.fields.containsKey(names[i]) && node.fields.get(names[i]) == null) {
+					break;
+				} else {
+					node = node.fields.computeIfAbsent(names[i], name -> new SparseFieldset(new LinkedHashMap<>()));
+				}
+			}
+		}
+		return root;
+	}
+
+	/**
+	 * Parses and checks a {@code fields} query parameter, see {@link #parse(String)} and {@link #check(Set, Map)}.
+	 *
+	 * @param fields  the {@code fields} parameter, if given
+	 * @param allowed the fields that may be named whole
+	 * @param nested  the fields, by nested object, that may be named as a path
+	 *
+	 * @return the fieldset, or empty if the parameter was not given.
+	 *
+	 * @throws IllegalArgumentException if a field is malformed or not offered
+	 */
+	public static Optional<SparseFieldset> parse(Optional<String> fields, Set<String> allowed, Map<String, Set<String>> nested) {
+		if (!fields.isPresent()) return Optional.empty();
+		SparseFieldset fieldset = parse(fields.get());
+		fieldset.check(allowed, nested);
+		return Optional.of(fieldset);
+	}
+
+	/**
+	 * @return the top-level field names.
+	 */
+	public Set<String> getNames() {
+		return Collections.unmodifiableSet(fields.keySet());
+	}
+
+	/**
+	 * @param name a top-level field name
+	 *
+	 * @return the fields of the nested object, or {@code null} if the field was named whole or not at all.
+	 */
+	public SparseFieldset get(String name) {
+		return fields.get(name);
+	}
+
+	/**
+	 * Checks the fieldset against the fields a response offers.
+	 *
+	 * @param allowed the fields that may be named whole
+	 * @param nested  the fields, by nested object, that may be named as a path; the nested objects themselves may not be named whole
+	 *
+	 * @throws IllegalArgumentException if a field is not offered
+	 */
+	public void check(Set<String> allowed, Map<String, Set<String>> nested) {
+		for (Map.Entry<String, SparseFieldset> field : fields.entrySet()) {
+			if (field.getValue() == null) {
+				if (!allowed.contains(field.getKey()) || nested.containsKey(field.getKey())) {
+					throw new IllegalArgumentException("Unknown field " + field.getKey());
+				}
+			} else if (nested.containsKey(field.getKey())) {
+				field.getValue().check(nested.get(field.getKey()), Collections.emptyMap());
+			} else {
+				throw new IllegalArgumentException("Unknown field " + field.getKey());
+			}
+		}
+	}
+
+	/**
+	 * Wraps a response body so that it is serialized with only these fields. The fieldset applies to the body itself, or to every element if
+	 * the body is a collection.
+	 *
+	 * @param body the response body
+	 *
+	 * @return the wrapped body.
+	 */
+	public MappingJacksonValue apply(Object body) {
+		return apply(body, Collections.emptyList());
+	}
+
+	/**
+	 * Like {@link #apply(Object)}, for a body that holds the filtered objects in a field, e.g. a page of matches.
+	 *
+	 * @param body the response body
+	 * @param path the names of the fields that lead from the body to the filtered objects
+	 *
+	 * @return the wrapped body.
+	 */
+	public MappingJacksonValue apply(Object body, List<String> path) {
+		MappingJacksonValue value = new MappingJacksonValue(body);
+		value.setFilters(new SimpleFilterProvider().addFilter(FILTER, new Filter(this, path)));
+		return value;
+	}
+
+	/**
+	 * Writes a property if the fieldset names it. Its position in the fieldset is found from the names of the objects it is nested in.
+	 */
+	private static final class Filter extends SimpleBeanPropertyFilter {
+		private final SparseFieldset root;
+		private final List<String> prefix;
+
+		Filter(SparseFieldset root, List<String> prefix) {
+			this.root = root;
+			this.prefix = prefix;
+		}
+
+		@Override
+		public void serializeAsField(Object pojo, JsonGenerator jgen, SerializerProvider provider, PropertyWriter writer) throws Exception {
+			if (includes(jgen.getOutputContext(), writer.getName())) {
+				writer.serializeAsField(pojo, jgen, provider);
+			} else if (!jgen.canOmitFields()) {
+				writer.serializeAsOmittedField(pojo, jgen, provider);
+			}
+		}
+
+		private boolean includes(JsonStreamContext context, String name) {
+			/* The names of the fields that hold the current object, outermost first; arrays in between have no name */
+			Deque<String> path = new ArrayDeque<>();
+			for (JsonStreamContext parent = context.getParent(); parent != null; parent = parent.getParent()) {
+				if (parent.inObject()) path.addFirst(parent.getCurrentName());
+			}
+			for (String field : prefix) {
+				if (!field.equals(path.pollFirst())) return true;
+			}
+			SparseFieldset node = root;
+			for (String field : path) {
+				if (!node.fields.containsKey(field)) return false;
+				node = node.fields.get(field);
+				if (node == null) return true;
+			}
+			return node.fields.containsKey(name);
+		}
+	}
+}
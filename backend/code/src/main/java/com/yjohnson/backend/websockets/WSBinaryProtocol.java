@@ -0,0 +1,176 @@
+package com.yjohnson.backend.websockets;
+
+import com.yjohnson.backend.entities.Group.GroupType;
+import com.yjohnson.backend.entities.Match.MatchEntity;
+import com.yjohnson.backend.entities.User.UserSummary;
+
+import javax.websocket.Session;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * The binary protocol of the match WebSocket, used by clients that ask for the {@value #NAME} subprotocol. Clients that ask for no subprotocol
+ * keep the text protocol.
+ * <p>
+ * Every binary message holds one or more frames, so a client may send several requests at once and gets the responses to all of them in one
+ * message. A frame is the length of its payload as an unsigned 16-bit integer, an 8-bit opcode and the payload; all numbers are big-endian.
+ * Requests have the opcodes of {@link WSRequest} and responses those of {@link WSResponse} or {@link #MATCH}. Only two frames have a payload:
+ * <ul>
+ *     <li>{@link WSRequest#START_MATCHING_PROCESS} may hold the ordinal of a {@link GroupType} as one byte, to match by that choice.</li>
+ *     <li>{@link #MATCH} holds a match: the matched user's ID (64 bits), the score (32 bits), flags (8 bits: 1 if the match is confirmed),
+ *     the ordinals of the user's classification and gender (8 bits each, 255 if unknown), the profile picture (32 bits), and the username,
+ *     first name, last name and biography, each as a 16-bit length and UTF-8 bytes.</li>
+ * </ul>
+ * {@link WSRequest#NEXT_MATCH} and {@link WSRequest#PREVIOUS_MATCH} are answered with a match or {@link WSResponse#END_OF_MATCHES},
+ * {@link WSRequest#START_MATCHING_PROCESS} with {@link WSResponse#DONE}, and a message that cannot be read with
+ * {@link WSResponse#BAD_REQUEST}.
+ */
+public final class WSBinaryProtocol {
+	public static final String NAME = "cybuds.match.v1";
+	/**
+	 * The opcode of a frame that holds a match.
+	 */
+	public static final int MATCH = 0x90;
+	static final int HEADER = 3;
+	static final int MAX_PAYLOAD = 0xFFFF;
+	static final int UNKNOWN = 0xFF;
+
+	private WSBinaryProtocol() {
+	}
+
+	/**
+	 * @return whether the client of the session asked for the binary protocol.
+	 */
+	public static boolean isNegotiated(Session session) {
+		return NAME.equals(session.getNegotiatedSubprotocol());
+	}
+
+	/**
+	 * @param message a binary message
+	 *
+	 * @return the frames of the message, in order.
+	 *
+	 * @throws IllegalArgumentException if the message ends within a frame.
+	 */
+	public static List<Frame> read(ByteBuffer message) {
+		ByteBuffer in = message.duplicate();
+		List<Frame> frames = new ArrayList<>();
+		while (in.hasRemaining()) {
+			if (in.remaining() < HEADER) throw new IllegalArgumentException("Truncated frame header");
+			int length = Short.toUnsignedInt(in.getShort());
+			int opcode = Byte.toUnsignedInt(in.get());
+			if (in.remaining() < length) throw new IllegalArgumentException("Truncated frame");
+			ByteBuffer payload = in.slice();
+			payload.limit(length);
+			in.position(in.position() + length);
+			frames.add(new Frame(opcode, payload));
+		}
+		return frames;
+	}
+
+	/**
+	 * @param payload the payload of a {@link WSRequest#START_MATCHING_PROCESS} frame
+	 *
+	 * @return the choice to match by, or empty to match by every choice.
+	 *
+	 * @throws IllegalArgumentException if the payload is not empty or a choice.
+	 */
+	public static Optional<GroupType> readChoice(ByteBuffer payload) {
+		if (!payload.hasRemaining()) return Optional.empty();
+		int ordinal = Byte.toUnsignedInt(payload.get(payload.position()));
+		if (payload.remaining() != 1 || ordinal >= GroupType.values().length) throw new IllegalArgumentException("Not a choice");
+		return Optional.of(GroupType.values()[ordinal]);
+	}
+
+	/**
+	 * A frame that was read from a message.
+	 */
+	public static class Frame {
+		private final int opcode;
+		private final ByteBuffer payload;
+
+		Frame(int opcode, ByteBuffer payload) {
+			this.opcode = opcode;
+			this.payload = payload;
+		}
+
+		public int getOpcode() {
+			return opcode;
+		}
+
+		public ByteBuffer getPayload() {
+			return payload;
+		}
+	}
+
+	/**
+	 * Collects the frames of one message.
+	 */
+	public static class Output {
+		private final ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+		private final DataOutputStream out = new DataOutputStream(bytes);
+		private final ByteArrayOutputStream payloadBytes = new ByteArrayOutputStream(64);
+		private final DataOutputStream payload = new DataOutputStream(payloadBytes);
+
+		public Output response(WSResponse response) {
+			return frame(response.getOpcode());
+		}
+
+		public Output match(MatchEntity match) {
+			UserSummary matchee = UserSummary.of(match.getMatchee());
+			/* Read through Enum, since the types of the user's enums are not visible here */
+			Enum<?> classification = matchee.getClassification();
+			Enum<?> gender = matchee.getGender();
+			try {
+				payload.writeLong(matchee.getId());
+				payload.writeInt(match.getScore());
+				payload.writeByte(match.isConfirmed() ? 1 : 0);
+				payload.writeByte(classification == null ? UNKNOWN : classification.ordinal());
+				payload.writeByte(gender == null ? UNKNOWN : gender.ordinal());
+				payload.writeInt(matchee.getProfilePicture());
+				writeString(matchee.getUsername());
+				writeString(matchee.getFirstName());
+				writeString(matchee.getLastName());
+				writeString(matchee.getBiography());
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			return frame(MATCH);
+		}
+
+		public boolean isEmpty() {
+			return bytes.size() == 0;
+		}
+
+		public ByteBuffer toByteBuffer() {
+			return ByteBuffer.wrap(bytes.toByteArray());
+		}
+
+		/* Writes a frame with the payload written so far */
+		private Output frame(int opcode) {
+			if (payloadBytes.size() > MAX_PAYLOAD) throw new IllegalArgumentException("Frame payload too long");
+			try {
+				out.writeShort(payloadBytes.size());
+				out.writeByte(opcode);
+				payloadBytes.writeTo(out);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			payloadBytes.reset();
+			return this;
+		}
+
+		private void writeString(String value) throws IOException {
+			byte[] utf8 = value == null ? new byte[0] : value.getBytes(StandardCharsets.UTF_8);
+			payload.writeShort(utf8.length);
+			payload.write(utf8);
+		}
+	}
+}
@@ -1,8 +1,8 @@
 package com.yjohnson.backend.websockets;
 
 import com.yjohnson.backend.entities.Group.GroupType;
+import com.yjohnson.backend.entities.Match.MatchEntity;
 import com.yjohnson.backend.entities.Match.MatchEntityEncoder;
-import com.yjohnson.backend.entities.User.User;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -12,10 +12,11 @@ import javax.websocket.*;
 import javax.websocket.server.PathParam;
 import javax.websocket.server.ServerEndpoint;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Optional;
 
 @Controller
-@ServerEndpoint(value = "/ws/{id}", encoders = {MatchEntityEncoder.class})
+@ServerEndpoint(value = "/ws/{id}", encoders = {MatchEntityEncoder.class}, subprotocols = {WSBinaryProtocol.NAME})
 public class WSMatchServer {
 	private static WSMatchService wsMatchService;
 	private final Logger logger = LoggerFactory.getLogger(WSMatchServer.class);
@@ -31,7 +32,9 @@ public class WSMatchServer {
 	public void onOpen(Session session, @PathParam("id") Long id) throws IOException {
 		logger.info("Call to onOpen()");
 		if (wsMatchService.onOpen(session, id).isPresent()) {
-			session.getBasicRemote().sendText("User ID:" + id + " has started a websocket connection");
+			if (WSBinaryProtocol.isNegotiated(session)) {
+				session.getBasicRemote().sendBinary(new WSBinaryProtocol.Output().response(WSResponse.DONE).toByteBuffer());
+			} else session.getBasicRemote().sendText("User ID:" + id + " has started a websocket connection");
 		} else {
 			session.close(new CloseReason(
 					CloseReason.CloseCodes.CANNOT_ACCEPT,
@@ -45,29 +48,31 @@ public class WSMatchServer {
 	public void onMessage(Session session, String message) throws IOException {
 		// Handle new messages
 		logger.info("Call to onMessage: Got Message:" + message);
+		Optional<WSMatchSession> optionalState = wsMatchService.getSession(session);
+		if (!optionalState.isPresent()) {
+			session.getBasicRemote().sendText(WSResponse.CURRENT_USER_NOT_FOUND.toString());
+			return;
+		}
+		WSMatchSession state = optionalState.get();
 		String[] s = message.split(" ");
-		WSRequest action = null;
 		try {
-			action = WSRequest.valueOf(s[0].trim());
+			WSRequest action = WSRequest.valueOf(s[0].trim());
 			switch (action) {
 				case NEXT_MATCH:
-					if (wsMatchService.iterator.hasNext()) session.getBasicRemote().sendObject(wsMatchService.iterator.next());
-					else session.getBasicRemote().sendText(WSResponse.END_OF_MATCHES.toString());
+					sendMatch(session, state.next());
 					break;
 				case PREVIOUS_MATCH:
-					if (wsMatchService.iterator.hasPrevious()) session.getBasicRemote().sendObject(wsMatchService.iterator.previous());
-					else session.getBasicRemote().sendText(WSResponse.END_OF_MATCHES.toString());
+					sendMatch(session, state.previous());
 					break;
 				case START_MATCHING_PROCESS:
 					GroupType subaction;
 					if (s.length > 1) {
 						subaction = GroupType.valueOf(s[1].trim());
-						wsMatchService.matchService.matchUserByChoice(subaction, wsMatchService.currentUser, wsMatchService.allUsers).forEach(wsMatchService.matches::add);
+						state.start(WSMatchSession.Ranking.of(wsMatchService.matchService.matchUserByChoice(subaction, state.getUser())));
 					} else {
-						wsMatchService.matchService.matchUser(wsMatchService.currentUser, wsMatchService.allUsers).forEach(wsMatchService.matches::add);
+						state.start(wsMatchService.rankingOf(state.getUser()));
 					}
-					wsMatchService.iterator = wsMatchService.matches.listIterator();
-					session.getBasicRemote().sendText(wsMatchService.currentUser.getUsername() + ": " + message);
+					session.getBasicRemote().sendText(state.getUser().getUsername() + ": " + message);
 
 					break;
 				case END_MATCHING_PROCESS:
@@ -75,8 +80,7 @@ public class WSMatchServer {
 					onClose(session);
 					break;
 				case CONFIRM_MATCH:
-					if (wsMatchService.lastAction == WSRequest.NEXT_MATCH) wsMatchService.iterator.previous().setConfirmed(true);
-					else wsMatchService.iterator.next().setConfirmed(true);
+					state.confirm();
 					break;
 				default:
 					break;
@@ -84,19 +88,80 @@ public class WSMatchServer {
 		} catch (IllegalArgumentException | EncodeException e) {
 			logger.error("Caught exception " + e);
 			onError(session, e);
-		} finally {
-			wsMatchService.lastAction = action;
 		}
 	}
-	
+
+	/**
+	 * Handles a message of the binary protocol, see {@link WSBinaryProtocol}. The responses to all frames of the message are sent back in one
+	 * message.
+	 */
+	@OnMessage
+	public void onMessage(Session session, ByteBuffer message) throws IOException {
+		logger.debug("Call to onMessage: Got binary message of " + message.remaining() + " bytes");
+		WSBinaryProtocol.Output output = new WSBinaryProtocol.Output();
+		Optional<WSMatchSession> optionalState = wsMatchService.getSession(session);
+		if (!optionalState.isPresent()) {
+			session.getBasicRemote().sendBinary(output.response(WSResponse.CURRENT_USER_NOT_FOUND).toByteBuffer());
+			return;
+		}
+		WSMatchSession state = optionalState.get();
+		try {
+			for (WSBinaryProtocol.Frame frame : WSBinaryProtocol.read(message)) {
+				WSRequest action = WSRequest.ofOpcode(frame.getOpcode())
+				                            .orElseThrow(() -> new IllegalArgumentException("Unknown opcode " + frame.getOpcode()));
+				switch (action) {
+					case NEXT_MATCH:
+						writeMatch(output, state.next());
+						break;
+					case PREVIOUS_MATCH:
+						writeMatch(output, state.previous());
+						break;
+					case START_MATCHING_PROCESS:
+						Optional<GroupType> choice = WSBinaryProtocol.readChoice(frame.getPayload());
+						if (choice.isPresent()) {
+							state.start(WSMatchSession.Ranking.of(wsMatchService.matchService.matchUserByChoice(choice.get(), state.getUser())));
+						} else {
+							state.start(wsMatchService.rankingOf(state.getUser()));
+						}
+						output.response(WSResponse.DONE);
+						break;
+					case END_MATCHING_PROCESS:
+						if (!output.isEmpty()) session.getBasicRemote().sendBinary(output.toByteBuffer());
+						session.close(new CloseReason(CloseReason.CloseCodes.NORMAL_CLOSURE, "Requested close."));
+						onClose(session);
+						return;
+					case CONFIRM_MATCH:
+						state.confirm();
+						break;
+					default:
+						break;
+				}
+			}
+		} catch (IllegalArgumentException e) {
+			logger.error("Caught exception " + e);
+			output.response(WSResponse.BAD_REQUEST);
+		}
+		if (!output.isEmpty()) session.getBasicRemote().sendBinary(output.toByteBuffer());
+	}
+
+	private static void writeMatch(WSBinaryProtocol.Output output, Optional<MatchEntity> match) {
+		if (match.isPresent()) output.match(match.get());
+		else output.response(WSResponse.END_OF_MATCHES);
+	}
+
+	private static void sendMatch(Session session, Optional<MatchEntity> match) throws IOException, EncodeException {
+		if (match.isPresent()) session.getBasicRemote().sendObject(match.get());
+		else session.getBasicRemote().sendText(WSResponse.END_OF_MATCHES.toString());
+	}
+
 
 	@OnClose
 	public void onClose(Session session) throws IOException {
 		logger.info("Entered into Close");
 
-		wsMatchService.onClose(session);
+		Optional<WSMatchSession> state = wsMatchService.onClose(session);
 
-		session.getBasicRemote().sendText(wsMatchService.currentUser.getUsername() + " disconnected.");
+		if (state.isPresent() && session.isOpen() && !WSBinaryProtocol.isNegotiated(session)) session.getBasicRemote().sendText(state.get().getUser().getUsername() + " disconnected.");
 	}
 
 
@@ -107,7 +172,9 @@ public class WSMatchServer {
 		// Do error handling here
 		logger.error(throwable.getMessage());
 		try {
-			session.getBasicRemote().sendText("Ran into an error with the request.");
+			if (WSBinaryProtocol.isNegotiated(session)) {
+				session.getBasicRemote().sendBinary(new WSBinaryProtocol.Output().response(WSResponse.BAD_REQUEST).toByteBuffer());
+			} else session.getBasicRemote().sendText("Ran into an error with the request.");
 		} catch (IOException e) {
 			logger.error("Wow this is really bad. Error on the error; inspect the session object.");
 		}
@@ -1,54 +1,101 @@
 package com.yjohnson.backend.websockets;
 
+import com.yjohnson.backend.entities.Match.MatchCursor;
 import com.yjohnson.backend.entities.Match.MatchEntity;
 import com.yjohnson.backend.entities.Match.MatchService;
 import com.yjohnson.backend.entities.User.User;
 import com.yjohnson.backend.entities.User.UserService;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import javax.websocket.Session;
-import java.util.*;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Keeps the {@link WSMatchSession} of every open WebSocket session. The registries are concurrent maps, so sessions of different users open
+ * and close without waiting on each other.
+ * <p>
+ * Sessions read their matches {@code cybuds.ws.chunk-size} at a time.
+ */
 @Service
 public class WSMatchService {
-	// Store all socket session and their corresponding username.
-	protected static final Map<Session, Long> sessionUserIDMap = new Hashtable<>();
-	protected static final Map<Long, Session> userIDSessionMap = new Hashtable<>();
+	// Store all socket sessions with their state, and the latest session of every user.
+	protected final Map<Session, WSMatchSession> sessions = new ConcurrentHashMap<>();
+	protected final Map<Long, Session> userIDSessionMap = new ConcurrentHashMap<>();
 	protected final MatchService matchService;
 	protected final UserService userService;
-	protected final ArrayList<MatchEntity> matches = new ArrayList<>();
-	protected ListIterator<MatchEntity> iterator;
-	protected User currentUser;
-	protected Iterable<User> allUsers;
-	protected WSRequest lastAction;
+	private final int chunkSize;
 
-	public WSMatchService(MatchService matchService, UserService userService) {
+	public WSMatchService(MatchService matchService, UserService userService, @Value("${cybuds.ws.chunk-size:16}") int chunkSize) {
 		this.matchService = matchService;
 		this.userService = userService;
+		this.chunkSize = chunkSize;
 	}
 
-	protected void onClose(Session session) {
-		Long id = WSMatchService.sessionUserIDMap.get(session);
-		removeFromMaps(session, id);
-	}
+	/**
+	 * Ranks the matches of a user lazily, a chunk at a time as a session reads them, see
+	 * {@link MatchService#rankCandidatesAfter(User, MatchCursor, int)}.
+	 *
+	 * @param user the user to match
+	 *
+	 * @return the ranking of the user's candidates.
+	 */
+	public WSMatchSession.Ranking rankingOf(User user) {
+		return new WSMatchSession.Ranking() {
+			@Override
+			public List<MatchEntity> after(MatchEntity last, int limit) {
+				return matchService.rankCandidatesAfter(user, last == null ? null : MatchCursor.after(last), limit);
+			}
 
-	protected void removeFromMaps(Session session, Long id) {
-		sessionUserIDMap.remove(session);
-		userIDSessionMap.remove(id);
+			@Override
+			public List<MatchEntity> before(MatchEntity first, int limit) {
+				return matchService.rankCandidatesBefore(user, MatchCursor.after(first), limit);
+			}
+		};
 	}
 
-	public Optional<User> onOpen(Session session, Long id) {
-		addToMaps(session, id);
-		this.allUsers = userService.getAllUsersFromDB();
+	/**
+	 * @param session an open session
+	 *
+	 * @return the state of the session, or empty if it was never opened or is already closed.
+	 */
+	public Optional<WSMatchSession> getSession(Session session) {
+		return Optional.ofNullable(sessions.get(session));
+	}
 
-		Long userID = WSMatchService.sessionUserIDMap.get(session);
-		Optional<User> u = userService.getUserByID(userID);
-		u.ifPresent(user -> currentUser = user);
-		return u;
+	/**
+	 * Removes the state of a closed session. Closing a session more than once has no effect.
+	 *
+	 * @param session the closed session
+	 *
+	 * @return the state the session had, or empty if it was already removed.
+	 */
+	protected Optional<WSMatchSession> onClose(Session session) {
+		WSMatchSession state = sessions.remove(session);
+		if (state != null) {
+			/* Only if the user has not opened a newer session since */
+			userIDSessionMap.remove(state.getUser().getId(), session);
+		}
+		return Optional.ofNullable(state);
 	}
 
-	protected void addToMaps(Session session, Long id) {
-		sessionUserIDMap.put(session, id);
+	/**
+	 * Registers a new session for the user with the given ID.
+	 *
+	 * @param session the opened session
+	 * @param id      the ID of the user in the session's path
+	 *
+	 * @return the state of the session, or empty if there is no user with the ID.
+	 */
+	public Optional<WSMatchSession> onOpen(Session session, Long id) {
+		Optional<User> u = userService.getUserByID(id);
+		if (!u.isPresent()) return Optional.empty();
+		WSMatchSession state = new WSMatchSession(u.get(), chunkSize);
+		sessions.put(session, state);
 		userIDSessionMap.put(id, session);
+		return Optional.of(state);
 	}
-}
\ No newline at end of file
+}
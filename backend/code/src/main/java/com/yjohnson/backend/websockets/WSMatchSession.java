@@ -0,0 +1,142 @@
+package com.yjohnson.backend.websockets;
+
+import com.yjohnson.backend.entities.Match.MatchEntity;
+import com.yjohnson.backend.entities.User.User;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * The matching state of one WebSocket session: the user it was opened for and its position in the matches it is browsing.
+ * <p>
+ * The matches are read from a {@link Ranking} a chunk at a time, when the client moves past the chunk it holds, so a session only ever keeps
+ * one chunk and the first match is sent as soon as the first chunk is ranked. Moving back past the start of the chunk reads the chunk before
+ * it. Like a {@link java.util.ListIterator}, {@link #previous()} after {@link #next()} returns the same match again.
+ * <p>
+ * Each session has its own state, so sessions never see each other's matches. The container delivers the messages of a session one at a time,
+ * so the state is only ever used by one thread at a time and needs no locking.
+ */
+public class WSMatchSession {
+	private final User user;
+	private final int chunkSize;
+	private Ranking ranking = Ranking.of(Collections.emptyList());
+	private List<MatchEntity> chunk = Collections.emptyList();
+	/* The index in the chunk of the match that next() returns */
+	private int position;
+	/* The match that was sent last; null before the first and past either end */
+	private MatchEntity current;
+
+	public WSMatchSession(User user, int chunkSize) {
+		if (chunkSize <= 0) throw new IllegalArgumentException("chunkSize must be positive");
+		this.user = user;
+		this.chunkSize = chunkSize;
+	}
+
+	public User getUser() {
+		return user;
+	}
+
+	/**
+	 * Starts browsing a new ranking from its best match.
+	 *
+	 * @param ranking the matches to browse
+	 */
+	public void start(Ranking ranking) {
+		this.ranking = ranking;
+		this.chunk = Collections.emptyList();
+		this.position = 0;
+		this.current = null;
+	}
+
+	/**
+	 * @return the next match, or empty at the end of the matches.
+	 */
+	public Optional<MatchEntity> next() {
+		if (position == chunk.size()) {
+			List<MatchEntity> after = ranking.after(chunk.isEmpty() ? null : chunk.get(chunk.size() - 1), chunkSize);
+			if (after.isEmpty()) return none();
+			chunk = after;
+			position = 0;
+		}
+		current = chunk.get(position++);
+		return Optional.of(current);
+	}
+
+	/**
+	 * @return the previous match, or empty at the beginning of the matches.
+	 */
+	public Optional<MatchEntity> previous() {
+		if (position == 0) {
+			if (chunk.isEmpty()) return none();
+			List<MatchEntity> before = ranking.before(chunk.get(0), chunkSize);
+			if (before.isEmpty()) return none();
+			chunk = before;
+			position = chunk.size();
+		}
+		current = chunk.get(--position);
+		return Optional.of(current);
+	}
+
+	/**
+	 * Confirms the match that was sent last, if any.
+	 */
+	public void confirm() {
+		if (current != null) current.setConfirmed(true);
+	}
+
+	private Optional<MatchEntity> none() {
+		current = null;
+		return Optional.empty();
+	}
+
+	/**
+	 * Matches in ranked order, read a chunk at a time on either side of a match that was read before.
+	 */
+	public interface Ranking {
+		/**
+		 * @param last  a match of this ranking, or {@code null} to start at the best match
+		 * @param limit the maximum number of matches to return
+		 *
+		 * @return the matches that rank right after {@code last}, best first.
+		 */
+		List<MatchEntity> after(MatchEntity last, int limit);
+
+		/**
+		 * @param first a match of this ranking
+		 * @param limit the maximum number of matches to return
+		 *
+		 * @return the matches that rank right before {@code first}, best first.
+		 */
+		List<MatchEntity> before(MatchEntity first, int limit);
+
+		/**
+		 * @param ranked matches that are already ranked, best first
+		 *
+		 * @return a ranking that reads chunks of the list.
+		 */
+		static Ranking of(List<MatchEntity> ranked) {
+			return new Ranking() {
+				@Override
+				public List<MatchEntity> after(MatchEntity last, int limit) {
+					int from = last == null ? 0 : indexOf(last) + 1;
+					return ranked.subList(from, Math.min(from + limit, ranked.size()));
+				}
+
+				@Override
+				public List<MatchEntity> before(MatchEntity first, int limit) {
+					int to = indexOf(first);
+					return ranked.subList(Math.max(0, to - limit), to);
+				}
+
+				/* By identity, since the chunks are views of the list itself */
+				private int indexOf(MatchEntity match) {
+					for (int i = 0; i < ranked.size(); i++) {
+						if (ranked.get(i) == match) return i;
+					}
+					throw new IllegalArgumentException("Not a match of this ranking");
+				}
+			};
+		}
+	}
+}
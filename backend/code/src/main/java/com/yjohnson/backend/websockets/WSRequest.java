@@ -1,5 +1,32 @@
 package com.yjohnson.backend.websockets;
 
+import java.util.Optional;
+
 public enum WSRequest {
-	NEXT_MATCH, PREVIOUS_MATCH, START_MATCHING_PROCESS, END_MATCHING_PROCESS, CONFIRM_MATCH
-}
\ No newline at end of file
+	NEXT_MATCH(0x01), PREVIOUS_MATCH(0x02), START_MATCHING_PROCESS(0x03), END_MATCHING_PROCESS(0x04), CONFIRM_MATCH(0x05);
+
+	private final int opcode;
+
+	WSRequest(int opcode) {
+		this.opcode = opcode;
+	}
+
+	/**
+	 * @return the opcode of the request in the binary protocol, see {@link WSBinaryProtocol}.
+	 */
+	public int getOpcode() {
+		return opcode;
+	}
+
+	/**
+	 * @param opcode an opcode of the binary protocol
+	 *
+	 * @return the request with the opcode, or empty if there is none.
+	 */
+	public static Optional<WSRequest> ofOpcode(int opcode) {
+		for (WSRequest request : values()) {
+			if (request.opcode == opcode) return Optional.of(request);
+		}
+		return Optional.empty();
+	}
+}
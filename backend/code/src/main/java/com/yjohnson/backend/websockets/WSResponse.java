@@ -1,5 +1,18 @@
 package com.yjohnson.backend.websockets;
 
 public enum WSResponse {
-	DONE, BAD_REQUEST, CURRENT_USER_NOT_FOUND, END_OF_MATCHES
-}
\ No newline at end of file
+	DONE(0x81), BAD_REQUEST(0x82), CURRENT_USER_NOT_FOUND(0x83), END_OF_MATCHES(0x84);
+
+	private final int opcode;
+
+	WSResponse(int opcode) {
+		this.opcode = opcode;
+	}
+
+	/**
+	 * @return the opcode of the response in the binary protocol, see {@link WSBinaryProtocol}.
+	 */
+	public int getOpcode() {
+		return opcode;
+	}
+}
@@ -0,0 +1,49 @@
+package com.yjohnson.backend.cache;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.*;
+
+import java.util.Collections;
+import java.util.UUID;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class CatalogConditionalGetTest {
+	@Autowired
+	TestRestTemplate rest;
+
+	@Test
+	void catalogsAreTaggedAndRevalidated() {
+		for (String path : new String[]{"/groups", "/groups/majors", "/groups/colleges", "/interests"}) {
+			ResponseEntity<String> first = rest.getForEntity(path, String.class);
+			assert first.getStatusCode() == HttpStatus.OK;
+			String eTag = first.getHeaders().getETag();
+			assert eTag != null && eTag.startsWith("\"") : path;
+			assert first.getHeaders().getCacheControl().contains("max-age=60") : first.getHeaders().getCacheControl();
+
+			ResponseEntity<String> second = get(path, eTag);
+			assert second.getStatusCode() == HttpStatus.NOT_MODIFIED : path + " returned " + second.getStatusCode();
+			assert second.getBody() == null && eTag.equals(second.getHeaders().getETag());
+			assert get(path, "\"stale\"").getStatusCode() == HttpStatus.OK;
+		}
+	}
+
+	@Test
+	void mutationsChangeTheTag() {
+		String eTag = rest.getForEntity("/interests", String.class).getHeaders().getETag();
+		String name = "Tagged" + UUID.randomUUID().toString().substring(0, 8);
+		assert rest.postForEntity("/interests", Collections.singletonMap("name", name), String.class).getStatusCode() == HttpStatus.CREATED;
+
+		ResponseEntity<String> changed = get("/interests", eTag);
+		assert changed.getStatusCode() == HttpStatus.OK && changed.getBody() != null && changed.getBody().contains(name);
+		assert !eTag.equals(changed.getHeaders().getETag());
+	}
+
+	private ResponseEntity<String> get(String path, String ifNoneMatch) {
+		HttpHeaders headers = new HttpHeaders();
+		headers.setIfNoneMatch(ifNoneMatch);
+		return rest.exchange(path, HttpMethod.GET, new HttpEntity<>(headers), String.class);
+	}
+}
@@ -0,0 +1,86 @@
+package com.yjohnson.backend.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+class ReferenceDataCacheTest {
+	List<Item> table;
+	int loads;
+	Runnable duringLoad;
+	ReferenceDataCache<Item> cache;
+
+	@BeforeEach
+	void setUp() {
+		table = new ArrayList<>(Arrays.asList(new Item(1L, "Chess", true), new Item(2L, "Hiking", false)));
+		loads = 0;
+		duringLoad = () -> {};
+		cache = new ReferenceDataCache<>(new ObjectMapper(), () -> {
+			++loads;
+			List<Item> rows = new ArrayList<>(table);
+			duringLoad.run();
+			return rows;
+		}, item -> item.id, item -> item.name);
+	}
+
+	@Test
+	void readsAreServedFromOneLoad() {
+		assert cache.getAll().size() == 2;
+		assert cache.getById(2L).map(item -> item.name.equals("Hiking")).orElse(false);
+		assert cache.getByName("cHESS").map(item -> item.id == 1L).orElse(false);
+		assert !cache.getById(3L).isPresent() && !cache.getByName("Chess ").isPresent();
+		assert json(cache.getJson().getBody()).equals("[{\"id\":1,\"name\":\"Chess\",\"indoor\":true},{\"id\":2,\"name\":\"Hiking\",\"indoor\":false}]");
+		assert json(cache.getJson("indoor", item -> item.indoor).getBody()).equals("[{\"id\":1,\"name\":\"Chess\",\"indoor\":true}]");
+		assert cache.getJson() == cache.getJson();
+		assert loads == 1;
+	}
+
+	@Test
+	void invalidateBumpsTheVersionAndReloads() {
+		CachedJson before = cache.getJson("indoor", item -> item.indoor);
+		long version = cache.getVersion();
+		table.add(new Item(3L, "Darts", true));
+		cache.invalidate();
+
+		assert cache.getVersion() != version;
+		assert cache.getByName("Darts").isPresent();
+		CachedJson after = cache.getJson("indoor", item -> item.indoor);
+		assert after != before && !after.getETag().equals(before.getETag());
+		assert json(cache.getJson("indoor", item -> item.indoor).getBody()).contains("Darts");
+		assert loads == 2;
+	}
+
+	@Test
+	void snapshotLoadedDuringAnInvalidationIsNotStored() {
+		duringLoad = () -> {
+			duringLoad = () -> {};
+			table.add(new Item(3L, "Darts", true));
+			cache.invalidate();
+		};
+		/* The reader that raced with the write still gets its snapshot */
+		assert cache.getAll().size() == 2;
+		assert cache.getAll().size() == 3;
+		assert loads == 2;
+	}
+
+	private static String json(byte[] bytes) {
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	public static class Item {
+		public final Long id;
+		public final String name;
+		public final boolean indoor;
+
+		Item(Long id, String name, boolean indoor) {
+			this.id = id;
+			this.name = name;
+			this.indoor = indoor;
+		}
+	}
+}
@@ -0,0 +1,60 @@
+package com.yjohnson.backend.entities.Group;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.io.IOException;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class GroupCatalogTest {
+	static final String COLLEGE = "College of Design";
+
+	@Autowired
+	GroupCatalog groupCatalog;
+	@Autowired
+	GroupRepository groupRepository;
+	@Autowired
+	CatalogSyncRepository catalogSyncRepository;
+
+	@BeforeEach
+	void setUp() {
+		catalogSyncRepository.deleteAll();
+		groupRepository.findByName(COLLEGE).ifPresent(groupRepository::delete);
+	}
+
+	@Test
+	void syncsBothCatalogs() throws IOException {
+		groupCatalog.sync(GroupService.STATIC_MAJORS_TXT, GroupType.STUDENT_MAJOR, "%s is a major at ISU.");
+		groupCatalog.sync(GroupService.STATIC_COLLEGES_TXT, GroupType.COLLEGE, "%s is a college at ISU.");
+		assert groupRepository.findAllByGroupType(GroupType.STUDENT_MAJOR).iterator().hasNext();
+
+		GroupEntity college = groupRepository.findByName(COLLEGE).orElseThrow(AssertionError::new);
+		assert college.groupType == GroupType.COLLEGE;
+		assert college.getDescription().equals(COLLEGE + " is a college at ISU.");
+	}
+
+	@Test
+	void addsOnlyMissingGroups() throws IOException {
+		groupCatalog.sync(GroupService.STATIC_COLLEGES_TXT, GroupType.COLLEGE, "%s is a college at ISU.");
+		groupRepository.delete(groupRepository.findByName(COLLEGE).orElseThrow(AssertionError::new));
+		catalogSyncRepository.deleteAll();
+
+		assert groupCatalog.sync(GroupService.STATIC_COLLEGES_TXT, GroupType.COLLEGE, "%s is a college at ISU.") == 1;
+		assert groupRepository.findByName(COLLEGE).isPresent();
+	}
+
+	@Test
+	void skipsUnchangedCatalog() throws IOException {
+		groupCatalog.sync(GroupService.STATIC_COLLEGES_TXT, GroupType.COLLEGE, "%s is a college at ISU.");
+		groupRepository.delete(groupRepository.findByName(COLLEGE).orElseThrow(AssertionError::new));
+
+		/* The file did not change, so the deleted group stays deleted */
+		assert groupCatalog.sync(GroupService.STATIC_COLLEGES_TXT, GroupType.COLLEGE, "%s is a college at ISU.") == 0;
+		assert !groupRepository.findByName(COLLEGE).isPresent();
+
+		/* A new description format is a change as well */
+		assert groupCatalog.sync(GroupService.STATIC_COLLEGES_TXT, GroupType.COLLEGE, "%s is a college.") == 1;
+	}
+}
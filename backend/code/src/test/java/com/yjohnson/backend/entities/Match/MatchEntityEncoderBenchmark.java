@@ -0,0 +1,74 @@
+package com.yjohnson.backend.entities.Match;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.yjohnson.backend.json.SparseFieldset;
+import org.junit.jupiter.api.Test;
+
+import java.io.CharArrayWriter;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Compares the throughput and allocation of {@link MatchEntityEncoder} against encoding with a new {@code ObjectMapper} per message, as the
+ * encoder did before. Allocation is the bytes allocated by the benchmark thread per message.
+ */
+class MatchEntityEncoderBenchmark {
+	static final int WARMUP = 20_000;
+	static final int MESSAGES = 100_000;
+
+	final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+	@Test
+	void encode() throws Exception {
+		MatchEntity match = new MatchEntity(MatchEntityEncoderTest.user(1L, "matcher"), MatchEntityEncoderTest.user(2L, "matchee"), 42, false);
+		MatchEntityEncoder encoder = new MatchEntityEncoder();
+		/* Stands in for the container's message writer, which is reused for every message of a session */
+		CharArrayWriter writer = new CharArrayWriter(4096);
+
+		System.out.printf("%-26s %14s %14s %10s%n", "encoder", "messages/s", "bytes/message", "length");
+		for (int round = 0; round < 2; round++) {
+			measure("ObjectMapper per message", round, () -> {
+				writer.reset();
+				writer.write(perMessageMapper(match));
+			}, writer);
+			measure("shared ObjectWriter", round, () -> {
+				writer.reset();
+				encoder.encode(match, writer);
+			}, writer);
+		}
+	}
+
+	/* Only the second round is printed, when both have been warmed up */
+	private void measure(String name, int round, Encode encode, CharArrayWriter writer) throws Exception {
+		for (int i = 0; i < WARMUP; i++) {
+			encode.run();
+		}
+		long thread = Thread.currentThread().getId();
+		long allocated = threads.getThreadAllocatedBytes(thread);
+		long start = System.nanoTime();
+		for (int i = 0; i < MESSAGES; i++) {
+			encode.run();
+		}
+		long nanos = System.nanoTime() - start;
+		allocated = threads.getThreadAllocatedBytes(thread) - allocated;
+		if (round == 1) {
+			System.out.printf("%-26s %14.0f %14d %10d%n", name, MESSAGES / (nanos / 1e9), allocated / MESSAGES, writer.size());
+		}
+	}
+
+	/* What MatchEntityEncoder did before it shared its writer */
+	private static String perMessageMapper(MatchEntity match) throws Exception {
+		return new ObjectMapper()
+				.registerModule(new JavaTimeModule())
+				.configure(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, false)
+				.enable(DeserializationFeature.ACCEPT_SINGLE_VALUE_AS_ARRAY)
+				.setFilterProvider(SparseFieldset.DEFAULT_FILTERS)
+				.writeValueAsString(match);
+	}
+
+	private interface Encode {
+		void run() throws Exception;
+	}
+}
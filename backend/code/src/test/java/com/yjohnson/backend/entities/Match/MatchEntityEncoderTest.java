@@ -0,0 +1,44 @@
+package com.yjohnson.backend.entities.Match;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yjohnson.backend.entities.User.User;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringWriter;
+import java.util.*;
+
+class MatchEntityEncoderTest {
+	@Test
+	@SuppressWarnings("unchecked")
+	void writesPublicColumnsOnly() throws Exception {
+		MatchEntity match = new MatchEntity(user(1L, "matcher"), user(2L, "matchee"), 42, true);
+		StringWriter writer = new StringWriter();
+		new MatchEntityEncoder().encode(match, writer);
+
+		Map<String, Object> message = new ObjectMapper().readValue(writer.toString(), Map.class);
+		assert message.keySet().equals(new HashSet<>(Arrays.asList("id", "score", "confirmed", "last_updated", "matching_user", "matched_user")))
+				: message;
+		assert message.get("score").equals(42) && message.get("confirmed").equals(true) : message;
+		/* ISO-8601, not a timestamp */
+		assert message.get("last_updated") instanceof String : message;
+
+		Map<String, Object> matchee = (Map<String, Object>) message.get("matched_user");
+		assert matchee.get("username").equals("matchee") && matchee.get("classification").equals("SENIOR") : matchee;
+		assert !matchee.containsKey("passwordHash") && !matchee.containsKey("email") && !matchee.containsKey("interests") : matchee;
+		assert ((Map<String, Object>) message.get("matching_user")).get("id").equals(1) : message;
+	}
+
+	static User user(long id, String username) {
+		Map<String, Object> values = new HashMap<>();
+		values.put("id", id);
+		values.put("username", username);
+		values.put("email", username + "@iastate.edu");
+		values.put("passwordHash", "hash");
+		values.put("firstName", "First");
+		values.put("lastName", "Last");
+		values.put("address", "Street");
+		values.put("biography", "Bio");
+		values.put("classification", "SENIOR");
+		return new ObjectMapper().convertValue(values, User.class);
+	}
+}
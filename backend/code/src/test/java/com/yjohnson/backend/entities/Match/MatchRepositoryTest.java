@@ -0,0 +1,165 @@
+package com.yjohnson.backend.entities.Match;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yjohnson.backend.entities.User.User;
+import com.yjohnson.backend.entities.User.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.*;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class MatchRepositoryTest {
+	@Autowired
+	MatchRepository matchRepository;
+	@Autowired
+	UserRepository userRepository;
+	@Autowired
+	TestEntityManager entityManager;
+	@Autowired
+	JdbcTemplate jdbcTemplate;
+
+	User matcher;
+	List<User> matchees = new ArrayList<>();
+
+	@BeforeEach
+	void setUp() {
+		matcher = userRepository.save(user("matcher"));
+		for (int i = 0; i < 3; i++) {
+			matchees.add(userRepository.save(user("matchee" + i)));
+		}
+		entityManager.flush();
+	}
+
+	@Test
+	void upsertScoresInsertsNewMatches() {
+		matchRepository.upsertScores(matcher.getId(), scores(3, 2, 1), Collections.emptyMap());
+
+		Map<Long, Long> ids = matchRepository.findMatchIdsByMatcher(matcher.getId());
+		assert ids.size() == 3;
+		List<MatchEntity> ranked = matchRepository.findAllByMatcherRanked(matcher);
+		assert ranked.get(0).getScore() == 3 && ranked.get(0).getMatchee().getId().equals(matchees.get(0).getId());
+		assert ranked.get(2).getScore() == 1 && !ranked.get(2).isConfirmed();
+	}
+
+	@Test
+	void upsertScoresUpdatesExistingMatchesInPlace() {
+		matchRepository.upsertScores(matcher.getId(), scores(3, 2, 1), Collections.emptyMap());
+		Map<Long, Long> before = matchRepository.findMatchIdsByMatcher(matcher.getId());
+		MatchEntity confirmed = matchRepository.findById(before.get(matchees.get(1).getId())).orElseThrow(AssertionError::new);
+		confirmed.setConfirmed(true);
+		entityManager.flush();
+		entityManager.clear();
+
+		matchRepository.upsertScores(matcher.getId(), scores(0, 5, 1), before);
+
+		assert matchRepository.findMatchIdsByMatcher(matcher.getId()).equals(before);
+		List<MatchEntity> ranked = matchRepository.findAllByMatcherRanked(matcher);
+		assert ranked.get(0).getScore() == 5 && ranked.get(0).isConfirmed();
+		assert ranked.get(2).getScore() == 0;
+	}
+
+	@Test
+	void upsertScoresToleratesUnknownExistingRows() {
+		matchRepository.upsertScores(matcher.getId(), scores(3, 2, 1), Collections.emptyMap());
+		/* A concurrent request already inserted these pairs; the unique constraint turns the inserts into updates */
+		matchRepository.upsertScores(matcher.getId(), scores(4, 4, 4), Collections.emptyMap());
+
+		assert matchRepository.findMatchIdsByMatcher(matcher.getId()).size() == 3;
+		for (MatchEntity m : matchRepository.findAllByMatcherRanked(matcher)) {
+			assert m.getScore() == 4;
+		}
+	}
+
+	@Test
+	void upsertScoresSkipsDeletedUsers() {
+		/* Deleted outside the application, so the feature index may still list it */
+		long deleted = matchees.get(2).getId();
+		userRepository.deleteById(deleted);
+		entityManager.flush();
+
+		List<ScoredCandidate> scores = scores(3, 2);
+		scores.add(new ScoredCandidate(deleted, 1));
+		matchRepository.upsertScores(matcher.getId(), scores, Collections.emptyMap());
+		matchRepository.upsertScoresAgainst(matcher.getId(), Collections.singletonList(new ScoredCandidate(deleted, 1)), Collections.emptyMap());
+
+		assert matchRepository.findMatchIdsByMatcher(matcher.getId()).keySet().equals(
+				new HashSet<>(Arrays.asList(matchees.get(0).getId(), matchees.get(1).getId())));
+		assert matchRepository.findMatchIdsByMatchee(matcher.getId()).isEmpty();
+	}
+
+	@Test
+	void idSequenceSkipsTakenIds() {
+		String nextVal = "SELECT next_val FROM " + MatchEntity.ID_SEQUENCE;
+		long taken = jdbcTemplate.queryForObject(nextVal, Long.class) + 5000;
+		jdbcTemplate.update("INSERT INTO match_entity (id, matcher_id, matchee_id, score, confirmed) VALUES (?, ?, ?, 0, FALSE)", taken,
+				matcher.getId(), matchees.get(0).getId());
+
+		MatchIdSequence sequence = new MatchIdSequence(jdbcTemplate, null);
+		sequence.skipTakenIds();
+		assert jdbcTemplate.queryForObject(nextVal, Long.class) == taken + 1;
+
+		/* Already ahead of every match */
+		jdbcTemplate.update("UPDATE " + MatchEntity.ID_SEQUENCE + " SET next_val = ?", taken + 10);
+		sequence.skipTakenIds();
+		assert jdbcTemplate.queryForObject(nextVal, Long.class) == taken + 10;
+	}
+
+	@Test
+	void deleteMatchesById() {
+		matchRepository.upsertScores(matcher.getId(), scores(3, 2, 1), Collections.emptyMap());
+		Map<Long, Long> ids = matchRepository.findMatchIdsByMatcher(matcher.getId());
+
+		matchRepository.deleteMatchesById(Arrays.asList(ids.get(matchees.get(0).getId()), ids.get(matchees.get(2).getId())));
+
+		assert matchRepository.findMatchIdsByMatcher(matcher.getId()).keySet().equals(Collections.singleton(matchees.get(1).getId()));
+	}
+
+	@Test
+	void rankedPagesWalkEveryMatchOnceAcrossTies() {
+		/* Two matchees tie on score, so the matchee ID has to break the tie between pages */
+		matchRepository.upsertScores(matcher.getId(), scores(2, 3, 2), Collections.emptyMap());
+		List<MatchEntity> all = matchRepository.findAllByMatcherRanked(matcher);
+
+		List<MatchEntity> walked = new ArrayList<>(matchRepository.findFirstRanked(matcher, PageRequest.of(0, 1)));
+		while (walked.size() < all.size() + 1) {
+			MatchCursor cursor = MatchCursor.decode(MatchCursor.after(walked.get(walked.size() - 1)).encode());
+			List<MatchEntity> page = matchRepository.findRankedAfter(matcher, cursor.getScore(), cursor.getMatcheeId(), PageRequest.of(0, 1));
+			if (page.isEmpty()) break;
+			walked.addAll(page);
+		}
+
+		assert walked.size() == 3;
+		for (int i = 0; i < all.size(); i++) {
+			assert walked.get(i).getId().equals(all.get(i).getId());
+		}
+		assert walked.get(0).getMatchee().getId().equals(matchees.get(1).getId());
+		assert walked.get(1).getMatchee().getId() < walked.get(2).getMatchee().getId();
+	}
+
+	private List<ScoredCandidate> scores(int... scores) {
+		List<ScoredCandidate> list = new ArrayList<>();
+		for (int i = 0; i < scores.length; i++) {
+			list.add(new ScoredCandidate(matchees.get(i).getId(), scores[i]));
+		}
+		return list;
+	}
+
+	private static User user(String username) {
+		Map<String, Object> values = new HashMap<>();
+		values.put("username", username);
+		values.put("email", username + "@iastate.edu");
+		values.put("passwordHash", "hash");
+		values.put("firstName", "First");
+		values.put("lastName", "Last");
+		values.put("classification", "SENIOR");
+		return new ObjectMapper().convertValue(values, User.class);
+	}
+}
@@ -0,0 +1,89 @@
+package com.yjohnson.backend.entities.Match;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yjohnson.backend.entities.Group.GroupType;
+import com.yjohnson.backend.entities.User.User;
+import com.yjohnson.backend.websockets.WSMatchSession;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+class MatchResultCacheTest {
+	MatchResultCache cache = new MatchResultCache(3, 300);
+
+	@Test
+	void servesHitsUntilEvictedInLeastRecentlyUsedOrder() {
+		cache.get(1L, GroupType.STUDENT_MAJOR, () -> matches(1L, 10L));
+		cache.get(2L, GroupType.STUDENT_MAJOR, () -> matches(2L, 10L));
+		cache.get(3L, GroupType.STUDENT_MAJOR, () -> matches(3L, 10L));
+		cache.get(1L, GroupType.STUDENT_MAJOR, this::fail);
+		cache.get(4L, GroupType.STUDENT_MAJOR, () -> matches(4L, 10L));
+
+		/* 2 was the least recently used entry */
+		cache.get(1L, GroupType.STUDENT_MAJOR, this::fail);
+		cache.get(3L, GroupType.STUDENT_MAJOR, this::fail);
+		assert cache.get(2L, GroupType.STUDENT_MAJOR, () -> matches(2L, 11L)).get(0).getMatchee().getId() == 11L;
+
+		MatchResultCache.Stats stats = cache.getStats();
+		assert stats.getSize() == 3;
+		assert stats.getHits() == 3 && stats.getMisses() == 5 && stats.getEvictions() == 2 && stats.getInvalidations() == 0;
+	}
+
+	@Test
+	void invalidatesOwnListingAndAffectedEntriesOnly() {
+		cache.get(1L, GroupType.STUDENT_MAJOR, () -> matches(1L, 2L));
+		cache.get(3L, GroupType.COLLEGE, () -> matches(3L, 4L));
+		cache.get(5L, GroupType.STUDENT_CLASS, () -> matches(5L, 6L));
+
+		/* 1 lists 2, 2 has no entry, 5 is affected; 3 neither lists 2 nor is affected */
+		cache.invalidate(2L, Collections.singleton(5L));
+
+		cache.get(3L, GroupType.COLLEGE, this::fail);
+		assert cache.getStats().getInvalidations() == 2;
+		assert cache.get(1L, GroupType.STUDENT_MAJOR, Collections::emptyList).isEmpty();
+		assert cache.get(5L, GroupType.STUDENT_CLASS, Collections::emptyList).isEmpty();
+	}
+
+	@Test
+	void doesNotStoreResultsComputedDuringAnInvalidation() {
+		cache.get(1L, GroupType.STUDENT_MAJOR, () -> {
+			cache.invalidate(2L, Collections.emptySet());
+			return matches(1L, 2L);
+		});
+
+		assert cache.getStats().getSize() == 0;
+	}
+
+	@Test
+	void confirmingAHandedOutMatchDoesNotChangeTheCachedOne() {
+		List<MatchEntity> loaded = matches(1L, 2L, 3L);
+		WSMatchSession session = new WSMatchSession(loaded.get(0).getMatcher(), 2);
+		session.start(WSMatchSession.Ranking.of(cache.get(1L, GroupType.STUDENT_MAJOR, () -> loaded)));
+		session.next();
+		session.confirm();
+		WSMatchSession hit = new WSMatchSession(loaded.get(0).getMatcher(), 2);
+		hit.start(WSMatchSession.Ranking.of(cache.get(1L, GroupType.STUDENT_MAJOR, this::fail)));
+		hit.next();
+		hit.confirm();
+
+		List<MatchEntity> cached = cache.get(1L, GroupType.STUDENT_MAJOR, this::fail);
+		assert cached.stream().noneMatch(MatchEntity::isConfirmed);
+		assert cached.get(0).getMatchee().getId() == 2L && cached.get(0).getScore() == 1;
+	}
+
+	private List<MatchEntity> fail() {
+		throw new AssertionError("expected a cache hit");
+	}
+
+	private static List<MatchEntity> matches(long matcher, long... matchees) {
+		List<MatchEntity> list = new ArrayList<>();
+		for (long matchee : matchees) {
+			list.add(new MatchEntity(user(matcher), user(matchee), 1, false));
+		}
+		return list;
+	}
+
+	private static User user(long id) {
+		return new ObjectMapper().convertValue(Collections.singletonMap("id", id), User.class);
+	}
+}
@@ -0,0 +1,60 @@
+package com.yjohnson.backend.entities.Match;
+
+import com.yjohnson.backend.entities.Match.UserFeatureIndex.UserFeatures;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+/**
+ * Measures how {@link MatchScorer} scales from one worker to every available processor.
+ */
+class MatchScorerBenchmark {
+	static final int USERS = 1_000_000;
+	static final int WARMUP = 5;
+	static final int ROUNDS = 10;
+
+	@Test
+	void scaling() {
+		Random random = new Random(42);
+		Map<Long, UserFeatures> features = new HashMap<>(USERS * 2);
+		List<Long> candidates = new ArrayList<>(USERS);
+		for (long id = 1; id <= USERS; id++) {
+			features.put(id, MatchScorerTest.randomFeatures(random));
+			candidates.add(id);
+		}
+		UserFeatures matcher = MatchScorerTest.randomFeatures(random);
+
+		int cores = Runtime.getRuntime().availableProcessors();
+		System.out.printf("%d candidates, %d available processors%n", USERS, cores);
+		System.out.printf("%-8s %14s %14s%n", "workers", "scoreAll (ms)", "top-100 (ms)");
+		for (int workers : workerCounts(cores)) {
+			MatchScorer scorer = new MatchScorer(features::get, workers, true, 4096);
+			boolean parallel = workers > 1;
+			for (int i = 0; i < WARMUP; i++) {
+				scorer.scoreAll(matcher, candidates, parallel);
+				scorer.topK(matcher, candidates, 100, parallel);
+			}
+			long all = 0, top = 0;
+			for (int i = 0; i < ROUNDS; i++) {
+				long start = System.nanoTime();
+				scorer.scoreAll(matcher, candidates, parallel);
+				all += System.nanoTime() - start;
+				start = System.nanoTime();
+				scorer.topK(matcher, candidates, 100, parallel);
+				top += System.nanoTime() - start;
+			}
+			System.out.printf("%-8d %14.2f %14.2f%n", workers, all / 1e6 / ROUNDS, top / 1e6 / ROUNDS);
+			scorer.shutdown();
+		}
+	}
+
+	/* 1, 2, 4, ... up to and including the number of cores */
+	static SortedSet<Integer> workerCounts(int cores) {
+		SortedSet<Integer> counts = new TreeSet<>();
+		for (int workers = 1; workers < cores; workers *= 2) {
+			counts.add(workers);
+		}
+		counts.add(cores);
+		return counts;
+	}
+}
@@ -0,0 +1,86 @@
+package com.yjohnson.backend.entities.Match;
+
+import com.yjohnson.backend.entities.Match.UserFeatureIndex.UserFeatures;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+class MatchScorerTest {
+	static final int USERS = 20_000;
+
+	Map<Long, UserFeatures> features = new HashMap<>();
+	List<Long> candidates = new ArrayList<>();
+	UserFeatures matcher;
+	MatchScorer scorer;
+
+	@BeforeEach
+	void setUp() {
+		/* Few distinct features, so that a lot of candidates tie */
+		Random random = new Random(42);
+		for (long id = 1; id <= USERS; id++) {
+			features.put(id, randomFeatures(random));
+			candidates.add(id);
+		}
+		Collections.shuffle(candidates, random);
+		matcher = randomFeatures(random);
+		scorer = new MatchScorer(features::get, 4, false, 64);
+	}
+
+	@AfterEach
+	void tearDown() {
+		scorer.shutdown();
+	}
+
+	@Test
+	void parallelScoresMatchSequentialScores() {
+		List<ScoredCandidate> sequential = scorer.scoreAll(matcher, candidates, false);
+		List<ScoredCandidate> parallel = scorer.scoreAll(matcher, candidates, true);
+
+		assert sequential.size() == USERS && parallel.size() == USERS;
+		for (int i = 0; i < USERS; i++) {
+			assert sequential.get(i).getUserId() == candidates.get(i);
+			assert sequential.get(i).getUserId() == parallel.get(i).getUserId();
+			assert sequential.get(i).getScore() == parallel.get(i).getScore();
+		}
+	}
+
+	@Test
+	void parallelTopKMatchesSequentialTopKWithTies() {
+		for (int k : new int[]{1, 10, 500, USERS + 1}) {
+			List<ScoredCandidate> sequential = scorer.topK(matcher, candidates, k, false);
+			List<ScoredCandidate> parallel = scorer.topK(matcher, candidates, k, true);
+
+			assert sequential.size() == Math.min(k, USERS);
+			assert ids(sequential).equals(ids(parallel));
+			for (int i = 1; i < sequential.size(); i++) {
+				assert ScoredCandidate.RANKING.compare(sequential.get(i - 1), sequential.get(i)) < 0;
+			}
+		}
+	}
+
+	@Test
+	void unknownCandidatesScoreZero() {
+		List<ScoredCandidate> scores = scorer.scoreAll(matcher, Collections.singletonList(USERS + 1L), true);
+		assert scores.size() == 1 && scores.get(0).getScore() == 0;
+	}
+
+	static UserFeatures randomFeatures(Random random) {
+		long[] interests = new long[1];
+		long[] groups = new long[1];
+		for (int i = 0; i < 3; i++) {
+			interests = UserFeatures.set(interests, random.nextInt(12));
+			groups = UserFeatures.set(groups, random.nextInt(6));
+		}
+		return new UserFeatures(interests, groups, random.nextInt(5));
+	}
+
+	static List<Long> ids(List<ScoredCandidate> candidates) {
+		List<Long> ids = new ArrayList<>(candidates.size());
+		for (ScoredCandidate c : candidates) {
+			ids.add(c.getUserId());
+		}
+		return ids;
+	}
+}
@@ -0,0 +1,158 @@
+package com.yjohnson.backend.entities.Match;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yjohnson.backend.entities.Group.GroupEntity;
+import com.yjohnson.backend.entities.Group.GroupRepository;
+import com.yjohnson.backend.entities.Group.GroupType;
+import com.yjohnson.backend.entities.Interest.InterestEntity;
+import com.yjohnson.backend.entities.Interest.InterestRepository;
+import com.yjohnson.backend.entities.User.User;
+import com.yjohnson.backend.entities.User.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpMethod;
+
+import java.util.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class MatchServiceTest {
+	@Autowired
+	MatchService matchService;
+	@Autowired
+	MatchDeltaService matchDeltaService;
+	@Autowired
+	MatchRepository matchRepository;
+	@Autowired
+	UserRepository userRepository;
+	@Autowired
+	TestRestTemplate rest;
+	@Autowired
+	InterestRepository interestRepository;
+	@Autowired
+	GroupRepository groupRepository;
+	@Autowired
+	ObjectMapper objectMapper;
+
+	List<User> users = new ArrayList<>();
+
+	@BeforeEach
+	void setUp() {
+		String run = UUID.randomUUID().toString().substring(0, 8);
+		for (int i = 0; i < 4; i++) {
+			Map<String, Object> user = new HashMap<>();
+			user.put("username", "service" + i + run);
+			user.put("email", i + run + "@example.com");
+			user.put("passwordHash", "secret");
+			user.put("firstName", "First");
+			user.put("lastName", "Last");
+			user.put("classification", "SENIOR");
+			users.add(userRepository.save(objectMapper.convertValue(user, User.class)));
+		}
+		matchDeltaService.onUsersAdded(users);
+	}
+
+	@AfterEach
+	void tearDown() {
+		users.forEach(user -> matchDeltaService.onUserRemoved(user.getId()));
+	}
+
+	@Test
+	void topKLeavesStoredMatchesAlone() {
+		User user = users.get(0);
+		Map<Long, Integer> stored = scores(matchService.matchUser(user, false));
+		assert stored.size() >= users.size() - 1 : stored;
+
+		List<MatchEntity> top = matchService.matchUserTopK(user, 1, false);
+		assert top.size() == 1 && top.get(0).getScore() == Collections.max(stored.values()) : top;
+		assert scores(matchRepository.findAllByMatcherRanked(user)).equals(stored);
+	}
+
+	@Test
+	void approximateMatchesAreNotStored() {
+		User user = users.get(0);
+		Map<Long, Integer> stored = scores(matchService.matchUser(user, false));
+
+		/* The users only share the classification, which the MinHash index does not see, so every exact match is missed */
+		List<MatchEntity> approximate = matchService.matchUserApproximate(user, Integer.MAX_VALUE, false);
+		assert approximate.size() < stored.size() : approximate;
+		assert scores(matchRepository.findAllByMatcherRanked(user)).equals(stored);
+	}
+
+	@Test
+	void deltaUpdatesMatchFullRecompute() {
+		String run = UUID.randomUUID().toString().substring(0, 8);
+		Long a = interestRepository.save(new InterestEntity("DeltaA" + run, null)).getId();
+		Long b = interestRepository.save(new InterestEntity("DeltaB" + run, null)).getId();
+		Long group = college("Delta" + run);
+		relate("interests", users.get(1).getId(), a, true);
+		relate("interests", users.get(1).getId(), b, true);
+		relate("interests", users.get(2).getId(), b, true);
+		relate("groups", users.get(3).getId(), group, true);
+		for (User user : users) {
+			matchService.refreshMatches(user, false);
+		}
+
+		Long changed = users.get(0).getId();
+		relate("interests", changed, a, true);
+		assertStoredMatchesAreFresh();
+		relate("interests", changed, b, true);
+		assertStoredMatchesAreFresh();
+		relate("groups", changed, group, true);
+		assertStoredMatchesAreFresh();
+		relate("interests", changed, a, false);
+		assertStoredMatchesAreFresh();
+		relate("groups", changed, group, false);
+		assertStoredMatchesAreFresh();
+	}
+
+	@Test
+	void matchesByChoiceStoreCompleteList() {
+		User user = users.get(0);
+		Long group = college("Choice" + UUID.randomUUID().toString().substring(0, 8));
+		relate("groups", user.getId(), group, true);
+		relate("groups", users.get(3).getId(), group, true);
+
+		/* Only one user shares the group, but every user shares the classification */
+		List<MatchEntity> byChoice = matchService.matchUserByChoice(GroupType.COLLEGE, user);
+		assert byChoice.size() == 1 : byChoice;
+		Map<Long, Integer> stored = scores(matchRepository.findAllByMatcherRanked(user));
+		assert scores(matchService.refreshMatches(user, false)).equals(stored) : stored;
+	}
+
+	/* Only majors and colleges count towards the score */
+	private Long college(String name) {
+		GroupEntity group = new GroupEntity(name, null);
+		group.groupType = GroupType.COLLEGE;
+		return groupRepository.save(group).getId();
+	}
+
+	/* Adds or removes a relation the way clients do, which notifies MatchDeltaService */
+	private void relate(String relation, Long userId, Long id, boolean add) {
+		String url = "/users/" + userId + "/" + relation + "/" + id;
+		HttpMethod method = add ? HttpMethod.POST : HttpMethod.DELETE;
+		assert rest.exchange(url, method, null, String.class).getStatusCode().is2xxSuccessful() : method + " " + url;
+	}
+
+	/* The changed user's own list and the rows of the others against it equal what a full recompute of every list stores */
+	private void assertStoredMatchesAreFresh() {
+		Map<Long, Map<Long, Integer>> stored = new HashMap<>();
+		for (User user : users) {
+			stored.put(user.getId(), scores(matchRepository.findAllByMatcherRanked(user)));
+		}
+		for (User user : users) {
+			Map<Long, Integer> refreshed = scores(matchService.refreshMatches(user, false));
+			assert refreshed.equals(stored.get(user.getId())) : "user " + user.getId() + " stored " + stored.get(user.getId()) + " but " + refreshed;
+		}
+	}
+
+	/* Matchee ID to score */
+	static Map<Long, Integer> scores(Iterable<MatchEntity> matches) {
+		Map<Long, Integer> scores = new HashMap<>();
+		matches.forEach(match -> scores.put(match.getMatchee().getId(), match.getScore()));
+		return scores;
+	}
+}
@@ -0,0 +1,127 @@
+package com.yjohnson.backend.entities.Match;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yjohnson.backend.entities.DB_Relations.R_UserInterest;
+import com.yjohnson.backend.entities.DB_Relations.UserInterestRepository;
+import com.yjohnson.backend.entities.Interest.InterestEntity;
+import com.yjohnson.backend.entities.Interest.InterestRepository;
+import com.yjohnson.backend.entities.User.User;
+import com.yjohnson.backend.entities.User.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.*;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class MatchStreamerTest {
+	/* More than two pages, so the stream has to follow its cursor */
+	static final int USERS = MatchStreamer.PAGE_SIZE * 5 / 2;
+
+	@Autowired
+	TestRestTemplate rest;
+	@Autowired
+	ObjectMapper objectMapper;
+	@Autowired
+	UserRepository userRepository;
+	@Autowired
+	InterestRepository interestRepository;
+	@Autowired
+	UserInterestRepository userInterestRepository;
+	@Autowired
+	MatchDeltaService matchDeltaService;
+	@Autowired
+	MatchRepository matchRepository;
+	@Autowired
+	MatchService matchService;
+
+	List<User> users = new ArrayList<>();
+
+	@BeforeEach
+	void setUp() {
+		String run = UUID.randomUUID().toString().substring(0, 8);
+		List<InterestEntity> interests = new ArrayList<>();
+		for (int i = 0; i < 3; i++) {
+			interests.add(interestRepository.save(new InterestEntity("Stream" + i + run, null)));
+		}
+		/* Every user has a different subset of the interests, so the scores range from one to four */
+		for (int i = 0; i < USERS; i++) {
+			Map<String, Object> user = new HashMap<>();
+			user.put("username", "stream" + i + run);
+			user.put("email", i + run + "@example.com");
+			user.put("passwordHash", "secret");
+			user.put("firstName", "First");
+			user.put("lastName", "Last");
+			user.put("classification", "FRESHMAN");
+			Long id = userRepository.save(objectMapper.convertValue(user, User.class)).getId();
+			User created = userRepository.findWithRelationsById(id).get();
+			for (int b = 0; b < interests.size(); b++) {
+				if ((i >> b & 1) == 0) continue;
+				created.getInterests().add(userInterestRepository.save(new R_UserInterest(created, interests.get(b), LocalDateTime.now())));
+			}
+			users.add(userRepository.save(created));
+		}
+		matchDeltaService.onUsersAdded(users);
+	}
+
+	@AfterEach
+	void tearDown() {
+		users.forEach(user -> matchDeltaService.onUserRemoved(user.getId()));
+	}
+
+	/* The user has no stored matches, so they are ranked in memory and stored after the stream */
+	@Test
+	void streamsNdjsonInRankOrder() throws IOException {
+		User user = users.get(users.size() - 1);
+		assert !matchRepository.existsByMatcher(user);
+		ResponseEntity<String> response = rest.getForEntity("/users/" + user.getId() + "/match/stream?format=NDJSON", String.class);
+		assert response.getHeaders().getContentType().isCompatibleWith(MediaType.parseMediaType("application/x-ndjson"));
+
+		List<Map<?, ?>> matches = new ArrayList<>();
+		for (String line : response.getBody().split("\n")) {
+			matches.add(objectMapper.readValue(line, Map.class));
+		}
+		assertRanked(user, matches);
+	}
+
+	/* The user's matches are stored first, so they are read back a page at a time */
+	@Test
+	void streamsServerSentEventsInRankOrder() throws IOException {
+		User user = users.get(users.size() - 1);
+		matchService.refreshMatches(user, false);
+		HttpHeaders headers = new HttpHeaders();
+		headers.setAccept(Collections.singletonList(MediaType.TEXT_EVENT_STREAM));
+		ResponseEntity<String> response = rest.exchange("/users/" + user.getId() + "/match/stream", HttpMethod.GET, new HttpEntity<>(headers),
+				String.class);
+		assert response.getHeaders().getContentType().isCompatibleWith(MediaType.TEXT_EVENT_STREAM);
+
+		String[] events = response.getBody().split("\n\n");
+		assert events[events.length - 1].equals("event: end\ndata: ") : events[events.length - 1];
+		List<Map<?, ?>> matches = new ArrayList<>();
+		for (String event : Arrays.copyOf(events, events.length - 1)) {
+			assert event.startsWith("data: ") : event;
+			matches.add(objectMapper.readValue(event.substring("data: ".length()), Map.class));
+		}
+		assertRanked(user, matches);
+	}
+
+	/* The streamed matches are the stored ones, each once, by descending score and then ascending matched user ID */
+	private void assertRanked(User user, List<Map<?, ?>> streamed) {
+		List<MatchEntity> stored = matchRepository.findAllByMatcherRanked(user);
+		assert stored.size() >= USERS - 1 : stored.size();
+		assert streamed.size() == stored.size() : streamed.size() + " streamed, " + stored.size() + " stored";
+		for (int i = 0; i < stored.size(); i++) {
+			Map<?, ?> match = streamed.get(i);
+			long matcheeId = ((Number) ((Map<?, ?>) match.get("matched_user")).get("id")).longValue();
+			assert matcheeId == stored.get(i).getMatchee().getId() : "match " + i + " is " + match;
+			assert ((Number) match.get("score")).intValue() == stored.get(i).getScore() : "match " + i + " is " + match;
+		}
+		assert stored.get(0).getScore() > stored.get(stored.size() - 1).getScore();
+	}
+}
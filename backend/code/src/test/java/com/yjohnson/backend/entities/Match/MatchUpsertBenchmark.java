@@ -0,0 +1,146 @@
+package com.yjohnson.backend.entities.Match;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yjohnson.backend.entities.User.User;
+import com.yjohnson.backend.entities.User.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts the database round trips of a user's first match refresh, when every pair is new: once the way matches were stored before, with a
+ * lookup and a save per pair, and once with the batched upsert of {@link MatchRepositoryCustom}. Every statement execution counts as a round
+ * trip, a batch counts once.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class MatchUpsertBenchmark {
+	static final AtomicLong ROUND_TRIPS = new AtomicLong();
+
+	@Autowired
+	UserRepository userRepository;
+	@Autowired
+	MatchRepository matchRepository;
+	@Autowired
+	MatchDeltaService matchDeltaService;
+	@Autowired
+	JdbcTemplate jdbcTemplate;
+	@Autowired
+	ObjectMapper objectMapper;
+
+	@Test
+	void firstRefresh() {
+		System.out.printf("%-10s %-10s %12s %10s%n", "pairs", "path", "round trips", "ms");
+		for (int pairs : new int[]{100, 1_000, 5_000}) {
+			List<User> users = new ArrayList<>();
+			try {
+				String run = UUID.randomUUID().toString().substring(0, 8);
+				for (int i = 0; i < pairs + 2; i++) {
+					Map<String, Object> user = new HashMap<>();
+					user.put("username", "upsert" + i + run);
+					user.put("email", i + run + "@example.com");
+					user.put("passwordHash", "secret");
+					user.put("firstName", "First");
+					user.put("lastName", "Last");
+					user.put("classification", "SENIOR");
+					users.add(objectMapper.convertValue(user, User.class));
+				}
+				List<User> saved = new ArrayList<>(users.size());
+				userRepository.saveAll(users).forEach(saved::add);
+				users.clear();
+				users.addAll(saved);
+				List<User> matchees = users.subList(2, users.size());
+
+				measure(pairs, "per pair", () -> {
+					User matcher = users.get(0);
+					for (User matchee : matchees) {
+						if (matchRepository.findByMatcherAndMatchee(matcher, matchee).isEmpty()) {
+							matchRepository.save(new MatchEntity(matcher, matchee, score(matchee), false));
+						}
+					}
+				});
+				measure(pairs, "batched", () -> {
+					User matcher = users.get(1);
+					List<ScoredCandidate> scores = new ArrayList<>(matchees.size());
+					matchees.forEach(matchee -> scores.add(new ScoredCandidate(matchee.getId(), score(matchee))));
+					matchRepository.upsertScores(matcher.getId(), scores, matchRepository.findMatchIdsByMatcher(matcher.getId()));
+				});
+			} finally {
+				for (User user : users) {
+					if (user.getId() == null) continue;
+					jdbcTemplate.update("DELETE FROM match_entity WHERE matcher_id = ? OR matchee_id = ?", user.getId(), user.getId());
+					jdbcTemplate.update("DELETE FROM users WHERE id = ?", user.getId());
+					matchDeltaService.onUserRemoved(user.getId());
+				}
+			}
+		}
+	}
+
+	private static void measure(int pairs, String path, Runnable refresh) {
+		long start = System.nanoTime();
+		long before = ROUND_TRIPS.get();
+		refresh.run();
+		System.out.printf("%-10d %-10s %12d %10.1f%n", pairs, path, ROUND_TRIPS.get() - before, (System.nanoTime() - start) / 1e6);
+	}
+
+	private static int score(User matchee) {
+		return (int) (matchee.getId() % 5) + 1;
+	}
+
+	@TestConfiguration
+	static class CountingDataSourceConfiguration {
+		@Bean
+		static BeanPostProcessor countingDataSource() {
+			return new BeanPostProcessor() {
+				@Override
+				public Object postProcessAfterInitialization(Object bean, String beanName) {
+					return bean instanceof DataSource ? new CountingDataSource((DataSource) bean) : bean;
+				}
+			};
+		}
+	}
+
+	/* Counts every execute call on the statements of its connections */
+	static class CountingDataSource extends DelegatingDataSource {
+		CountingDataSource(DataSource target) {
+			super(target);
+		}
+
+		@Override
+		public Connection getConnection() throws SQLException {
+			return counting(Connection.class, super.getConnection());
+		}
+
+		@Override
+		public Connection getConnection(String username, String password) throws SQLException {
+			return counting(Connection.class, super.getConnection(username, password));
+		}
+
+		/* Statements are wrapped as the interface the method declares, e.g. PreparedStatement */
+		@SuppressWarnings("unchecked")
+		private static <T> T counting(Class<T> type, Object target) {
+			return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+				if (method.getName().startsWith("execute")) ROUND_TRIPS.incrementAndGet();
+				try {
+					Object result = method.invoke(target, args);
+					return result instanceof Statement ? counting(method.getReturnType(), result) : result;
+				} catch (InvocationTargetException e) {
+					throw e.getCause();
+				}
+			});
+		}
+	}
+}
@@ -0,0 +1,133 @@
+package com.yjohnson.backend.entities.Match;
+
+import com.yjohnson.backend.entities.Match.UserFeatureIndex.UserFeatures;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+/**
+ * Measures the recall of {@link MinHashIndex} candidates against the exact scorer on a synthetic campus, where users belong to communities that
+ * share most of their interests and groups.
+ */
+class MinHashIndexTest {
+	static final int USERS = 20_000;
+	static final int COMMUNITIES = 500;
+	static final int QUERIES = 200;
+	static final int K = 10;
+
+	Map<Long, UserFeatures> features = new HashMap<>();
+	List<Long> ids = new ArrayList<>();
+	MatchScorer scorer;
+
+	@BeforeEach
+	void setUp() {
+		Random random = new Random(7);
+		int[][] baseInterests = new int[COMMUNITIES][8];
+		int[][] baseGroups = new int[COMMUNITIES][2];
+		for (int c = 0; c < COMMUNITIES; c++) {
+			for (int i = 0; i < 8; i++) baseInterests[c][i] = random.nextInt(2_000);
+			for (int i = 0; i < 2; i++) baseGroups[c][i] = random.nextInt(200);
+		}
+		for (long id = 1; id <= USERS; id++) {
+			int c = random.nextInt(COMMUNITIES);
+			long[] interests = new long[0];
+			long[] groups = new long[0];
+			for (int i = 0; i < 8; i++) {
+				if (random.nextInt(4) != 0) interests = UserFeatures.set(interests, baseInterests[c][i]);
+			}
+			interests = UserFeatures.set(interests, random.nextInt(2_000));
+			groups = UserFeatures.set(groups, baseGroups[c][random.nextInt(2)]);
+			features.put(id, new UserFeatures(interests, groups, random.nextInt(5)));
+			ids.add(id);
+		}
+		scorer = new MatchScorer(features::get, 1, false, Integer.MAX_VALUE);
+	}
+
+	@AfterEach
+	void tearDown() {
+		scorer.shutdown();
+	}
+
+	@Test
+	void defaultSettingsFindMostExactTopMatches() {
+		Result result = measure(new MinHashIndex(20, 4));
+
+		assert result.recall >= 0.9 : result;
+		/* Sublinear: far fewer users scored than exhaustive matching */
+		assert result.candidates < USERS / 20.0 : result;
+	}
+
+	@Test
+	void moreBandsRaiseRecallMoreRowsCutCandidates() {
+		Result base = measure(new MinHashIndex(10, 4));
+		Result moreBands = measure(new MinHashIndex(40, 4));
+		Result moreRows = measure(new MinHashIndex(10, 6));
+
+		assert moreBands.recall >= base.recall && moreBands.candidates >= base.candidates : base + " vs " + moreBands;
+		assert moreRows.recall <= base.recall && moreRows.candidates <= base.candidates : base + " vs " + moreRows;
+	}
+
+	@Test
+	void removedAndUpdatedUsersLeaveTheirBuckets() {
+		MinHashIndex index = new MinHashIndex(20, 4);
+		UserFeatures features = this.features.get(1L);
+		index.put(1L, features);
+		index.put(2L, features);
+		assert index.candidates(1L, features).equals(Collections.singleton(2L));
+
+		index.put(2L, new UserFeatures(new long[0], new long[0], 0));
+		assert index.candidates(1L, features).isEmpty();
+
+		index.put(2L, features);
+		index.remove(2L);
+		assert index.candidates(1L, features).isEmpty();
+	}
+
+	/* Recall@K counts approximate matches that score at least as high as the K-th exact match, so ties do not matter */
+	Result measure(MinHashIndex index) {
+		features.forEach(index::put);
+		Random random = new Random(11);
+		double recall = 0, candidates = 0;
+		long nanos = 0;
+		for (int q = 0; q < QUERIES; q++) {
+			long id = ids.get(random.nextInt(USERS));
+			UserFeatures matcher = features.get(id);
+			List<Long> others = new ArrayList<>(ids);
+			others.remove(id);
+			List<ScoredCandidate> exact = scorer.topK(matcher, others, K, false);
+
+			long start = System.nanoTime();
+			Set<Long> found = index.candidates(id, matcher);
+			List<ScoredCandidate> approximate = scorer.topK(matcher, found, K, false);
+			nanos += System.nanoTime() - start;
+
+			int kth = exact.get(exact.size() - 1).getScore();
+			int hits = 0;
+			for (ScoredCandidate c : approximate) {
+				if (c.getScore() >= kth) hits++;
+			}
+			recall += (double) hits / exact.size();
+			candidates += found.size();
+		}
+		return new Result(recall / QUERIES, candidates / QUERIES, nanos / 1e3 / QUERIES);
+	}
+
+	static final class Result {
+		final double recall;
+		final double candidates;
+		final double micros;
+
+		Result(double recall, double candidates, double micros) {
+			this.recall = recall;
+			this.candidates = candidates;
+			this.micros = micros;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("recall@%d=%.3f, candidates=%.1f, latency=%.1fus", K, recall, candidates, micros);
+		}
+	}
+}
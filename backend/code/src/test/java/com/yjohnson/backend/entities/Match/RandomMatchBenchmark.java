@@ -0,0 +1,44 @@
+package com.yjohnson.backend.entities.Match;
+
+import com.yjohnson.backend.entities.Group.GroupType;
+import com.yjohnson.backend.entities.User.User;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+/**
+ * Shows that picking a random match from the {@link UserFeatureIndex} takes the same time no matter how many users there are.
+ */
+class RandomMatchBenchmark {
+	static final int DRAWS = 200_000;
+
+	@Test
+	void flatLatency() {
+		System.out.printf("%-10s %12s %14s %14s%n", "users", "any (ns)", "class (ns)", "groups (ns)");
+		for (int users = 1_000; users <= 1_000_000; users *= 10) {
+			Random random = new Random(42);
+			UserFeatureIndex index = UserFeatureIndexTest.emptyIndex();
+			for (long id = 1; id <= users; id++) {
+				/* 5 classes, 100 majors and 10 colleges */
+				index.put(id, UserFeatureIndexTest.features(random.nextInt(5), random.nextInt(100), 100 + random.nextInt(10)));
+			}
+			User user = UserFeatureIndexTest.user(1L);
+
+			System.out.printf("%-10d %12.1f %14.1f %14.1f%n", users,
+					time(() -> index.randomUser(1L)),
+					time(() -> index.randomCandidate(user, GroupType.STUDENT_CLASS)),
+					time(() -> index.randomCandidate(user, GroupType.STUDENT_MAJOR)));
+		}
+	}
+
+	static double time(Runnable draw) {
+		for (int i = 0; i < DRAWS; i++) {
+			draw.run();
+		}
+		long start = System.nanoTime();
+		for (int i = 0; i < DRAWS; i++) {
+			draw.run();
+		}
+		return (double) (System.nanoTime() - start) / DRAWS;
+	}
+}
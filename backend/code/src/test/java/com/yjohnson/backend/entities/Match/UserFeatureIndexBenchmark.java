@@ -0,0 +1,48 @@
+package com.yjohnson.backend.entities.Match;
+
+import com.yjohnson.backend.entities.User.User;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Measures how long scoring one user against every other user takes with {@link MatchEntity#calculateScore()} and with the bitsets of the
+ * {@link UserFeatureIndex}.
+ */
+class UserFeatureIndexBenchmark {
+	static final int USERS = 100_000;
+	static final int WARMUP = 5;
+	static final int ROUNDS = 10;
+
+	@Test
+	void scoring() {
+		List<User> users = UserFeatureIndexTest.randomUsers(new Random(42), USERS);
+		UserFeatureIndex index = UserFeatureIndexTest.emptyIndex();
+		long start = System.nanoTime();
+		users.forEach(index::featuresOf);
+		System.out.printf("%d users indexed in %.2f ms%n", USERS, (System.nanoTime() - start) / 1e6);
+
+		User matcher = users.get(0);
+		System.out.printf("%-16s %14s %10s%n", "implementation", "all users (ms)", "checksum");
+		long calculated = 0, indexed = 0, calculatedSum = 0, indexedSum = 0;
+		for (int i = 0; i < WARMUP + ROUNDS; i++) {
+			start = System.nanoTime();
+			calculatedSum = 0;
+			for (User matchee : users) {
+				calculatedSum += new MatchEntity(matcher, matchee).calculateScore();
+			}
+			if (i >= WARMUP) calculated += System.nanoTime() - start;
+
+			start = System.nanoTime();
+			indexedSum = 0;
+			for (User matchee : users) {
+				indexedSum += index.score(matcher, matchee);
+			}
+			if (i >= WARMUP) indexed += System.nanoTime() - start;
+		}
+		System.out.printf("%-16s %14.2f %10d%n", "calculateScore", calculated / 1e6 / ROUNDS, calculatedSum);
+		System.out.printf("%-16s %14.2f %10d%n", "bitsets", indexed / 1e6 / ROUNDS, indexedSum);
+		assert calculatedSum == indexedSum;
+	}
+}
@@ -0,0 +1,199 @@
+package com.yjohnson.backend.entities.Match;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yjohnson.backend.entities.DB_Relations.R_UserGroup;
+import com.yjohnson.backend.entities.DB_Relations.R_UserInterest;
+import com.yjohnson.backend.entities.Group.GroupEntity;
+import com.yjohnson.backend.entities.Group.GroupType;
+import com.yjohnson.backend.entities.Interest.InterestEntity;
+import com.yjohnson.backend.entities.Match.UserFeatureIndex.UserFeatures;
+import com.yjohnson.backend.entities.User.User;
+import com.yjohnson.backend.entities.User.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+class UserFeatureIndexTest {
+	static final int DRAWS = 60_000;
+
+	UserFeatureIndex index = emptyIndex();
+
+	@Test
+	void randomUserNeverPicksTheCaller() {
+		index.put(1L, features(0, 0));
+		assert !index.randomUser(1L).isPresent();
+
+		index.put(2L, features(0, 0));
+		for (int i = 0; i < 100; i++) {
+			assert index.randomUser(1L).equals(Optional.of(2L));
+		}
+
+		index.remove(2L);
+		assert !index.randomUser(1L).isPresent();
+	}
+
+	@Test
+	void randomGroupCandidatesAreUniformOverTheUnion() {
+		/* User 1 is in groups 0, 1 and 2; user 2 shares all three, user 3 shares two and users 4 and 5 share one */
+		index.put(1L, features(0, 0, 1, 2));
+		index.put(2L, features(1, 0, 1, 2));
+		index.put(3L, features(2, 0, 1));
+		index.put(4L, features(3, 2));
+		index.put(5L, features(4, 0));
+		index.put(6L, features(0, 3));
+		User user = user(1L);
+
+		Map<Long, Integer> counts = new HashMap<>();
+		for (int i = 0; i < DRAWS; i++) {
+			counts.merge(index.randomCandidate(user, GroupType.STUDENT_MAJOR).orElseThrow(AssertionError::new), 1, Integer::sum);
+		}
+
+		assert counts.keySet().equals(new HashSet<>(Arrays.asList(2L, 3L, 4L, 5L))) : counts;
+		for (int count : counts.values()) {
+			assert Math.abs(count - DRAWS / 4) < DRAWS / 40 : counts;
+		}
+	}
+
+	@Test
+	void randomCandidatesFallBackWhenOnlyTheCallerIsSampled() {
+		index.put(1L, features(0, 0));
+		assert !index.randomCandidate(user(1L), GroupType.COLLEGE).isPresent();
+		assert !index.randomCandidate(user(1L), GroupType.STUDENT_CLASS).isPresent();
+
+		index.put(2L, features(0, 0));
+		assert index.randomCandidate(user(1L), GroupType.COLLEGE).equals(Optional.of(2L));
+		assert index.randomCandidate(user(1L), GroupType.STUDENT_CLASS).equals(Optional.of(2L));
+	}
+
+	@Test
+	void scoresEqualCalculateScore() {
+		List<User> users = randomUsers(new Random(7), 300);
+		for (User matcher : users) {
+			for (User matchee : users) {
+				int expected = new MatchEntity(matcher, matchee).calculateScore();
+				assert index.score(matcher, matchee) == expected : matcher.getId() + " against " + matchee.getId() + ": expected " + expected;
+			}
+		}
+	}
+
+	@Test
+	void candidatesAreTheUsersThatShareAFeature() {
+		Random random = new Random(11);
+		Map<Long, User> users = new HashMap<>();
+		for (User user : randomUsers(random, 200)) {
+			index.update(user);
+			users.put(user.getId(), user);
+		}
+		assertCandidatesAreExact(users.values());
+
+		/* Every second user changes all of its features and every fifth leaves */
+		for (User user : randomUsers(random, 200)) {
+			if (user.getId() % 2 == 0) {
+				index.update(user);
+				users.put(user.getId(), user);
+			}
+			if (user.getId() % 5 == 0) {
+				index.remove(user.getId());
+				users.remove(user.getId());
+			}
+		}
+		assertCandidatesAreExact(users.values());
+	}
+
+	/* Compares the candidates of every user with the users that share an interest, a major or college, or the classification with it */
+	private void assertCandidatesAreExact(Collection<User> users) {
+		for (User user : users) {
+			Set<Long> all = new HashSet<>(), groups = new HashSet<>(), classification = new HashSet<>();
+			for (User other : users) {
+				if (other == user) continue;
+				if (!Collections.disjoint(groupIds(user), groupIds(other))) groups.add(other.getId());
+				if (user.getClassification() == other.getClassification()) classification.add(other.getId());
+				if (!Collections.disjoint(interestIds(user), interestIds(other))) all.add(other.getId());
+			}
+			all.addAll(groups);
+			all.addAll(classification);
+
+			assert index.candidates(user).equals(all) : "candidates of " + user.getId();
+			assert index.groupCandidates(user).equals(groups) : "group candidates of " + user.getId();
+			assert index.classificationCandidates(user).equals(classification) : "classification candidates of " + user.getId();
+		}
+	}
+
+	private static Set<Long> interestIds(User user) {
+		Set<Long> ids = new HashSet<>();
+		user.getInterests().forEach(relation -> ids.add(relation.getInterest().getId()));
+		return ids;
+	}
+
+	private static Set<Long> groupIds(User user) {
+		Set<Long> ids = new HashSet<>();
+		user.getMajors().forEach(group -> ids.add(group.getId()));
+		user.getColleges().forEach(group -> ids.add(group.getId()));
+		return ids;
+	}
+
+	static UserFeatureIndex emptyIndex() {
+		UserRepository repository = Mockito.mock(UserRepository.class);
+		Mockito.when(repository.findAll()).thenReturn(Collections.emptyList());
+		return new UserFeatureIndex(repository);
+	}
+
+	static UserFeatures features(int classification, int... groups) {
+		long[] words = new long[0];
+		for (int group : groups) {
+			words = UserFeatures.set(words, group);
+		}
+		return new UserFeatures(new long[0], words, classification);
+	}
+
+	static User user(long id) {
+		return new ObjectMapper().convertValue(Collections.singletonMap("id", id), User.class);
+	}
+
+	/**
+	 * Creates users with IDs from 1 that have up to 6 of 40 interests, up to 4 of 16 groups of every type (and none) and one of the
+	 * classifications (or none), without touching the database.
+	 */
+	static List<User> randomUsers(Random random, int count) {
+		List<InterestEntity> interests = new ArrayList<>();
+		for (long id = 1; id <= 40; id++) {
+			InterestEntity interest = new InterestEntity("Interest" + id, null);
+			interest.setId(id);
+			interests.add(interest);
+		}
+		GroupType[] types = {GroupType.STUDENT_MAJOR, GroupType.COLLEGE, GroupType.STUDENT_CLASS, null};
+		List<GroupEntity> groups = new ArrayList<>();
+		for (long id = 1; id <= 16; id++) {
+			GroupEntity group = new GroupEntity("Group" + id, null);
+			group.setId(id);
+			group.groupType = types[(int) id % types.length];
+			groups.add(group);
+		}
+		String[] classifications = {"FRESHMAN", "SOPHOMORE", "JUNIOR", "SENIOR", null};
+
+		ObjectMapper objectMapper = new ObjectMapper();
+		LocalDateTime now = LocalDateTime.now();
+		List<User> users = new ArrayList<>(count);
+		for (long id = 1; id <= count; id++) {
+			/* The classification's type is not visible here, so it is read through a user mapped from JSON */
+			Map<String, Object> json = new HashMap<>();
+			json.put("classification", classifications[random.nextInt(classifications.length)]);
+			User template = objectMapper.convertValue(json, User.class);
+			User user = new User("user" + id, id + "@example.com", "hash", "First", null, "Last", null, null, template.getClassification(), null,
+					new HashSet<>(), new HashSet<>(), "", false, 0, id);
+			/* Distinct, like the relations that UserService and the import create */
+			Collections.shuffle(interests, random);
+			for (InterestEntity interest : interests.subList(0, random.nextInt(7))) {
+				user.getInterests().add(new R_UserInterest(user, interest, now));
+			}
+			Collections.shuffle(groups, random);
+			for (GroupEntity group : groups.subList(0, random.nextInt(5))) {
+				user.getGroups().add(new R_UserGroup(user, group, now));
+			}
+			users.add(user);
+		}
+		return users;
+	}
+}
@@ -0,0 +1,70 @@
+package com.yjohnson.backend.entities.User;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class UserBatchLookupTest {
+	@Autowired
+	TestRestTemplate rest;
+	@Autowired
+	UserRepository userRepository;
+
+	List<User> users = new ArrayList<>();
+
+	@BeforeEach
+	void setUp() {
+		String run = UUID.randomUUID().toString().substring(0, 8);
+		for (int i = 0; i < 2; i++) {
+			users.add(userRepository.save(new User("batch" + i + run, i + run + "@example.com", "secret", "First" + i, null, "Last", null, null,
+					StudentClassification.FRESHMAN, null, new HashSet<>(), new HashSet<>(), "", false, 0, null)));
+		}
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	void resolvesInRequestOrder() {
+		String username = users.get(1).getUsername();
+		List<String> identifiers = Arrays.asList(username, "-1", String.valueOf(users.get(0).getId()), "nobody" + username, username);
+		ResponseEntity<List> response = rest.postForEntity("/users/batch", identifiers, List.class);
+		assert response.getStatusCode() == HttpStatus.OK;
+		List<Map<String, Object>> results = response.getBody();
+
+		List<Object> statuses = new ArrayList<>();
+		List<Object> firstNames = new ArrayList<>();
+		for (int i = 0; i < results.size(); i++) {
+			assert results.get(i).get("identifier").equals(identifiers.get(i)) : results;
+			statuses.add(results.get(i).get("status"));
+			Map<String, Object> user = (Map<String, Object>) results.get(i).get("user");
+			firstNames.add(user == null ? null : user.get("firstName"));
+		}
+		assert statuses.equals(Arrays.asList("FOUND", "NOT_FOUND", "FOUND", "NOT_FOUND", "FOUND")) : results;
+		assert firstNames.equals(Arrays.asList("First1", null, "First0", null, "First1")) : results;
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	void filtersUserFields() {
+		List<Map<String, Object>> results = rest.postForObject("/users/batch?fields=username",
+				Collections.singletonList(String.valueOf(users.get(0).getId())), List.class);
+		assert results.get(0).get("status").equals("FOUND");
+		assert ((Map<String, Object>) results.get(0).get("user")).keySet().equals(Collections.singleton("username")) : results;
+	}
+
+	@Test
+	void rejectsBadRequests() {
+		assert rest.postForEntity("/users/batch", Collections.emptyList(), String.class).getStatusCode() == HttpStatus.BAD_REQUEST;
+		assert rest.postForEntity("/users/batch", Collections.singletonList(null), String.class).getStatusCode() == HttpStatus.BAD_REQUEST;
+		assert rest.postForEntity("/users/batch", Collections.nCopies(UserController.MAX_BULK_SIZE + 1, "x"), String.class).getStatusCode() ==
+				HttpStatus.BAD_REQUEST;
+		assert rest.postForEntity("/users/batch?fields=nope", Collections.singletonList("x"), String.class).getStatusCode() ==
+				HttpStatus.BAD_REQUEST;
+	}
+}
@@ -0,0 +1,87 @@
+package com.yjohnson.backend.entities.User;
+
+import com.yjohnson.backend.entities.Interest.InterestEntity;
+import com.yjohnson.backend.entities.Interest.InterestRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class UserBulkRelationTest {
+	@Autowired
+	TestRestTemplate rest;
+	@Autowired
+	UserRepository userRepository;
+	@Autowired
+	InterestRepository interestRepository;
+
+	User user;
+	List<Long> interests = new ArrayList<>();
+
+	@BeforeEach
+	void setUp() {
+		String run = UUID.randomUUID().toString().substring(0, 8);
+		user = userRepository.save(new User("bulk" + run, run + "@example.com", "hash", "First", null, "Last", null, null,
+				StudentClassification.SOPHOMORE, Gender.OTHER, new HashSet<>(), new HashSet<>(), "", false, 0, null));
+		for (int i = 0; i < 3; i++) {
+			interests.add(interestRepository.save(new InterestEntity("Bulk" + run + i, null)).getId());
+		}
+	}
+
+	@Test
+	void reportsEveryItem() {
+		List<Map<String, Object>> results = post("/users/" + user.getId() + "/interests",
+				Arrays.asList(interests.get(0), interests.get(1), interests.get(0), -1L));
+		assert statuses(results).equals(Arrays.asList("CREATED", "CREATED", "CONFLICT", "NOT_FOUND")) : results;
+		assert results.get(0).get("relation") != null && results.get(2).get("relation") == null;
+
+		results = post("/users/" + user.getId() + "/interests", Arrays.asList(interests.get(1), interests.get(2)));
+		assert statuses(results).equals(Arrays.asList("CONFLICT", "CREATED")) : results;
+
+		List<?> stored = rest.getForObject("/users/" + user.getId() + "/interests", List.class);
+		assert stored.size() == 3;
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	void addsGroups() {
+		List<Long> ids = new ArrayList<>();
+		for (int i = 0; i < 2; i++) {
+			Map<String, Object> group = rest.postForObject("/groups", Collections.singletonMap("name", user.getUsername() + i), Map.class);
+			ids.add(((Number) group.get("id")).longValue());
+		}
+		List<Map<String, Object>> results = post("/users/" + user.getId() + "/groups", ids);
+		assert statuses(results).equals(Arrays.asList("CREATED", "CREATED")) : results;
+		assert rest.getForObject("/users/" + user.getId() + "/groups", List.class).size() == 2;
+	}
+
+	@Test
+	void rejectsBadRequests() {
+		assert rest.postForEntity("/users/" + user.getId() + "/interests", Collections.emptyList(), String.class).getStatusCode() ==
+				HttpStatus.BAD_REQUEST;
+		assert rest.postForEntity("/users/" + user.getId() + "/interests", Collections.singletonList(null), String.class).getStatusCode() ==
+				HttpStatus.BAD_REQUEST;
+		assert rest.postForEntity("/users/-1/interests", interests, String.class).getStatusCode() == HttpStatus.NOT_FOUND;
+	}
+
+	@SuppressWarnings("unchecked")
+	private List<Map<String, Object>> post(String path, List<Long> ids) {
+		ResponseEntity<List> response = rest.postForEntity(path, ids, List.class);
+		assert response.getStatusCode() == HttpStatus.OK : response;
+		return response.getBody();
+	}
+
+	private static List<Object> statuses(List<Map<String, Object>> results) {
+		List<Object> statuses = new ArrayList<>();
+		for (Map<String, Object> result : results) {
+			statuses.add(result.get("status"));
+		}
+		return statuses;
+	}
+}
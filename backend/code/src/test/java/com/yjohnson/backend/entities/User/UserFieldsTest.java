@@ -0,0 +1,81 @@
+package com.yjohnson.backend.entities.User;
+
+import com.yjohnson.backend.entities.Match.MatchDeltaService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpStatus;
+
+import java.util.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class UserFieldsTest {
+	@Autowired
+	TestRestTemplate rest;
+	@Autowired
+	UserRepository userRepository;
+	@Autowired
+	MatchDeltaService matchDeltaService;
+
+	List<User> users = new ArrayList<>();
+
+	@BeforeEach
+	void setUp() {
+		String run = UUID.randomUUID().toString().substring(0, 8);
+		for (int i = 0; i < 3; i++) {
+			users.add(userRepository.save(new User("fields" + i + run, i + run + "@example.com", "secret", "First" + i, null, "Last", "Street",
+					null, StudentClassification.JUNIOR, null, new HashSet<>(), new HashSet<>(), "Bio" + i, false, 0, null)));
+		}
+		matchDeltaService.onUsersAdded(users);
+	}
+
+	@Test
+	void selectsUserColumns() {
+		List<?> listed = rest.getForObject("/users?size=2&fields=firstName,biography&afterId=" + (users.get(0).getId() - 1), List.class);
+		assert listed.size() == 2 : listed;
+		Map<?, ?> first = (Map<?, ?>) listed.get(0);
+		assert first.keySet().equals(new HashSet<>(Arrays.asList("id", "firstName", "biography"))) : first;
+		assert first.get("firstName").equals("First0") && first.get("biography").equals("Bio0");
+	}
+
+	@Test
+	void filtersSingleUser() {
+		Map<?, ?> user = rest.getForObject("/users/" + users.get(1).getId() + "?fields=username,email", Map.class);
+		assert user.keySet().equals(new HashSet<>(Arrays.asList("username", "email"))) : user;
+
+		/* Without fields, nothing changes */
+		user = rest.getForObject("/users/" + users.get(1).getId(), Map.class);
+		assert user.containsKey("firstName") && user.containsKey("address") : user;
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	void selectsMatchColumns() {
+		Map<String, Object> page = rest.getForObject("/users/" + users.get(0).getId() + "/match/page?limit=2&fields=matched_user.firstName",
+				Map.class);
+		List<Map<String, Object>> matches = (List<Map<String, Object>>) page.get("matches");
+		assert !matches.isEmpty() : page;
+		for (Map<String, Object> match : matches) {
+			assert match.keySet().equals(Collections.singleton("matched_user")) : match;
+			assert ((Map<?, ?>) match.get("matched_user")).keySet().equals(Collections.singleton("firstName")) : match;
+		}
+
+		/* The filtered variants agree with the projected one */
+		List<Map<String, Object>> top = rest.getForObject("/users/" + users.get(0).getId() + "/match?limit=2&fields=score,matched_user.id",
+				List.class);
+		assert top.get(0).keySet().equals(new HashSet<>(Arrays.asList("score", "matched_user"))) : top;
+		assert ((Map<?, ?>) top.get(0).get("matched_user")).keySet().equals(Collections.singleton("id")) : top;
+	}
+
+	@Test
+	void rejectsUnknownFields() {
+		long id = users.get(0).getId();
+		for (String url : new String[]{"/users?fields=passwordHash", "/users?fields=firstName,", "/users/" + id + "?fields=password",
+				"/users/" + id + "/match?fields=matched_user", "/users/" + id + "/match/page?fields=matched_user.email",
+				"/users/" + id + "/match/random?fields=nope"}) {
+			assert rest.getForEntity(url, String.class).getStatusCode() == HttpStatus.BAD_REQUEST : url;
+		}
+	}
+}
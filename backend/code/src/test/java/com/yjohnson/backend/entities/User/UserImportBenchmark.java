@@ -0,0 +1,69 @@
+package com.yjohnson.backend.entities.User;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yjohnson.backend.entities.Group.GroupRepository;
+import com.yjohnson.backend.entities.Interest.InterestEntity;
+import com.yjohnson.backend.entities.Interest.InterestRepository;
+import com.yjohnson.backend.entities.Match.MatchDeltaService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+/**
+ * Measures the import throughput for several batch sizes against the in-memory test database.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class UserImportBenchmark {
+	static final int USERS = 20_000;
+
+	@Autowired
+	ObjectMapper objectMapper;
+	@Autowired
+	UserRepository userRepository;
+	@Autowired
+	GroupRepository groupRepository;
+	@Autowired
+	InterestRepository interestRepository;
+	@Autowired
+	MatchDeltaService matchDeltaService;
+	@Autowired
+	TransactionTemplate transactionTemplate;
+
+	@Test
+	void throughput() throws IOException {
+		String run = UUID.randomUUID().toString().substring(0, 8);
+		for (int i = 0; i < 10; i++) {
+			interestRepository.save(new InterestEntity("Bench" + run + i, null));
+		}
+
+		System.out.printf("%-10s %10s %14s%n", "batch", "users", "users/sec");
+		for (int batchSize : new int[]{1, 50, 500, 5000}) {
+			StringBuilder csv = new StringBuilder("username,email,passwordHash,firstName,lastName,classification,interests\n");
+			for (int i = 0; i < USERS; i++) {
+				String name = "b" + batchSize + "x" + i + run;
+				csv.append(name).append(',').append(name).append("@example.com,hash,First,Last,JUNIOR,")
+						.append("Bench").append(run).append(i % 10).append(";Bench").append(run).append((i + 3) % 10).append('\n');
+			}
+			UserImportService service = new UserImportService(userRepository, groupRepository, interestRepository, matchDeltaService,
+					transactionTemplate, objectMapper, batchSize);
+			UserImportService.Progress done = service.importUsers(new ByteArrayInputStream(csv.toString().getBytes(StandardCharsets.UTF_8)),
+					UserImportService.Format.CSV, new UserImportService.Listener() {
+						@Override
+						public void onRowRejected(long row, String reason) {
+							throw new AssertionError(reason);
+						}
+
+						@Override
+						public void onBatchCommitted(UserImportService.Progress progress) {
+						}
+					});
+			System.out.printf("%-10d %10d %14.0f%n", batchSize, done.getImported(), done.getUsersPerSecond());
+		}
+	}
+}
@@ -0,0 +1,214 @@
+package com.yjohnson.backend.entities.User;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yjohnson.backend.entities.Group.GroupEntity;
+import com.yjohnson.backend.entities.Group.GroupRepository;
+import com.yjohnson.backend.entities.Group.GroupType;
+import com.yjohnson.backend.entities.Interest.InterestEntity;
+import com.yjohnson.backend.entities.Interest.InterestRepository;
+import com.yjohnson.backend.entities.Match.MatchDeltaService;
+import com.yjohnson.backend.entities.Match.UserFeatureIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.*;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class UserImportTest {
+	@Autowired
+	TestRestTemplate rest;
+	@Autowired
+	ObjectMapper objectMapper;
+	@Autowired
+	UserRepository userRepository;
+	@Autowired
+	GroupRepository groupRepository;
+	@Autowired
+	InterestRepository interestRepository;
+	@Autowired
+	MatchDeltaService matchDeltaService;
+	@Autowired
+	TransactionTemplate transactionTemplate;
+	@Autowired
+	UserFeatureIndex featureIndex;
+
+	String run;
+
+	@BeforeEach
+	void setUp() {
+		run = UUID.randomUUID().toString().substring(0, 8);
+		GroupEntity major = new GroupEntity("Major" + run, null);
+		major.groupType = GroupType.STUDENT_MAJOR;
+		groupRepository.save(major);
+		GroupEntity college = new GroupEntity("College" + run, null);
+		college.groupType = GroupType.COLLEGE;
+		groupRepository.save(college);
+		interestRepository.save(new InterestEntity("Chess" + run, null));
+		interestRepository.save(new InterestEntity("Go" + run, null));
+	}
+
+	@Test
+	void importsCsv() throws IOException {
+		String csv = "username,email,passwordHash,firstName,lastName,classification,majors,colleges,interests,biography\r\n" +
+				"A" + run + ",a" + run + "@example.com,hash,ada,lovelace,freshman,major" + run + ",College" + run + ",Chess" + run + ";Go" + run +
+				",\"Likes, \"\"quotes\"\"\nand lines\"\r\n" +
+				"b" + run + ",A" + run + "@example.com,hash,Bob,Smith,SENIOR,,,,\r\n" +
+				"c" + run + ",c" + run + "@example.com,hash,Cy,Jones,WIZARD,,,,\r\n" +
+				"d" + run + ",d" + run + "@example.com,hash,Di,Lee,JUNIOR,,,Knitting" + run + ",\r\n" +
+				"e" + run + ",e" + run + "@example.com,hash,Ed\r\n" +
+				"a" + run + ",f" + run + "@example.com,hash,Fay,Wu,JUNIOR,,,,\r\n";
+		List<Map<String, Object>> events = post(csv, "text/csv");
+
+		Map<String, Object> done = events.get(events.size() - 1);
+		assert "done".equals(done.get("event")) : events;
+		assert ((Number) done.get("rows")).intValue() == 6 : done;
+		assert ((Number) done.get("imported")).intValue() == 1 : done;
+		assert ((Number) done.get("rejected")).intValue() == 5 : done;
+
+		/* Rows are numbered by the line they start on, so the quoted line break moves the later rows down */
+		Map<Long, String> errors = errors(events);
+		assert errors.keySet().equals(new HashSet<>(Arrays.asList(4L, 5L, 6L, 7L, 8L))) : errors;
+		assert errors.get(4L).contains("taken") && errors.get(8L).contains("taken") : errors;
+		assert errors.get(5L).contains("WIZARD") && errors.get(6L).contains("Knitting" + run) : errors;
+
+		User imported = userRepository.findWithRelationsById(userRepository.findByUsername("a" + run).get().getId()).get();
+		assert imported.getFirstName().equals("Ada") && imported.getClassification() == StudentClassification.FRESHMAN;
+		assert imported.getBiography().equals("Likes, \"quotes\"\nand lines");
+		assert imported.getMajors().size() == 1 && imported.getColleges().size() == 1;
+		assert imported.getInterests().size() == 2;
+	}
+
+	@Test
+	void importsNdjsonInBatches() throws IOException {
+		StringBuilder ndjson = new StringBuilder();
+		for (int i = 0; i < 3; i++) {
+			Map<String, Object> row = new HashMap<>();
+			row.put("username", "n" + i + run);
+			row.put("email", "n" + i + run + "@example.com");
+			row.put("passwordHash", "hash");
+			row.put("firstName", "First");
+			row.put("lastName", "Last");
+			row.put("classification", "sophomore");
+			row.put("interests", Collections.singletonList("go" + run));
+			ndjson.append(objectMapper.writeValueAsString(row)).append('\n');
+		}
+		ndjson.append('\n').append("{not json\n");
+
+		UserImportService service = new UserImportService(userRepository, groupRepository, interestRepository, matchDeltaService,
+				transactionTemplate, objectMapper, 2);
+		List<Long> rejected = new ArrayList<>();
+		List<Long> committed = new ArrayList<>();
+		UserImportService.Progress done = service.importUsers(new ByteArrayInputStream(ndjson.toString().getBytes(StandardCharsets.UTF_8)),
+				UserImportService.Format.NDJSON, new UserImportService.Listener() {
+					@Override
+					public void onRowRejected(long row, String reason) {
+						rejected.add(row);
+					}
+
+					@Override
+					public void onBatchCommitted(UserImportService.Progress progress) {
+						committed.add(progress.getImported());
+					}
+				});
+
+		assert rejected.equals(Collections.singletonList(5L)) : rejected;
+		assert committed.equals(Arrays.asList(2L, 3L)) : committed;
+		assert done.getRows() == 4 && done.getImported() == 3 && done.getRejected() == 1;
+		for (int i = 0; i < 3; i++) {
+			User user = userRepository.findWithRelationsById(userRepository.findByUsername("n" + i + run).get().getId()).get();
+			assert user.getInterests().size() == 1;
+		}
+	}
+
+	@Test
+	void keepsUsersWhoseIndexingFailed() throws IOException {
+		List<Boolean> stale = new ArrayList<>();
+		MatchDeltaService failing = new MatchDeltaService(null, null, null, null) {
+			@Override
+			public void onUsersAdded(Collection<User> users) {
+				throw new IllegalStateException("Index unavailable");
+			}
+
+			@Override
+			public void markIndexesStale() {
+				stale.add(true);
+				matchDeltaService.markIndexesStale();
+			}
+		};
+		/* Freshmen, so they are not ranked above the juniors that later tests match against */
+		StringBuilder ndjson = new StringBuilder();
+		for (String name : new String[]{"i0", "i1", "i0"}) {
+			ndjson.append("{\"username\":\"").append(name).append(run).append("\",\"email\":\"").append(name).append(run)
+					.append("@example.com\",\"passwordHash\":\"hash\",\"firstName\":\"Ida\",\"lastName\":\"Ives\",\"classification\":\"FRESHMAN\"}\n");
+		}
+
+		UserImportService service = new UserImportService(userRepository, groupRepository, interestRepository, failing, transactionTemplate,
+				objectMapper, 1);
+		Map<Long, String> rejected = new HashMap<>();
+		UserImportService.Progress done = service.importUsers(new ByteArrayInputStream(ndjson.toString().getBytes(StandardCharsets.UTF_8)),
+				UserImportService.Format.NDJSON, new UserImportService.Listener() {
+					@Override
+					public void onRowRejected(long row, String reason) {
+						rejected.put(row, reason);
+					}
+
+					@Override
+					public void onBatchCommitted(UserImportService.Progress progress) {
+					}
+				});
+
+		/* The committed users keep their names, so the repeated one is still taken */
+		assert rejected.size() == 1 && rejected.get(3L).contains("taken") : rejected;
+		assert done.getRows() == 3 && done.getImported() == 2 && done.getRejected() == 1;
+		assert stale.size() == 2 : stale;
+		User first = userRepository.findWithRelationsById(userRepository.findByUsername("i0" + run).get().getId()).get();
+		Long second = userRepository.findByUsername("i1" + run).get().getId();
+		assert featureIndex.candidates(first).contains(second);
+	}
+
+	@Test
+	void rejectsOtherContentTypes() {
+		ResponseEntity<String> response = rest.postForEntity("/users/import", new HttpEntity<>("[]", headers("application/json")), String.class);
+		assert response.getStatusCode() == HttpStatus.UNSUPPORTED_MEDIA_TYPE;
+	}
+
+	@Test
+	void rejectsUnknownCsvColumns() throws IOException {
+		List<Map<String, Object>> events = post("username,nickname\r\nx,y\r\n", "text/csv");
+		assert errors(events).get(1L).contains("nickname") : events;
+		assert ((Number) events.get(events.size() - 1).get("imported")).intValue() == 0;
+	}
+
+	@SuppressWarnings("unchecked")
+	private List<Map<String, Object>> post(String body, String contentType) throws IOException {
+		ResponseEntity<String> response = rest.postForEntity("/users/import", new HttpEntity<>(body, headers(contentType)), String.class);
+		assert response.getStatusCode() == HttpStatus.OK;
+		List<Map<String, Object>> events = new ArrayList<>();
+		for (String line : response.getBody().split("\n")) {
+			events.add(objectMapper.readValue(line, Map.class));
+		}
+		return events;
+	}
+
+	private static Map<Long, String> errors(List<Map<String, Object>> events) {
+		Map<Long, String> errors = new HashMap<>();
+		for (Map<String, Object> event : events) {
+			if ("error".equals(event.get("event"))) errors.put(((Number) event.get("row")).longValue(), (String) event.get("message"));
+		}
+		return errors;
+	}
+
+	private static HttpHeaders headers(String contentType) {
+		HttpHeaders headers = new HttpHeaders();
+		headers.setContentType(MediaType.parseMediaType(contentType));
+		return headers;
+	}
+}
@@ -0,0 +1,120 @@
+package com.yjohnson.backend.entities.User;
+
+import com.yjohnson.backend.entities.Match.MatchDeltaService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares listing users as entities with {@code findAll()} against the summary queries behind {@code GET /users}, with up to a million users in
+ * the in-memory test database.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class UserListingBenchmark {
+	/* Far above the IDs of the other tests, so the benchmark users can be removed afterwards */
+	static final long FIRST_ID = 1_000_000_000L;
+	static final int PAGE_SIZE = 100;
+
+	@Autowired
+	UserRepository userRepository;
+	@Autowired
+	UserService userService;
+	@Autowired
+	MatchDeltaService matchDeltaService;
+	@Autowired
+	JdbcTemplate jdbcTemplate;
+
+	@Test
+	void listing() throws IOException {
+		int users = 0;
+		try {
+			System.out.printf("%-9s %-24s %10s %12s%n", "users", "listing", "ms", "heap (MB)");
+			for (int target : new int[]{100_000, 1_000_000}) {
+				int from = users;
+				users = target;
+				insert(from, target);
+				long firstId = FIRST_ID - 1;
+
+				/* findAll() runs out of the default test heap with 1M users */
+				if (users <= 100_000) {
+					long heap = usedHeap();
+					long start = System.nanoTime();
+					List<User> all = new ArrayList<>();
+					userRepository.findAll().forEach(all::add);
+					print(users, "findAll() entities", start, Math.max(0, usedHeap() - heap));
+					all.clear();
+				}
+
+				long heap = usedHeap();
+				long start = System.nanoTime();
+				HeapSamplingOutputStream out = new HeapSamplingOutputStream();
+				userService.streamUserSummaries(firstId).writeTo(out);
+				print(users, "NDJSON stream", start, Math.max(0, out.maxHeap - heap));
+
+				start = System.nanoTime();
+				userService.getUserSummaries(firstId, users / PAGE_SIZE - 1, PAGE_SIZE);
+				print(users, "last page by offset", start, -1);
+
+				start = System.nanoTime();
+				userService.getUserSummaries(FIRST_ID + users - PAGE_SIZE - 1, 0, PAGE_SIZE);
+				print(users, "last page by keyset", start, -1);
+			}
+		} finally {
+			/* The feature index may have picked the users up; deleting them behind its back would leave them as candidates for later tests */
+			for (long id = FIRST_ID; id < FIRST_ID + users; id++) {
+				matchDeltaService.onUserRemoved(id);
+			}
+			jdbcTemplate.update("DELETE FROM users WHERE id >= ?", FIRST_ID);
+		}
+	}
+
+	private void insert(int from, int to) {
+		List<Object[]> rows = new ArrayList<>();
+		for (int i = from; i < to; i++) {
+			rows.add(new Object[]{FIRST_ID + i, "bench" + i, "bench" + i + "@example.com", "hash", "First", "Last", "Likes benchmarks", i % 4});
+			if (rows.size() == 10_000 || i == to - 1) {
+				jdbcTemplate.batchUpdate("INSERT INTO users (id, username, email, password_hash, first_name, last_name, biography, classification, " +
+						"premium, profile_picture) VALUES (?, ?, ?, ?, ?, ?, ?, ?, FALSE, 0)", rows);
+				rows.clear();
+			}
+		}
+	}
+
+	private static void print(int users, String listing, long start, long heap) {
+		System.out.printf("%-9d %-24s %10d %12s%n", users, listing, (System.nanoTime() - start) / 1_000_000,
+				heap >= 0 ? String.valueOf(heap >> 20) : "");
+	}
+
+	private static long usedHeap() {
+		System.gc();
+		Runtime runtime = Runtime.getRuntime();
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	/**
+	 * Discards what is written, and samples the live heap after every 100th flush, i.e. every 100 pages.
+	 */
+	static class HeapSamplingOutputStream extends OutputStream {
+		long maxHeap;
+		int flushes;
+
+		@Override
+		public void write(int b) {
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+		}
+
+		@Override
+		public void flush() {
+			if (++flushes % 100 == 0) maxHeap = Math.max(maxHeap, usedHeap());
+		}
+	}
+}
@@ -0,0 +1,92 @@
+package com.yjohnson.backend.entities.User;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.*;
+
+import java.io.IOException;
+import java.util.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class UserListingTest {
+	@Autowired
+	TestRestTemplate rest;
+	@Autowired
+	ObjectMapper objectMapper;
+	@Autowired
+	UserRepository userRepository;
+
+	List<Long> ids = new ArrayList<>();
+
+	@BeforeEach
+	void setUp() {
+		String run = UUID.randomUUID().toString().substring(0, 8);
+		for (int i = 0; i < 5; i++) {
+			ids.add(userRepository.save(new User("list" + i + run, i + run + "@example.com", "secret", "First", null, "Last", "Street", null,
+					StudentClassification.SENIOR, null, new HashSet<>(), new HashSet<>(), "", false, 0, null)).getId());
+		}
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	void pagesByKeyset() {
+		String url = "/users?size=2&afterId=" + (ids.get(0) - 1);
+		List<Long> listed = new ArrayList<>();
+		for (int pages = 1; url != null; pages++) {
+			ResponseEntity<List> response = rest.getForEntity(url, List.class);
+			assert response.getStatusCode() == HttpStatus.OK;
+			for (Map<String, Object> user : (List<Map<String, Object>>) response.getBody()) {
+				assert !user.containsKey("passwordHash") && !user.containsKey("email") && !user.containsKey("address") && !user.containsKey("premium") : user;
+				listed.add(((Number) user.get("id")).longValue());
+			}
+			List<String> links = response.getHeaders().get(HttpHeaders.LINK);
+			assert (links != null) == (pages < 3) : links;
+			url = links == null ? null : links.get(0).substring(1, links.get(0).indexOf('>'));
+		}
+		assert listed.equals(ids) : listed;
+	}
+
+	@Test
+	void skipsPagesByOffset() {
+		List<?> users = rest.getForObject("/users?size=2&page=1&afterId=" + (ids.get(0) - 1), List.class);
+		assert users.size() == 2 && ((Number) ((Map<?, ?>) users.get(0)).get("id")).longValue() == ids.get(2) : users;
+	}
+
+	@Test
+	void streamsNdjson() throws IOException {
+		HttpHeaders headers = new HttpHeaders();
+		headers.setAccept(Collections.singletonList(MediaType.parseMediaType("application/x-ndjson")));
+		ResponseEntity<String> response = rest.exchange("/users?afterId=" + ids.get(1), HttpMethod.GET, new HttpEntity<>(headers), String.class);
+		assert response.getStatusCode() == HttpStatus.OK;
+		assert response.getHeaders().getContentType().toString().equals("application/x-ndjson");
+
+		List<Long> streamed = new ArrayList<>();
+		for (String line : response.getBody().split("\n")) {
+			streamed.add(objectMapper.readValue(line, UserSummaryJson.class).id);
+		}
+		assert streamed.equals(ids.subList(2, 5)) : streamed;
+	}
+
+	@Test
+	void rejectsBadParameters() {
+		assert rest.getForEntity("/users?size=0", String.class).getStatusCode() == HttpStatus.BAD_REQUEST;
+		assert rest.getForEntity("/users?size=" + (UserController.MAX_PAGE_SIZE + 1), String.class).getStatusCode() == HttpStatus.BAD_REQUEST;
+		assert rest.getForEntity("/users?page=-1", String.class).getStatusCode() == HttpStatus.BAD_REQUEST;
+	}
+
+	static class UserSummaryJson {
+		public Long id;
+		public String username;
+		public String firstName;
+		public String middleName;
+		public String lastName;
+		public String classification;
+		public String gender;
+		public String biography;
+		public int profilePicture;
+	}
+}
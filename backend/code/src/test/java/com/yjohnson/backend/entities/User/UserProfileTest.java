@@ -0,0 +1,78 @@
+package com.yjohnson.backend.entities.User;
+
+import com.yjohnson.backend.entities.DB_Relations.R_UserInterest;
+import com.yjohnson.backend.entities.DB_Relations.UserInterestRepository;
+import com.yjohnson.backend.entities.Interest.InterestEntity;
+import com.yjohnson.backend.entities.Interest.InterestRepository;
+import com.yjohnson.backend.entities.Match.MatchDeltaService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class UserProfileTest {
+	@Autowired
+	TestRestTemplate rest;
+	@Autowired
+	UserRepository userRepository;
+	@Autowired
+	InterestRepository interestRepository;
+	@Autowired
+	UserInterestRepository userInterestRepository;
+	@Autowired
+	MatchDeltaService matchDeltaService;
+
+	List<User> users = new ArrayList<>();
+
+	@BeforeEach
+	void setUp() {
+		String run = UUID.randomUUID().toString().substring(0, 8);
+		InterestEntity interest = interestRepository.save(new InterestEntity("Profile" + run, null));
+		for (int i = 0; i < 3; i++) {
+			User user = userRepository.save(new User("profile" + i + run, i + run + "@example.com", "secret", "First" + i, null, "Last", null, null,
+					StudentClassification.SENIOR, null, new HashSet<>(), new HashSet<>(), "", false, 0, null));
+			userInterestRepository.save(new R_UserInterest(user, interest, LocalDateTime.now()));
+			users.add(user);
+		}
+		matchDeltaService.onUsersAdded(users);
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	void returnsEverySection() {
+		ResponseEntity<Map> response = rest.getForEntity("/users/" + users.get(0).getId() + "/profile?matches=2", Map.class);
+		assert response.getStatusCode() == HttpStatus.OK;
+		Map<String, Object> profile = response.getBody();
+		assert profile.keySet().equals(UserProfile.SECTIONS) : profile;
+		assert ((Map<String, Object>) profile.get("user")).get("firstName").equals("First0");
+		assert ((List<?>) profile.get("groups")).isEmpty();
+		assert ((List<?>) profile.get("interests")).size() == 1 : profile;
+
+		List<Map<String, Object>> matches = (List<Map<String, Object>>) profile.get("matches");
+		assert matches.size() == 2 : matches;
+		assert (Integer) matches.get(0).get("score") >= (Integer) matches.get(1).get("score");
+	}
+
+	@Test
+	void returnsOnlyAskedSections() {
+		Map<?, ?> profile = rest.getForObject("/users/" + users.get(1).getId() + "/profile?fields=interests,user", Map.class);
+		assert profile.keySet().equals(new HashSet<>(Arrays.asList("user", "interests"))) : profile;
+	}
+
+	@Test
+	void rejectsBadRequests() {
+		long id = users.get(0).getId();
+		assert rest.getForEntity("/users/-1/profile", String.class).getStatusCode() == HttpStatus.NOT_FOUND;
+		assert rest.getForEntity("/users/" + id + "/profile?fields=friends", String.class).getStatusCode() == HttpStatus.BAD_REQUEST;
+		assert rest.getForEntity("/users/" + id + "/profile?matches=0", String.class).getStatusCode() == HttpStatus.BAD_REQUEST;
+		assert rest.getForEntity("/users/" + id + "/profile?matches=" + (UserProfileService.MAX_MATCHES + 1), String.class).getStatusCode() ==
+				HttpStatus.BAD_REQUEST;
+	}
+}
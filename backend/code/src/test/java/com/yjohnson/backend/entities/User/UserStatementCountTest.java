@@ -0,0 +1,117 @@
+package com.yjohnson.backend.entities.User;
+
+import com.yjohnson.backend.entities.DB_Relations.R_UserGroup;
+import com.yjohnson.backend.entities.DB_Relations.R_UserInterest;
+import com.yjohnson.backend.entities.DB_Relations.UserGroupRepository;
+import com.yjohnson.backend.entities.DB_Relations.UserInterestRepository;
+import com.yjohnson.backend.entities.Group.GroupEntity;
+import com.yjohnson.backend.entities.Group.GroupRepository;
+import com.yjohnson.backend.entities.Group.GroupType;
+import com.yjohnson.backend.entities.Interest.InterestEntity;
+import com.yjohnson.backend.entities.Interest.InterestRepository;
+import org.hibernate.Hibernate;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.RequestEntity;
+
+import javax.persistence.EntityManagerFactory;
+import java.net.URI;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Counts the SQL statements that the hot user endpoints issue, so that a relation that is read one row at a time shows up as a failure.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+		properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class UserStatementCountTest {
+	static final int USERS = 5;
+	static final int RELATIONS = 3;
+
+	@Autowired
+	TestRestTemplate rest;
+	@Autowired
+	EntityManagerFactory entityManagerFactory;
+	@Autowired
+	UserRepository userRepository;
+	@Autowired
+	GroupRepository groupRepository;
+	@Autowired
+	InterestRepository interestRepository;
+	@Autowired
+	UserGroupRepository userGroupRepository;
+	@Autowired
+	UserInterestRepository userInterestRepository;
+
+	Statistics statistics;
+	User user;
+
+	@BeforeEach
+	void setUp() {
+		statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		String run = UUID.randomUUID().toString().substring(0, 8);
+		for (int u = 0; u < USERS; u++) {
+			User saved = userRepository.save(new User("u" + run + u, run + u + "@example.com", "hash", "First", null, "Last", null, null,
+					StudentClassification.JUNIOR, Gender.OTHER, new HashSet<>(), new HashSet<>(), "", false, 0, null));
+			for (int r = 0; r < RELATIONS; r++) {
+				InterestEntity interest = new InterestEntity();
+				interest.setName("i" + run + u + r);
+				interest = interestRepository.save(interest);
+				GroupEntity group = new GroupEntity("g" + run + u + r, "");
+				group.groupType = GroupType.STUDENT_MAJOR;
+				group = groupRepository.save(group);
+				saved.getInterests().add(userInterestRepository.save(new R_UserInterest(saved, interest, LocalDateTime.now())));
+				saved.getGroups().add(userGroupRepository.save(new R_UserGroup(saved, group, LocalDateTime.now())));
+			}
+			user = userRepository.save(saved);
+		}
+	}
+
+	@Test
+	void profileReadsDoNotTouchRelations() {
+		assert statements(HttpMethod.GET, "/users/" + user.getId(), null) == 1;
+		assert statements(HttpMethod.POST, "/login", new User(null, user.getEmail(), "hash", null, null, null, null, null, null, null, null, null,
+				null, false, 0, null)) == 1;
+	}
+
+	@Test
+	void batchLookupUsesOneQuery() {
+		assert statements(HttpMethod.POST, "/users/batch", Arrays.asList(String.valueOf(user.getId()), user.getUsername(), "-1")) == 1;
+	}
+
+	@Test
+	void relationReadsUseOneQuery() {
+		assert statements(HttpMethod.GET, "/users/" + user.getId() + "/interests", null) == 1;
+		assert statements(HttpMethod.GET, "/users/" + user.getId() + "/groups", null) == 1;
+	}
+
+	@Test
+	void scoringLoadsAllRelationsInOneQuery() {
+		statistics.clear();
+		List<User> users = userRepository.findAllWithRelations();
+		assert statistics.getPrepareStatementCount() == 1;
+		assert users.size() >= USERS;
+		for (User loaded : users) {
+			assert Hibernate.isInitialized(loaded.getInterests()) && Hibernate.isInitialized(loaded.getGroups());
+		}
+		User last = users.stream().filter(loaded -> loaded.getId().equals(user.getId())).findFirst().orElseThrow(AssertionError::new);
+		assert last.getInterests().size() == RELATIONS && last.getGroups().size() == RELATIONS;
+	}
+
+	private long statements(HttpMethod method, String path, Object body) {
+		statistics.clear();
+		HttpStatus status = rest.exchange(new RequestEntity<>(body, method, URI.create(path)), String.class).getStatusCode();
+		assert status == HttpStatus.OK : path + " returned " + status;
+		return statistics.getPrepareStatementCount();
+	}
+}
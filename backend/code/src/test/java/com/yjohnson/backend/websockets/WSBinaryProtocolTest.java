@@ -0,0 +1,149 @@
+package com.yjohnson.backend.websockets;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yjohnson.backend.entities.Match.MatchDeltaService;
+import com.yjohnson.backend.entities.Match.MatchEntity;
+import com.yjohnson.backend.entities.Match.MatchEntityEncoder;
+import com.yjohnson.backend.entities.Match.MatchService;
+import com.yjohnson.backend.entities.User.User;
+import com.yjohnson.backend.entities.User.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import javax.websocket.RemoteEndpoint;
+import javax.websocket.Session;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class WSBinaryProtocolTest {
+	@Autowired
+	WSMatchServer server;
+	@Autowired
+	MatchService matchService;
+	@Autowired
+	MatchDeltaService matchDeltaService;
+	@Autowired
+	UserRepository userRepository;
+	@Autowired
+	ObjectMapper objectMapper;
+
+	List<User> users = new ArrayList<>();
+	List<ByteBuffer> received = new ArrayList<>();
+	Session session;
+
+	@BeforeEach
+	void setUp() {
+		String run = UUID.randomUUID().toString().substring(0, 8);
+		for (int i = 0; i < 4; i++) {
+			Map<String, Object> user = new HashMap<>();
+			user.put("username", "bin" + i + run);
+			user.put("email", i + run + "@example.com");
+			user.put("passwordHash", "secret");
+			user.put("firstName", "Zoë");
+			user.put("lastName", "Last");
+			user.put("biography", "Bio " + i + " ☕");
+			user.put("classification", "SOPHOMORE");
+			user.put("gender", "OTHER");
+			users.add(userRepository.save(objectMapper.convertValue(user, User.class)));
+		}
+		matchDeltaService.onUsersAdded(users);
+
+		session = Mockito.mock(Session.class);
+		RemoteEndpoint.Basic remote = Mockito.mock(RemoteEndpoint.Basic.class);
+		Mockito.when(session.getBasicRemote()).thenReturn(remote);
+		Mockito.when(session.getNegotiatedSubprotocol()).thenReturn(WSBinaryProtocol.NAME);
+		try {
+			Mockito.doAnswer(invocation -> received.add(invocation.getArgument(0))).when(remote).sendBinary(ArgumentMatchers.any());
+		} catch (Exception e) {
+			throw new AssertionError(e);
+		}
+	}
+
+	@AfterEach
+	void tearDown() {
+		users.forEach(user -> matchDeltaService.onUserRemoved(user.getId()));
+	}
+
+	@Test
+	void browsesMatches() throws Exception {
+		User user = users.get(0);
+		List<MatchEntity> expected = new ArrayList<>();
+		matchService.matchUser(user).forEach(expected::add);
+		assert !expected.isEmpty();
+
+		server.onOpen(session, user.getId());
+		assert opcodes(received.remove(0)).equals(Collections.singletonList(WSResponse.DONE.getOpcode()));
+
+		/* Starting and reading every match and one more are sent as one message and answered in one */
+		ByteBuffer request = ByteBuffer.allocate(WSBinaryProtocol.HEADER * (expected.size() + 2));
+		request.put(frame(WSRequest.START_MATCHING_PROCESS.getOpcode()));
+		for (int i = 0; i <= expected.size(); i++) {
+			request.put(frame(WSRequest.NEXT_MATCH.getOpcode()));
+		}
+		request.flip();
+		server.onMessage(session, request);
+		assert received.size() == 1 : received;
+
+		List<WSBinaryProtocol.Frame> frames = WSBinaryProtocol.read(received.get(0));
+		assert frames.size() == expected.size() + 2 : frames.size();
+		assert frames.get(0).getOpcode() == WSResponse.DONE.getOpcode();
+		assert frames.get(frames.size() - 1).getOpcode() == WSResponse.END_OF_MATCHES.getOpcode();
+		int binary = 0, text = 0;
+		for (int i = 0; i < expected.size(); i++) {
+			ByteBuffer match = frames.get(i + 1).getPayload();
+			assert frames.get(i + 1).getOpcode() == WSBinaryProtocol.MATCH;
+			assert match.getLong() == expected.get(i).getMatchee().getId();
+			assert match.getInt() == expected.get(i).getScore();
+			assert match.get() == 0 : "not confirmed";
+			assert match.get() == 1 && match.get() == 2 : "SOPHOMORE, OTHER";
+			assert match.getInt() == 0;
+			assert string(match).equals(expected.get(i).getMatchee().getUsername());
+			assert string(match).equals("Zoë") && string(match).equals("Last");
+			String biography = string(match);
+			assert biography.equals(expected.get(i).getMatchee().getBiography()) && biography.endsWith(" ☕") : biography;
+			assert !match.hasRemaining();
+
+			binary += WSBinaryProtocol.HEADER + match.limit();
+			StringWriter json = new StringWriter();
+			new MatchEntityEncoder().encode(expected.get(i), json);
+			text += json.toString().getBytes(StandardCharsets.UTF_8).length;
+		}
+		assert binary * 4 < text : binary + " vs " + text;
+		server.onClose(session);
+	}
+
+	@Test
+	void rejectsMalformedMessages() throws Exception {
+		server.onOpen(session, users.get(0).getId());
+		received.clear();
+		for (byte[] message : new byte[][]{{0, 0}, {0, 2, 0x01, 0}, {0, 0, 0x7F}, {0, 1, 0x03, 9}}) {
+			server.onMessage(session, ByteBuffer.wrap(message));
+			assert opcodes(received.remove(0)).equals(Collections.singletonList(WSResponse.BAD_REQUEST.getOpcode())) : Arrays.toString(message);
+		}
+		server.onClose(session);
+	}
+
+	private static byte[] frame(int opcode) {
+		return new byte[]{0, 0, (byte) opcode};
+	}
+
+	private static List<Integer> opcodes(ByteBuffer message) {
+		List<Integer> opcodes = new ArrayList<>();
+		WSBinaryProtocol.read(message).forEach(frame -> opcodes.add(frame.getOpcode()));
+		return opcodes;
+	}
+
+	private static String string(ByteBuffer payload) {
+		byte[] utf8 = new byte[payload.getShort()];
+		payload.get(utf8);
+		return new String(utf8, StandardCharsets.UTF_8);
+	}
+}
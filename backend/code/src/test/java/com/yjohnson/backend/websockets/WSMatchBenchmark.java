@@ -0,0 +1,92 @@
+package com.yjohnson.backend.websockets;
+
+import com.yjohnson.backend.entities.Match.MatchDeltaService;
+import com.yjohnson.backend.entities.Match.MatchEntity;
+import com.yjohnson.backend.entities.Match.MatchService;
+import com.yjohnson.backend.entities.User.User;
+import com.yjohnson.backend.entities.User.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares how long a match WebSocket session waits for its first match when all candidates are scored and stored up front against the lazy
+ * ranking that sessions use, with up to 50,000 candidates of the same classification.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class WSMatchBenchmark {
+	/* Far above the IDs of the other tests, so the benchmark users can be removed afterwards */
+	static final long FIRST_ID = 1_000_000_000L;
+	static final int CHUNK_SIZE = 16;
+
+	@Autowired
+	MatchService matchService;
+	@Autowired
+	MatchDeltaService matchDeltaService;
+	@Autowired
+	WSMatchService wsMatchService;
+	@Autowired
+	UserRepository userRepository;
+	@Autowired
+	JdbcTemplate jdbcTemplate;
+
+	@Test
+	void firstMatch() {
+		List<Long> ids = new ArrayList<>();
+		try {
+			System.out.printf("%-9s %-26s %10s %16s%n", "users", "first match", "ms", "matches held");
+			int users = 0;
+			for (int target : new int[]{10_000, 50_000}) {
+				List<User> added = insert(users, target);
+				added.forEach(user -> ids.add(user.getId()));
+				matchDeltaService.onUsersAdded(added);
+				users = target;
+				User user = added.get(added.size() - 1);
+
+				long start = System.nanoTime();
+				WSMatchSession session = new WSMatchSession(user, CHUNK_SIZE);
+				session.start(wsMatchService.rankingOf(user));
+				session.next().orElseThrow(AssertionError::new);
+				print(users, "lazy ranking", start, CHUNK_SIZE);
+
+				start = System.nanoTime();
+				int held = 0;
+				for (MatchEntity ignored : matchService.refreshMatches(user, false)) {
+					held++;
+				}
+				print(users, "score and store all", start, held);
+			}
+		} finally {
+			ids.forEach(matchDeltaService::onUserRemoved);
+			jdbcTemplate.update("DELETE FROM match_entity WHERE matcher_id >= ? OR matchee_id >= ?", FIRST_ID, FIRST_ID);
+			jdbcTemplate.update("DELETE FROM users WHERE id >= ?", FIRST_ID);
+		}
+	}
+
+	private List<User> insert(int from, int to) {
+		List<Object[]> rows = new ArrayList<>();
+		for (int i = from; i < to; i++) {
+			rows.add(new Object[]{FIRST_ID + i, "wsbench" + i, "wsbench" + i + "@example.com"});
+			if (rows.size() == 10_000 || i == to - 1) {
+				jdbcTemplate.batchUpdate("INSERT INTO users (id, username, email, password_hash, first_name, last_name, biography, classification, " +
+						"premium, profile_picture) VALUES (?, ?, ?, 'hash', 'First', 'Last', '', 2, FALSE, 0)", rows);
+				rows.clear();
+			}
+		}
+		List<Long> ids = new ArrayList<>();
+		for (long id = FIRST_ID + from; id < FIRST_ID + to; id++) {
+			ids.add(id);
+		}
+		List<User> users = new ArrayList<>();
+		userRepository.findAllById(ids).forEach(users::add);
+		return users;
+	}
+
+	private static void print(int users, String firstMatch, long start, int held) {
+		System.out.printf("%-9d %-26s %10d %16d%n", users, firstMatch, (System.nanoTime() - start) / 1_000_000, held);
+	}
+}
@@ -0,0 +1,81 @@
+package com.yjohnson.backend.websockets;
+
+import com.yjohnson.backend.entities.Match.MatchEntity;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+class WSMatchSessionTest {
+	static final int MATCHES = 5;
+
+	final List<MatchEntity> ranked = new ArrayList<>();
+	final List<Integer> chunkSizes = new ArrayList<>();
+
+	WSMatchSessionTest() {
+		for (int i = 0; i < MATCHES; i++) {
+			ranked.add(new MatchEntity(null, null, MATCHES - i, false));
+		}
+	}
+
+	@Test
+	void walksBothWaysAcrossChunks() {
+		WSMatchSession session = started(2);
+		for (int i = 0; i < MATCHES; i++) {
+			assert session.next().orElseThrow(AssertionError::new) == ranked.get(i) : i;
+		}
+		assert !session.next().isPresent();
+
+		/* Like a ListIterator, the last match comes back first */
+		for (int i = MATCHES - 1; i >= 0; i--) {
+			assert session.previous().orElseThrow(AssertionError::new) == ranked.get(i) : i;
+		}
+		assert !session.previous().isPresent();
+		assert session.next().orElseThrow(AssertionError::new) == ranked.get(0);
+		assert chunkSizes.stream().allMatch(size -> size <= 2) : chunkSizes;
+	}
+
+	@Test
+	void readsOnlyWhatIsAskedFor() {
+		WSMatchSession session = started(2);
+		assert chunkSizes.isEmpty();
+		session.next();
+		session.next();
+		assert chunkSizes.size() == 1;
+		session.next();
+		assert chunkSizes.size() == 2;
+	}
+
+	@Test
+	void confirmsTheLastMatchSent() {
+		WSMatchSession session = started(2);
+		session.confirm();
+		session.next();
+		Optional<MatchEntity> second = session.next();
+		session.confirm();
+		assert second.orElseThrow(AssertionError::new).isConfirmed() && !ranked.get(0).isConfirmed();
+	}
+
+	private WSMatchSession started(int chunkSize) {
+		WSMatchSession.Ranking list = WSMatchSession.Ranking.of(ranked);
+		WSMatchSession session = new WSMatchSession(null, chunkSize);
+		session.start(new WSMatchSession.Ranking() {
+			@Override
+			public List<MatchEntity> after(MatchEntity last, int limit) {
+				return counted(list.after(last, limit));
+			}
+
+			@Override
+			public List<MatchEntity> before(MatchEntity first, int limit) {
+				return counted(list.before(first, limit));
+			}
+		});
+		return session;
+	}
+
+	private List<MatchEntity> counted(List<MatchEntity> chunk) {
+		chunkSizes.add(chunk.size());
+		return chunk;
+	}
+}
@@ -0,0 +1,124 @@
+package com.yjohnson.backend.websockets;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yjohnson.backend.entities.Match.MatchDeltaService;
+import com.yjohnson.backend.entities.Match.MatchEntity;
+import com.yjohnson.backend.entities.Match.MatchService;
+import com.yjohnson.backend.entities.User.User;
+import com.yjohnson.backend.entities.User.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import javax.websocket.RemoteEndpoint;
+import javax.websocket.Session;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Drives thousands of simulated sessions of different users through the match WebSocket at the same time, and checks that every session walks
+ * exactly its own user's matches.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class WSMatchStressTest {
+	static final int USERS = 8;
+	static final int SESSIONS = 2000;
+	static final int THREADS = 32;
+
+	@Autowired
+	WSMatchServer server;
+	@Autowired
+	WSMatchService wsMatchService;
+	@Autowired
+	MatchService matchService;
+	@Autowired
+	MatchDeltaService matchDeltaService;
+	@Autowired
+	UserRepository userRepository;
+	@Autowired
+	ObjectMapper objectMapper;
+
+	List<User> users = new ArrayList<>();
+	Map<Long, List<Long>> expected = new HashMap<>();
+
+	@BeforeEach
+	void setUp() {
+		String run = UUID.randomUUID().toString().substring(0, 8);
+		String[] classifications = {"FRESHMAN", "SOPHOMORE", "JUNIOR", "SENIOR"};
+		for (int i = 0; i < USERS; i++) {
+			Map<String, Object> user = new HashMap<>();
+			user.put("username", "ws" + i + run);
+			user.put("email", i + run + "@example.com");
+			user.put("passwordHash", "secret");
+			user.put("firstName", "First");
+			user.put("lastName", "Last");
+			user.put("classification", classifications[i % classifications.length]);
+			users.add(userRepository.save(objectMapper.convertValue(user, User.class)));
+		}
+		matchDeltaService.onUsersAdded(users);
+		for (User user : users) {
+			List<Long> matchees = new ArrayList<>();
+			matchService.matchUser(user).forEach(match -> matchees.add(match.getMatchee().getId()));
+			assert !matchees.isEmpty();
+			expected.put(user.getId(), matchees);
+		}
+	}
+
+	@AfterEach
+	void tearDown() {
+		/* Users of every classification are candidates of every later user; keep them from outliving a schema that another context recreates */
+		users.forEach(user -> matchDeltaService.onUserRemoved(user.getId()));
+	}
+
+	@Test
+	void sessionsKeepTheirOwnMatches() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		CountDownLatch start = new CountDownLatch(1);
+		List<Future<String>> results = new ArrayList<>();
+		for (int i = 0; i < SESSIONS; i++) {
+			User user = users.get(i % USERS);
+			results.add(executor.submit(() -> {
+				start.await();
+				return walk(user);
+			}));
+		}
+		start.countDown();
+		List<String> failures = new ArrayList<>();
+		for (Future<String> result : results) {
+			String failure = result.get(2, TimeUnit.MINUTES);
+			if (failure != null) failures.add(failure);
+		}
+		executor.shutdown();
+
+		assert failures.isEmpty() : failures.size() + " sessions saw other matches, e.g. " + failures.get(0);
+		assert wsMatchService.sessions.isEmpty() && wsMatchService.userIDSessionMap.isEmpty();
+	}
+
+	/* Opens a session, starts matching, reads matches until the end, and closes it; returns a description of what went wrong, if anything */
+	private String walk(User user) throws Exception {
+		List<Long> received = Collections.synchronizedList(new ArrayList<>());
+		List<String> texts = Collections.synchronizedList(new ArrayList<>());
+		Session session = Mockito.mock(Session.class);
+		RemoteEndpoint.Basic remote = Mockito.mock(RemoteEndpoint.Basic.class);
+		Mockito.when(session.getBasicRemote()).thenReturn(remote);
+		Mockito.doAnswer(invocation -> received.add(invocation.<MatchEntity>getArgument(0).getMatchee().getId()))
+		       .when(remote).sendObject(ArgumentMatchers.any());
+		Mockito.doAnswer(invocation -> texts.add(invocation.getArgument(0))).when(remote).sendText(ArgumentMatchers.anyString());
+
+		server.onOpen(session, user.getId());
+		server.onMessage(session, WSRequest.START_MATCHING_PROCESS.name());
+		List<Long> matches = expected.get(user.getId());
+		for (int i = 0; i <= matches.size(); i++) {
+			server.onMessage(session, WSRequest.NEXT_MATCH.name());
+		}
+		server.onClose(session);
+
+		if (!received.equals(matches)) return "user " + user.getId() + " expected " + matches + " but got " + received;
+		if (!texts.get(texts.size() - 1).equals(WSResponse.END_OF_MATCHES.name())) return "user " + user.getId() + " got " + texts;
+		return null;
+	}
+}